@@ -0,0 +1,222 @@
+package com.match;
+
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 常驻的分桶 worker，替代每轮新建的 Flux.parallel 管线：
+ * 1. 桶按连续区间静态分给 worker，每轮由同一线程处理同一批桶，缓存与 drainBuffer 常驻本核
+ * 2. worker 之间领取桶靠 owner 的游标 getAndIncrement，不争抢 bucketStates；本区间做完、空闲时才去别人的游标上偷
+ * 3. 每个桶在任一时刻只有一个消费者，Agrona 队列保持 ManyToOne 语义
+ * 4. 快照、集群迁移等后台操作经 {@link #exclusive(IntSupplier)} 在两轮之间独占执行；
+ *    全局匹配只逐窗口占用相邻的一小段桶，processBucket 回调遇到被占用的桶本轮跳过
+ */
+public class BucketWorkers {
+    private static final Logger log = LoggerFactory.getLogger(BucketWorkers.class);
+
+    private final Worker[] workers;
+    private final AgentRunner[] runners;
+    private final IntUnaryOperator processBucket;
+    private final IntPredicate nonEmpty;
+    private final MatchMetrics metrics;
+    private final CycleListener listener;
+
+    // 本轮尚未处理完的桶数，为 0 表示空闲
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger cyclePairs = new AtomicInteger();
+    private volatile long cycleStart;
+    private volatile MatchJfrEvents.MatchCycle cycleJfr;
+    private final Object gate = new Object();
+    // close() 之后不再开始新一轮
+    private boolean closed;
+
+    /**
+     * 每轮结束时回调，在处理最后一个桶的 worker 线程上执行
+     */
+    @FunctionalInterface
+    public interface CycleListener {
+        void onCycle(long nanos, int pairs);
+    }
+
+    public BucketWorkers(int numBuckets, int workerCount, int[] cpus,
+                         IntUnaryOperator processBucket, IntPredicate nonEmpty, MatchMetrics metrics) {
+        this(numBuckets, workerCount, cpus, processBucket, nonEmpty, metrics, (nanos, pairs) -> { });
+    }
+
+    /**
+     * @param processBucket 处理单个桶，返回配对数
+     * @param cpus          worker 依次绑定的 CPU，为空则不绑核
+     */
+    public BucketWorkers(int numBuckets, int workerCount, int[] cpus,
+                         IntUnaryOperator processBucket, IntPredicate nonEmpty, MatchMetrics metrics,
+                         CycleListener listener) {
+        this.listener = listener;
+        int n = Math.max(1, Math.min(workerCount, numBuckets));
+        this.processBucket = processBucket;
+        this.nonEmpty = nonEmpty;
+        this.metrics = metrics;
+        this.workers = new Worker[n];
+        for (int w = 0; w < n; w++) {
+            int from = (int) ((long) numBuckets * w / n);
+            int to = (int) ((long) numBuckets * (w + 1) / n);
+            workers[w] = new Worker(w, from, to, cpus.length == 0 ? -1 : cpus[w % cpus.length]);
+        }
+        this.runners = new AgentRunner[n];
+        for (int w = 0; w < n; w++) {
+            runners[w] = new AgentRunner(
+                    new BackoffIdleStrategy(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1)),
+                    ex -> log.error("bucket worker error", ex),
+                    null,
+                    workers[w]);
+            AgentRunner.startOnThread(runners[w]);
+        }
+        log.info("bucket workers: {} threads over {} buckets, cpus {}", n, numBuckets,
+                cpus.length == 0 ? "unpinned" : Arrays.toString(cpus));
+    }
+
+    public int workerCount() {
+        return workers.length;
+    }
+
+    /**
+     * 开始新一轮；上一轮未完成则跳过（与 scheduleWithFixedDelay 的语义一致）
+     * @return 是否开始
+     */
+    public boolean startCycle() {
+        synchronized (gate) {
+            if (closed || pending.get() != 0) return false;
+            MatchJfrEvents.MatchCycle jfr = new MatchJfrEvents.MatchCycle();
+            jfr.begin();
+            cycleJfr = jfr;
+            cyclePairs.set(0);
+            cycleStart = System.nanoTime();
+            int total = 0;
+            for (Worker w : workers) total += w.to - w.from;
+            pending.set(total);
+            for (Worker w : workers) {
+                w.cursor.set(w.from);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 等当前一轮结束后在调用线程上执行 task，期间不会开始新一轮
+     */
+    public int exclusive(IntSupplier task) {
+        synchronized (gate) {
+            while (pending.get() != 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+            return task.getAsInt();
+        }
+    }
+
+    /**
+     * 当前一轮是否已处理完
+     */
+    public boolean idle() {
+        return pending.get() == 0;
+    }
+
+    /**
+     * 等进行中的一轮结束后停止 worker，之后 {@link #exclusive(IntSupplier)} 直接在调用线程上执行
+     */
+    public void close() {
+        synchronized (gate) {
+            while (pending.get() != 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+            closed = true;
+        }
+        for (AgentRunner r : runners) {
+            r.close();
+        }
+    }
+
+    private void process(int bucketId) {
+        try {
+            if (nonEmpty.test(bucketId)) {
+                cyclePairs.addAndGet(processBucket.applyAsInt(bucketId));
+            }
+        } finally {
+            if (pending.decrementAndGet() == 0) {
+                finishCycle();
+            }
+        }
+    }
+
+    private void finishCycle() {
+        int produced = cyclePairs.get();
+        long nanos = System.nanoTime() - cycleStart;
+        metrics.recordCycle(nanos, produced);
+        listener.onCycle(nanos, produced);
+        MatchJfrEvents.MatchCycle jfr = cycleJfr;
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.pairs = produced;
+            jfr.commit();
+        }
+    }
+
+    private final class Worker implements Agent {
+        private final int id;
+        private final int from;
+        private final int to;
+        private final int cpu;
+        // 下一个待领取的桶，≥ to 表示本区间已领完
+        private final AtomicInteger cursor;
+
+        Worker(int id, int from, int to, int cpu) {
+            this.id = id;
+            this.from = from;
+            this.to = to;
+            this.cpu = cpu;
+            this.cursor = new AtomicInteger(to);
+        }
+
+        @Override
+        public void onStart() {
+            if (cpu >= 0) CpuAffinity.pinCurrentThread(cpu);
+        }
+
+        @Override
+        public int doWork() {
+            int work = drain(this);
+            if (work > 0) return work;
+            // 本区间空闲：从相邻 worker 开始偷
+            for (int k = 1; k < workers.length; k++) {
+                work += drain(workers[(id + k) % workers.length]);
+                if (work > 0) break;
+            }
+            return work;
+        }
+
+        private int drain(Worker owner) {
+            int done = 0;
+            while (owner.cursor.get() < owner.to) {
+                int b = owner.cursor.getAndIncrement();
+                if (b >= owner.to) break;
+                process(b);
+                done++;
+            }
+            return done;
+        }
+
+        @Override
+        public String roleName() {
+            return "bucket-worker-" + id;
+        }
+    }
+}
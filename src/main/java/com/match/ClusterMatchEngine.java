@@ -0,0 +1,189 @@
+package com.match;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群分区匹配节点：
+ * 1. 按 {@link PartitionMap} 划分分数段，本节点只在本地 {@link EnhancedMatchEngine} 中保存自己分区的等待者
+ * 2. 非本分区的提交经 {@link ClusterTransport} 转发给所有者，事件携带 originNode
+ * 3. 每秒把上边界附近、range 越界的等待者交给右邻节点，与其下边界等待者合并后按组队人数 / 区域分格匹配
+ * 4. 匹配结果由 {@link ClusterNotificationService} 路由回持有 WebSocket 的节点
+ */
+public class ClusterMatchEngine implements MatchEngine {
+    private static final Logger log = LoggerFactory.getLogger(ClusterMatchEngine.class);
+
+    private final int nodeId;
+    private final PartitionMap partitions;
+    private final ClusterTransport transport;
+    private final ClusterNotificationService notifier;
+    private final EnhancedMatchEngine local;
+    private final int boundaryWindow;
+    private final RegionGrid grid;
+
+    private final ScheduledExecutorService scheduler;
+
+    public ClusterMatchEngine(int nodeId,
+                              PartitionMap partitions,
+                              ClusterTransport transport,
+                              ClusterNotificationService notifier,
+                              MatchProperties props) {
+        this.nodeId = nodeId;
+        this.partitions = partitions;
+        this.transport = transport;
+        this.notifier = notifier;
+        this.boundaryWindow = props.getClusterBoundaryWindow();
+        this.grid = RegionGrid.from(props);
+        this.local = new EnhancedMatchEngine(props, notifier, null);
+        transport.register(this);
+
+        this.scheduler = Executors.newScheduledThreadPool(1);
+        // 最右分区没有右邻
+        if (nodeId < partitions.nodeCount() - 1) {
+            scheduler.scheduleWithFixedDelay(this::exchangeBoundary, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String channelId) {
+        return submitEvent(username, score, matchRange, null, 0, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, int region, String channelId) {
+        MatchEvent e = new MatchEvent();
+        e.init(username, score, matchRange, mode, region, channelId);
+        return route(e);
+    }
+
+    /**
+     * 组队按队伍分数归属分区；成员连接都在本节点
+     */
+    @Override
+    public boolean submitParty(Party party, String mode, int region) {
+        Party.Member leader = party.leader();
+        MatchEvent e = new MatchEvent();
+        e.init(leader.username(), party.rating(), party.matchRange(), mode, region, leader.channelId());
+        e.setParty(party);
+        return route(e);
+    }
+
+    private boolean route(MatchEvent e) {
+        e.setOriginNode(nodeId);
+        int owner = partitions.ownerOf(e.getScore());
+        if (owner == nodeId) {
+            return local.enqueueEvent(e);
+        }
+        // 与本地提交一致：所有者拒绝或转发失败都反馈给调用方
+        try {
+            return transport.forwardSubmit(owner, e);
+        } catch (RuntimeException ex) {
+            log.warn("node {} failed to forward {} to node {}", nodeId, e.getUsername(), owner, ex);
+            return false;
+        }
+    }
+
+    /**
+     * 只取消本节点分区内的等待者（含边界交换后放回的）
+     */
+    @Override
+    public boolean cancelEvent(String username, String channelId) {
+        return local.cancelEvent(username, channelId);
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdown();
+        local.stop();
+    }
+
+    /**
+     * 上边界窗口内 score + range 越过分区的等待者交给右邻
+     */
+    void exchangeBoundary() {
+        try {
+            int upper = partitions.upperBound(nodeId);
+            List<MatchEvent> drained = new ArrayList<>();
+            if (local.drainScoreRange(upper - boundaryWindow + 1, upper, drained) == 0) return;
+
+            List<MatchEvent> crossing = new ArrayList<>();
+            for (MatchEvent e : drained) {
+                if (e.getScore() + e.getMatchRange() > upper) {
+                    crossing.add(e);
+                } else {
+                    local.resubmit(e);
+                }
+            }
+            if (!crossing.isEmpty()) {
+                transport.sendBoundary(nodeId + 1, nodeId, crossing.toArray(new MatchEvent[0]));
+            }
+        } catch (Exception ex) {
+            log.error("boundary exchange failed on node {}", nodeId, ex);
+        }
+    }
+
+    boolean onForwardedSubmit(MatchEvent e) {
+        if (!local.enqueueEvent(e)) {
+            log.warn("node {} rejected forwarded event {}", nodeId, e.getUsername());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 左邻交来的边界等待者与本分区下边界窗口做跨分区匹配，未匹配者交还左邻。
+     * 与分桶引擎一样经 {@link VectorizedMatchPipeline#processSorted(SortedBatch, RegionGrid, long, List)}，
+     * 只与同人数的队伍配对并遵守区域分格
+     */
+    void onBoundary(int fromNode, MatchEvent[] incoming) {
+        for (MatchEvent e : incoming) e.tryAcquire();
+
+        int lower = partitions.lowerBound(nodeId);
+        List<MatchEvent> own = new ArrayList<>();
+        local.drainScoreRange(lower, lower + boundaryWindow - 1, own);
+
+        if (!own.isEmpty()) {
+            MatchEvent[] ownBatch = own.toArray(new MatchEvent[0]);
+            // 左邻的分数都低于本分区下界：两段各自排序后首尾相接，无需整体重排
+            SortedBatch merged = SortedBatch.concat(List.of(
+                    SortedBatch.of(incoming, incoming.length),
+                    SortedBatch.of(ownBatch, ownBatch.length)));
+            List<MatchPair> pairs = new ArrayList<>();
+            VectorizedMatchPipeline.processSorted(merged, grid, local.clockMillis(), pairs);
+            for (MatchPair p : pairs) {
+                notifier.submit(p);
+            }
+            for (MatchEvent e : ownBatch) {
+                if (e.getStateCode() == MatchEvent.PROCESSING) local.resubmit(e);
+            }
+        }
+
+        List<MatchEvent> back = new ArrayList<>();
+        for (MatchEvent e : incoming) {
+            if (e.getStateCode() == MatchEvent.PROCESSING) back.add(e);
+        }
+        if (!back.isEmpty()) {
+            transport.returnEvents(fromNode, back.toArray(new MatchEvent[0]));
+        }
+    }
+
+    void onReturned(MatchEvent[] events) {
+        for (MatchEvent e : events) {
+            local.resubmit(e);
+        }
+    }
+
+    void onRemotePair(MatchPair pair) {
+        notifier.publishLocal(pair);
+    }
+}
@@ -0,0 +1,43 @@
+package com.match;
+
+/**
+ * 集群通知路由：本地持有的一侧走本节点 Disruptor，远端一侧经 transport 投递给持有该 WebSocket 的节点。
+ * 每个节点只会写自己 registry 中存在的 channel，不存在的一侧静默跳过。
+ */
+public class ClusterNotificationService extends DisruptorNotificationService {
+    private final int nodeId;
+    private final ClusterTransport transport;
+
+    public ClusterNotificationService(int bufferSize, int numConsumers,
+                                      int nodeId, ClusterTransport transport) {
+        super(bufferSize, numConsumers);
+        this.nodeId = nodeId;
+        this.transport = transport;
+    }
+
+    @Override
+    public void submit(MatchPair pair) {
+        // 双方节点推送同一个 matchId
+        pair.assignMatchId();
+        int a = pair.getNodeA();
+        int b = pair.getNodeB();
+        boolean localA = a < 0 || a == nodeId;
+        boolean localB = b < 0 || b == nodeId;
+        if (localA || localB) {
+            publishLocal(pair);
+        }
+        if (!localA) {
+            transport.deliverPair(a, pair);
+        }
+        if (!localB && b != a) {
+            transport.deliverPair(b, pair);
+        }
+    }
+
+    /**
+     * 直接发布到本节点 RingBuffer
+     */
+    public void publishLocal(MatchPair pair) {
+        super.submit(pair);
+    }
+}
@@ -0,0 +1,30 @@
+package com.match;
+
+/**
+ * 集群节点间传输：真实部署下为网络实现，测试与单机演练使用 {@link LoopbackClusterTransport}
+ */
+public interface ClusterTransport {
+
+    void register(ClusterMatchEngine node);
+
+    /**
+     * 将提交转发给分区所有者
+     * @return 所有者是否接受；拒绝或未送达均为 false
+     */
+    boolean forwardSubmit(int targetNode, MatchEvent event);
+
+    /**
+     * 把边界附近的等待者交给右邻节点做跨分区匹配
+     */
+    void sendBoundary(int targetNode, int fromNode, MatchEvent[] events);
+
+    /**
+     * 跨分区匹配后未成功的等待者交还原节点
+     */
+    void returnEvents(int targetNode, MatchEvent[] events);
+
+    /**
+     * 将匹配结果投递给持有玩家 WebSocket 的节点
+     */
+    void deliverPair(int targetNode, MatchPair pair);
+}
@@ -0,0 +1,66 @@
+package com.match;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程绑核（仅 Linux）：通过 /proc/thread-self 取得当前线程 tid，再调用 taskset 设置亲和性。
+ * JDK 没有 sched_setaffinity 接口，依赖缺失或非 Linux 时只记日志，不影响运行。
+ */
+public final class CpuAffinity {
+    private static final Logger log = LoggerFactory.getLogger(CpuAffinity.class);
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * 解析 "0,2,4-7" 形式的 CPU 列表，空串返回空数组
+     */
+    public static int[] parse(String spec) {
+        if (spec == null || spec.isBlank()) return new int[0];
+        List<Integer> cpus = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String p = part.trim();
+            if (p.isEmpty()) continue;
+            int dash = p.indexOf('-');
+            if (dash < 0) {
+                cpus.add(Integer.parseInt(p));
+            } else {
+                int lo = Integer.parseInt(p.substring(0, dash).trim());
+                int hi = Integer.parseInt(p.substring(dash + 1).trim());
+                for (int c = lo; c <= hi; c++) cpus.add(c);
+            }
+        }
+        return cpus.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 把调用线程绑定到指定 CPU
+     * @return 是否成功
+     */
+    public static boolean pinCurrentThread(int cpu) {
+        try {
+            Path self = Path.of("/proc/thread-self");
+            if (!Files.exists(self)) return false;
+            // 形如 "1234/task/1240"
+            String link = Files.readSymbolicLink(self).toString();
+            String tid = link.substring(link.lastIndexOf('/') + 1);
+            Process p = new ProcessBuilder("taskset", "-p", "-c", Integer.toString(cpu), tid)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            boolean ok = p.waitFor(5, TimeUnit.SECONDS) && p.exitValue() == 0;
+            if (!ok) log.warn("failed to pin {} to cpu {}", Thread.currentThread().getName(), cpu);
+            return ok;
+        } catch (Exception e) {
+            log.warn("cpu affinity unavailable ({}), {} stays unpinned", e.toString(), Thread.currentThread().getName());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.match;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按排队深度、周期耗时与匹配时延目标（SLO）自适应调整匹配轮间隔、每桶单轮拉取上限与全局匹配时机：
+ * <ul>
+ *     <li>间隔：队列为空时减半，新到达者更快被处理；刚配成者的等待（EWMA）超过目标时减半，
+ *     低于目标一半时逐步加长，攒更大的批次提高配对质量。下限为 耗时 / dutyCycle，匹配轮不会占满 CPU</li>
+ *     <li>拉取上限：有桶本轮没拉完（积压）时翻倍；一轮耗时超出 间隔 × dutyCycle 时减半，单轮耗时有界</li>
+ *     <li>全局匹配：有人排队且积压不多（开销小），或最久的等待已过目标一半（可能需要跨桶对手）时才执行，
+ *     替代按每秒提交数判断的固定阈值</li>
+ * </ul>
+ * {@link #onBucket} 可由多个 worker 并发调用；{@link #onCycle} 在每轮结束时调用一次，各轮不重叠。
+ */
+public class CycleController {
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final long targetLatencyMs;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final int minBatch;
+    private final int maxBatch;
+    private final double dutyCycle;
+
+    private volatile long intervalMs;
+    private volatile int batchLimit;
+    // 刚配成者等待时长的平滑值，-1 表示尚无样本
+    private volatile double latencyEwmaMs = -1;
+
+    // 本轮累计
+    private final LongAdder backlogBuckets = new LongAdder();
+    private final AtomicLong matchedWaitMaxMs = new AtomicLong(-1);
+
+    public CycleController(long targetLatencyMs, long minIntervalMs, long maxIntervalMs,
+                           int minBatch, int maxBatch, double dutyCycle, long initialIntervalMs) {
+        if (targetLatencyMs <= 0) throw new IllegalArgumentException("targetLatencyMs must be > 0");
+        if (minIntervalMs <= 0 || maxIntervalMs < minIntervalMs) {
+            throw new IllegalArgumentException("need 0 < minIntervalMs <= maxIntervalMs");
+        }
+        if (dutyCycle <= 0 || dutyCycle > 1) throw new IllegalArgumentException("dutyCycle must be in (0, 1]");
+        this.targetLatencyMs = targetLatencyMs;
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.minBatch = Math.max(1, Math.min(minBatch, this.maxBatch));
+        this.dutyCycle = dutyCycle;
+        this.intervalMs = clamp(initialIntervalMs, minIntervalMs, maxIntervalMs);
+        this.batchLimit = this.maxBatch;
+    }
+
+    public static CycleController from(MatchProperties props) {
+        return new CycleController(props.getTargetMatchLatency().toMillis(),
+                props.getMinCycleInterval().toMillis(), props.getMaxCycleInterval().toMillis(),
+                props.getMinDrainBatch(), props.getExpectedLoadPerBucket(), props.getCycleDutyCycle(),
+                props.getCycleInterval().toMillis());
+    }
+
+    public long intervalMs() {
+        return intervalMs;
+    }
+
+    public int batchLimit() {
+        return batchLimit;
+    }
+
+    public double latencyEwmaMs() {
+        return latencyEwmaMs;
+    }
+
+    /**
+     * 单个桶处理完
+     * @param drained          本轮拉取数
+     * @param limit            本轮拉取上限
+     * @param matchedWaitMaxMs 本桶配成者中最长的等待，无配对为 -1
+     */
+    public void onBucket(int drained, int limit, long matchedWaitMaxMs) {
+        if (drained >= limit) backlogBuckets.increment();
+        if (matchedWaitMaxMs >= 0) this.matchedWaitMaxMs.accumulateAndGet(matchedWaitMaxMs, Math::max);
+    }
+
+    /**
+     * 一轮结束，计算下一轮的间隔与拉取上限
+     * @param cycleNanos 本轮耗时
+     * @param pending    本轮结束时的排队数
+     */
+    public synchronized void onCycle(long cycleNanos, long pending) {
+        long waited = matchedWaitMaxMs.getAndSet(-1);
+        boolean backlog = backlogBuckets.sumThenReset() > 0;
+        if (waited >= 0) {
+            double prev = latencyEwmaMs;
+            latencyEwmaMs = prev < 0 ? waited : prev + EWMA_ALPHA * (waited - prev);
+        }
+
+        long cycleMs = cycleNanos / 1_000_000;
+        long interval = intervalMs;
+        double latency = latencyEwmaMs;
+        long next;
+        if (pending == 0 || latency > targetLatencyMs) {
+            next = interval / 2;
+        } else if (latency >= 0 && latency < targetLatencyMs / 2.0) {
+            next = interval + Math.max(1, interval / 4);
+        } else {
+            next = interval;
+        }
+        long floor = Math.max(minIntervalMs, (long) Math.ceil(cycleMs / dutyCycle));
+        intervalMs = clamp(next, Math.min(floor, maxIntervalMs), maxIntervalMs);
+
+        int batch = batchLimit;
+        if (cycleNanos > intervalMs * 1_000_000L * dutyCycle) {
+            batch = Math.max(minBatch, batch / 2);
+        } else if (backlog) {
+            batch = (int) Math.min(maxBatch, batch * 2L);
+        }
+        batchLimit = batch;
+    }
+
+    /**
+     * 定时全局匹配是否值得执行
+     */
+    public boolean shouldRunGlobal(long pending, long oldestWaitMs) {
+        if (pending <= 0) return false;
+        return pending <= minBatch || oldestWaitMs * 2 >= targetLatencyMs;
+    }
+
+    private static long clamp(long v, long lo, long hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    @Override
+    public String toString() {
+        return "CycleController{intervalMs=" + intervalMs + ", batchLimit=" + batchLimit
+                + ", latencyEwmaMs=" + Math.round(latencyEwmaMs) + '}';
+    }
+}
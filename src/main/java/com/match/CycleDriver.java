@@ -0,0 +1,23 @@
+package com.match;
+
+/**
+ * 引擎周期任务（匹配轮、全局匹配、计数窗口、恢复过期）的调度方式：
+ * 生产环境用 {@link ScheduledCycleDriver}，离线回放与测试用 {@link SimulatedCycleDriver} 手动步进
+ */
+public interface CycleDriver {
+
+    void scheduleWithFixedDelay(Runnable task, long initialDelayMs, long delayMs);
+
+    void scheduleAtFixedRate(Runnable task, long initialDelayMs, long periodMs);
+
+    void schedule(Runnable task, long delayMs);
+
+    /**
+     * 任务是否可能并发执行；为 false 时引擎在调用线程上按桶序串行处理一轮，保证结果可复现
+     */
+    default boolean concurrent() {
+        return true;
+    }
+
+    void shutdown();
+}
@@ -6,6 +6,7 @@ import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import jakarta.annotation.Resource;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,12 +14,14 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 事件容器，封装 MatchPair 并提供复用场景
@@ -44,19 +47,40 @@ public class DisruptorNotificationService {
     private  ShardedChannelRegistry registry;
 
     @Getter
-    private final AtomicInteger atomicInteger = new AtomicInteger();
+    private final MatchMetrics metrics;
 
+    // 匹配成功帧编码（池化 ByteBuf + 预编码模板）
+    private final MatchFoundEncoder encoder = new MatchFoundEncoder();
+
+    // 已发起、尚未写完的推送，停机时等其归零
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean drained = new AtomicBoolean();
+
+    public DisruptorNotificationService(int bufferSize, int numConsumers) {
+        this(bufferSize, numConsumers, new MatchMetrics());
+    }
+
+    /**
+     * 不启动 Disruptor，仅供覆写 {@link #submit(MatchPair)} 自行投递的子类（离线回放等）
+     */
+    protected DisruptorNotificationService(MatchMetrics metrics) {
+        this.metrics = metrics;
+        this.executor = null;
+        this.disruptor = null;
+        this.ringBuffer = null;
+    }
 
-    @Getter
-    private final AtomicLong atomicLong = new AtomicLong(0);
     /**
      * 构造并启动 Disruptor
      * @param bufferSize RingBuffer 大小，必须为 2 的次幂
      * @param numConsumers 并行消费线程数
+     * @param metrics 指标汇总，引擎侧也经由此处记录
      */
     public DisruptorNotificationService(
                                        int bufferSize,
-                                       int numConsumers) {
+                                       int numConsumers,
+                                       MatchMetrics metrics) {
+        this.metrics = metrics;
         // 创建线程池
         this.executor = Executors.newFixedThreadPool(
                 numConsumers,
@@ -90,22 +114,20 @@ public class DisruptorNotificationService {
 
         // 启动
         this.ringBuffer = disruptor.start();
-
-        Executors.newScheduledThreadPool(1).
-                scheduleAtFixedRate(() -> {
-                            System.out.printf(" 处理消息数 %d | 总消息数%d%n ",
-                                    atomicLong.get(), atomicInteger.get()
-                            );
-                        },
-                        100, 800, TimeUnit.MILLISECONDS);
     }
 
     /**
      * 发布 MatchPair 到 Disruptor
      */
     public void submit(MatchPair pair) {
-
+        MatchJfrEvents.RingBufferClaim jfr = new MatchJfrEvents.RingBufferClaim();
+        jfr.begin();
         long seq = ringBuffer.next();
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.remaining = ringBuffer.remainingCapacity();
+            jfr.commit();
+        }
         try {
             MatchPairEvent evt = ringBuffer.get(seq);
             evt.setPair(pair);
@@ -114,20 +136,129 @@ public class DisruptorNotificationService {
         }
     }
 
+    /**
+     * RingBuffer 剩余槽位，未启动 Disruptor 时为 -1
+     */
+    public long remainingCapacity() {
+        return ringBuffer == null ? -1 : ringBuffer.remainingCapacity();
+    }
+
+    /**
+     * 推送确认阶段结果（match_confirmed / match_cancelled），不经 RingBuffer
+     */
+    public void notifyStatus(String channelId, String type, long matchId, boolean requeued) {
+        if (registry == null) return;
+        send(channelId, encoder.encodeStatus(type, matchId, requeued))
+                .subscribe(null, err -> log.error("Status notification error", err));
+    }
+
+    /**
+     * 停机收尾时提示仍在排队者重连后重新提交
+     */
+    public void notifyDraining(String channelId, long resumeWithinMs) {
+        if (registry == null) return;
+        send(channelId, encoder.encodeDraining(resumeWithinMs))
+                .subscribe(null, err -> log.error("Draining notification error", err));
+    }
+
     /**
      * 优雅关闭 Disruptor 与线程池
      */
     public void shutdown() {
-        try {
-            disruptor.shutdown(5, TimeUnit.SECONDS);
-        } catch (com.lmax.disruptor.TimeoutException e) {
-            throw new RuntimeException(e);
+        drain(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 在 timeoutMs 内处理完 RingBuffer 中的全部配对并等待已发起的推送写完，然后关闭线程池；
+     * 超时则放弃剩余事件
+     * @return 是否在期限内全部完成
+     */
+    public boolean drain(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean flushed = true;
+        if (disruptor != null && drained.compareAndSet(false, true)) {
+            // 按 gating sequence 判断是否消费完；Disruptor.shutdown 会忽略尚未启动的消费者，可能在处理前就返回
+            while (ringBuffer.remainingCapacity() < ringBuffer.getBufferSize() && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+            long pending = ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
+            if (pending > 0) {
+                log.warn("notification ring not drained within {} ms, {} slots still pending", timeoutMs, pending);
+                flushed = false;
+            }
+            disruptor.halt();
+            executor.shutdown();
+        }
+        while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        if (inFlight.get() > 0) {
+            log.warn("{} notifications still in flight after {} ms", inFlight.get(), timeoutMs);
+            flushed = false;
+        }
+        return flushed;
+    }
+
+    /**
+     * 已发起、尚未写完的推送数
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private static void commitDelivery(MatchJfrEvents.NotificationDelivery jfr, String channelId, ChannelFuture f) {
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.channelId = channelId;
+            jfr.success = f.isSuccess();
+            jfr.commit();
+        }
+    }
+
+    /**
+     * 通知帧写入对应连接；连接不在本节点时释放帧
+     */
+    private Mono<Void> send(String channelId, TextWebSocketFrame frame) {
+        if (channelId == null) {
+            frame.release();
+            return Mono.empty();
+        }
+        inFlight.incrementAndGet();
+        return registry.get(channelId)
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    log.warn("Channel not found for ID: {}", channelId);
+                    frame.release();
+                }))
+                .flatMap(ctx -> Mono.fromCallable(() -> {
+                    MatchJfrEvents.NotificationDelivery jfr = new MatchJfrEvents.NotificationDelivery();
+                    jfr.begin();
+                    ChannelFuture f = ctx.writeAndFlush(frame);
+                    f.syncUninterruptibly(); // The blocking operation is wrapped in fromCallable
+                    commitDelivery(jfr, channelId, f);
+                    return f;
+                    // Blocking operations are transferred to the elastic thread pool
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .doOnError(e -> log.error("Failed to notify channel {}", channelId, e))
+                .doFinally(s -> inFlight.decrementAndGet())
+                .then(); // 忽略结果，仅关注完成信号
+    }
+
+    /**
+     * 一方的通知帧：单人直接写出，组队时同一帧（retainedDuplicate）推送给每个成员
+     */
+    private Mono<Void> sendSide(Party party, String channelId, TextWebSocketFrame frame) {
+        if (party == null) return send(channelId, frame);
+        List<Party.Member> members = party.members();
+        List<Mono<Void>> sends = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            TextWebSocketFrame f = i == members.size() - 1 ? frame : frame.retainedDuplicate();
+            sends.add(send(members.get(i).channelId(), f));
         }
-        executor.shutdown();
+        return Mono.when(sends);
     }
 
     /**
-     * 事件处理器：从 MatchPairEvent 获取 MatchPair，推送通知
+     * 事件处理器：从 MatchPairEvent 获取 MatchPair，编码通知帧并推送双方（组队一方推送全部成员）
      */
     private class MatchPairEventHandler implements EventHandler<MatchPairEvent> {
         @Override
@@ -135,48 +266,12 @@ public class DisruptorNotificationService {
             MatchPair p = event.getPair();
             try {
                 if (p.tryNotify()) {
-                    Mono<Void> sendA = registry.get(p.getChannelA())
-                            .flatMap(ctxA -> {
-                                if (ctxA == null) {
-                                    log.warn("ChannelA not found for ID: {}", p.getChannelA());
-                                    // 返回空Mono表示终止，或执行重定向逻辑
-                                    return Mono.empty(); // 或 return redirectToRetryQueue(pair);
-                                }
-
-                                // 执行写操作并返回结果
-                                return Mono.fromCallable(() -> {
-                                    ChannelFuture fA = ctxA.writeAndFlush(p.getChannelA().getBytes(StandardCharsets.UTF_8));
-                                    fA.syncUninterruptibly(); // The blocking operation is wrapped in fromCallable
-                                    return fA;
-                                    // Blocking operations are transferred to the elastic thread pool
-                                }).subscribeOn(Schedulers.boundedElastic());
-                            })
-                            .doOnError(e -> log.error("Failed to process ChannelA", e))
-                            .then(); // 忽略结果，仅关注完成信号
-
-                    Mono<Void> sendB = registry.get(p.getChannelB())
-                            .flatMap(ctxB -> {
-                                if (ctxB == null) {
-                                    log.warn("ChannelB not found for ID: {}", p.getChannelB());
-                                    // Returning an empty Mono indicates termination, or execution of redirect logic
-                                    return Mono.empty(); // 或 return redirectToRetryQueue(pair);
-                                }
-
-                                // 执行写操作并返回结果
-                                return Mono.fromCallable(() -> {
-                                    ChannelFuture fB = ctxB.writeAndFlush(p.getChannelB().getBytes(StandardCharsets.UTF_8));
-                                    fB.syncUninterruptibly();
-                                    return fB;
-                                }).subscribeOn(Schedulers.boundedElastic());
-                            })
-                            .doOnError(e -> log.error("Failed to process ChannelB", e))
-                            // Ignore the results and focus only on the completion signal
-                            .then();
-
-                    Mono.when(sendA, sendB)
+                    MatchFoundEncoder.Frames frames = encoder.encode(p);
+                    Mono.when(sendSide(p.getPartyA(), p.getChannelA(), frames.forA()),
+                            sendSide(p.getPartyB(), p.getChannelB(), frames.forB()))
                             .subscribe(null, err -> log.error("Notification error", err));
 
-                    atomicLong.addAndGet(2);
+                    metrics.recordNotified(p);
                 }
             } catch (Exception ex) {
                 log.error("Notification error for pair {}", p, ex);
@@ -0,0 +1,62 @@
+package com.match;
+
+/**
+ * 分桶引擎可在线调整的参数，{@link EnhancedMatchEngine#reconfigure(EngineTuning)} 整体替换
+ * @param maxPendingEvents         桶内排队事件上限，≤ 0 不限
+ * @param heapUsageThreshold       堆使用率超过该比例时拒绝新提交，≤ 0 不检测
+ * @param globalMatchIdleThreshold 每秒提交数低于该值时才做定时全局匹配
+ */
+public record EngineTuning(int bucketSize, int maxScore, int expectedLoadPerBucket,
+                           long maxPendingEvents, double heapUsageThreshold,
+                           long cycleIntervalMs, long globalMatchIntervalMs, int globalMatchIdleThreshold) {
+
+    public EngineTuning {
+        if (bucketSize <= 0) throw new IllegalArgumentException("bucketSize must be > 0: " + bucketSize);
+        if (maxScore <= 0) throw new IllegalArgumentException("maxScore must be > 0: " + maxScore);
+        if (expectedLoadPerBucket <= 0) {
+            throw new IllegalArgumentException("expectedLoadPerBucket must be > 0: " + expectedLoadPerBucket);
+        }
+        if (heapUsageThreshold >= 1) {
+            throw new IllegalArgumentException("heapUsageThreshold must be < 1: " + heapUsageThreshold);
+        }
+        if (cycleIntervalMs <= 0) throw new IllegalArgumentException("cycleIntervalMs must be > 0: " + cycleIntervalMs);
+        if (globalMatchIntervalMs <= 0) {
+            throw new IllegalArgumentException("globalMatchIntervalMs must be > 0: " + globalMatchIntervalMs);
+        }
+    }
+
+    public static EngineTuning from(MatchProperties props) {
+        return new EngineTuning(props.getBucketSize(), props.getMaxScore(), props.getExpectedLoadPerBucket(),
+                props.getMaxPendingEvents(), props.getHeapUsageThreshold(),
+                props.getCycleInterval().toMillis(), props.getGlobalMatchInterval().toMillis(),
+                props.getGlobalMatchIdleThreshold());
+    }
+
+    /**
+     * 分桶布局是否与 other 不同（需要重新分桶）
+     */
+    public boolean layoutDiffers(EngineTuning other) {
+        return bucketSize != other.bucketSize || maxScore != other.maxScore
+                || expectedLoadPerBucket != other.expectedLoadPerBucket;
+    }
+
+    /**
+     * 部分更新，为 null 的字段沿用原值（PUT /admin/config 的请求体）
+     */
+    public record Patch(Integer bucketSize, Integer maxScore, Integer expectedLoadPerBucket,
+                        Long maxPendingEvents, Double heapUsageThreshold,
+                        Long cycleIntervalMs, Long globalMatchIntervalMs, Integer globalMatchIdleThreshold) {
+
+        public EngineTuning applyTo(EngineTuning base) {
+            return new EngineTuning(
+                    bucketSize != null ? bucketSize : base.bucketSize(),
+                    maxScore != null ? maxScore : base.maxScore(),
+                    expectedLoadPerBucket != null ? expectedLoadPerBucket : base.expectedLoadPerBucket(),
+                    maxPendingEvents != null ? maxPendingEvents : base.maxPendingEvents(),
+                    heapUsageThreshold != null ? heapUsageThreshold : base.heapUsageThreshold(),
+                    cycleIntervalMs != null ? cycleIntervalMs : base.cycleIntervalMs(),
+                    globalMatchIntervalMs != null ? globalMatchIntervalMs : base.globalMatchIntervalMs(),
+                    globalMatchIdleThreshold != null ? globalMatchIdleThreshold : base.globalMatchIdleThreshold());
+        }
+    }
+}
@@ -12,36 +12,45 @@ import java.lang.invoke.VarHandle;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 /**
  * High-performance matching engine：
  * 1. use Agrona ManyToOneConcurrentArrayQueue
- * 2. Parallelization Reactor Flux.parallel() Dispose of each barrel
+ * 2. Parallelization Reactor Flux.parallel() Dispose of each barrel，或由常驻 {@link BucketWorkers} 按桶区间处理（bucket-workers > 0）
  * 3. queue & Old Gen Threshold detection throttling
  * 4. Scan in place (drainTo) Reduce temporary objects
- * 5. scheduleWithFixedDelay dispatch
+ * 5. 周期任务自行续约，间隔每次从当前参数读取（可替换为 {@link SimulatedCycleDriver} 做确定性回放）
+ * 6. 分桶参数可在线调整：整套桶数组封装为 {@link Layout}，经 volatile 引用原子替换，见 {@link #reconfigure(EngineTuning)}
+ * 7. adaptive-cycle 时由 {@link CycleController} 按匹配时延目标决定间隔、每桶拉取上限与全局匹配时机
  */
-public class EnhancedMatchEngine {
+public class EnhancedMatchEngine implements MatchEngine {
     private static final Logger log = LoggerFactory.getLogger(EnhancedMatchEngine.class);
-    // Buckets and queues
-    private final int bucketSize;
-    private final int numBuckets;
+    // 全局匹配整轮等待被普通轮次占用的桶的上限
+    private static final long GLOBAL_ACQUIRE_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Buckets and queues：当前布局，重新分桶时整体替换；各方法开头读取一次并沿用到结束
+    private volatile Layout layout;
+    private volatile EngineTuning tuning;
+    private final Object reconfigureLock = new Object();
 
-    private final ManyToOneConcurrentArrayQueue<MatchEvent>[] buckets;
-
-    // Pools with notifications
-    private final MatchEvent[][] drainBuffers;
     private final DisruptorNotificationService disruptorNotificationService;
+    private final MatchMetrics metrics;
 
     // bucketStates
-    private final int[] bucketStates;
     private static final VarHandle STATE_HANDLE;
 
     static {
@@ -54,7 +63,10 @@ public class EnhancedMatchEngine {
 
     // Low concurrency processing
     private final AtomicInteger matchCounter = new AtomicInteger(0); // 窗口匹配计数器
-    private static final  int LOW_CONCURRENCY_THRESHOLD = 10; // 低并发阈值
+    // 自适应周期，为 null 时按固定间隔 + matchCounter 阈值
+    private final CycleController controller;
+    // 分数 × 区域二维匹配，为 null 时不区分区域
+    private final RegionGrid regionGrid;
 
     private volatile int globalMatchState = 0;
     private static final VarHandle GLOBAL_HANDLE;
@@ -68,112 +80,822 @@ public class EnhancedMatchEngine {
 
     // 后压 & 内存监控
     private final AtomicLong pendingEvents = new AtomicLong(0);
-    private final long maxPendingEvents;
-    private final double heapUsageThreshold;
+    // 每秒采样一次，避免每次提交都读 MemoryMXBean
+    private volatile boolean heapPressure;
     private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
 
-    // 调度
-    private final ScheduledExecutorService scheduler;
+    // 可选的预写日志
+    private volatile MatchJournal journal;
+
+    // 快照恢复、等待重连的玩家
+    private final ConcurrentHashMap<String, MatchEvent> parked = new ConcurrentHashMap<>();
+
+    // username -> 排队中的事件，去重 / 更新 / 取消
+    private final UserIndex userIndex;
+    private final boolean rejectDuplicates;
+
+    // 调度与时钟
+    private final CycleDriver driver;
+    private final MatchClock clock;
+
+    // 全局匹配每段的桶数
+    private final int globalSegmentBuckets;
+
+    // 常驻分桶 worker 数与绑核，重新分桶时按新桶数重建；0 表示沿用 Flux.parallel
+    private final int bucketWorkers;
+    private final int[] bucketWorkerCpus;
+
+    // 停机收尾中：拒绝新提交，周期调度已停止
+    private volatile boolean draining;
+    private volatile boolean stopped;
+    // 累计发出的配对数
+    private final LongAdder emittedPairs = new LongAdder();
+
+    // 可选的确认阶段，配对在通知前登记
+    private volatile ReadyCheckService readyCheck;
 
-    @SuppressWarnings("unchecked")
     public EnhancedMatchEngine(MatchProperties props,
                                DisruptorNotificationService disruptorNotificationService,
                                ThreadPoolTaskExecutor matchThreadPool
     ) {
-        this.bucketSize = props.getBucketSize();
-        this.numBuckets = (props.getMaxScore() + bucketSize - 1) / bucketSize;
-        this.bucketStates = new int[numBuckets]; // 初始全为 0，表示未占用
-
-//        this.maxPendingEvents = props.getMaxPendingEvents();
-        this.maxPendingEvents = 20000;
-//        this.heapUsageThreshold = props.getHeapUsageThreshold(); // e.g. 0.8 for 80%
-        this.heapUsageThreshold = 0.8; // e.g. 0.8 for 80%
+        this(props, disruptorNotificationService, matchThreadPool, MatchClock.SYSTEM, new ScheduledCycleDriver());
+    }
+
+    @SuppressWarnings("unchecked")
+    public EnhancedMatchEngine(MatchProperties props,
+                               DisruptorNotificationService disruptorNotificationService,
+                               ThreadPoolTaskExecutor matchThreadPool,
+                               MatchClock clock,
+                               CycleDriver driver
+    ) {
+        this.tuning = EngineTuning.from(props);
         this.disruptorNotificationService = disruptorNotificationService;
+        this.metrics = disruptorNotificationService.getMetrics();
+        this.userIndex = new UserIndex(props.getUserIndexShards());
+        this.rejectDuplicates = "reject".equalsIgnoreCase(props.getDuplicatePolicy());
 
+        this.clock = clock;
+        this.driver = driver;
+        this.globalSegmentBuckets = Math.max(2, props.getGlobalSegmentBuckets());
+        this.bucketWorkers = props.getBucketWorkers() > 0 && driver.concurrent() ? props.getBucketWorkers() : 0;
+        this.bucketWorkerCpus = CpuAffinity.parse(props.getBucketWorkerCpus());
+        this.controller = props.isAdaptiveCycle() ? CycleController.from(props) : null;
+        this.regionGrid = RegionGrid.from(props);
         // 初始化 Agrona 队列与预分配 DrainBuffer
-        this.buckets = new ManyToOneConcurrentArrayQueue[numBuckets];
-        this.drainBuffers = new MatchEvent[numBuckets][];
-        for (int i = 0; i < numBuckets; i++) {
-            buckets[i] = new ManyToOneConcurrentArrayQueue<>(props.getExpectedLoadPerBucket());
-            drainBuffers[i] = new MatchEvent[props.getExpectedLoadPerBucket()];
-        }
-
-        this.scheduler = Executors.newScheduledThreadPool(1);
-        // scheduleWithFixedDelay
-        scheduler.scheduleWithFixedDelay(this::runCycle,
-//                props.getInitialDelayMs(), props.getIntervalMs(),
-                500,200,
-                TimeUnit.MILLISECONDS);
-
-        // 调度器每 1s 重置一次：
-        scheduler.scheduleAtFixedRate(() -> {
+        this.layout = newLayout(tuning);
+
+        metrics.setQueueDepthSource(this::bucketDepths);
+        metrics.setOldestWaitSource(this::oldestWaitMs);
+
+        // 匹配轮与全局匹配各自续约，间隔调整后下一次生效
+        scheduleCycle(500);
+
+        // 调度器每 1s 重置一次，顺带采样堆使用率：
+        driver.scheduleAtFixedRate(() -> {
             matchCounter.set(0);
-        }, 1, 1, TimeUnit.SECONDS);
+            double threshold = tuning.heapUsageThreshold();
+            heapPressure = threshold > 0 && isHeapOverThreshold(threshold);
+        }, 1000, 1000);
 
-        scheduler.scheduleWithFixedDelay(() -> {
-            if (matchCounter.get() < LOW_CONCURRENCY_THRESHOLD &&
-                    (int) GLOBAL_HANDLE.getVolatile(this) == 0 &&
-                    GLOBAL_HANDLE.compareAndSet(this, 0, 1)) {
+        scheduleGlobalMatch(1000);
+    }
 
-                try {
-                    doGlobalMatch(); // 全桶匹配
-                } finally {
-                    GLOBAL_HANDLE.setRelease(this, 0);
+    /**
+     * 一套桶：队列、DrainBuffer、占用状态、最早入队时间与常驻 worker 同生共死，重新分桶时整体替换
+     */
+    private static final class Layout {
+        final int bucketSize;
+        final int numBuckets;
+        final ManyToOneConcurrentArrayQueue<MatchEvent>[] buckets;
+        // Pools with notifications
+        final MatchEvent[][] drainBuffers;
+        // 初始全为 0，表示未占用
+        final int[] bucketStates;
+        // 各桶上一轮处理后最早的入队时间，空桶为 Long.MAX_VALUE
+        final AtomicLongArray bucketOldest;
+        // 返还时桶已被新提交占满的等待者，下次拉取该桶时先于队列取出
+        final ConcurrentLinkedQueue<MatchEvent>[] overflow;
+        // 正在向本布局写入的提交者数，替换后降到 0 即可安全迁移
+        final AtomicInteger writers = new AtomicInteger();
+        // 常驻分桶 worker，为 null 时沿用 Flux.parallel
+        BucketWorkers workers;
+
+        @SuppressWarnings("unchecked")
+        Layout(EngineTuning t) {
+            this.bucketSize = t.bucketSize();
+            this.numBuckets = (t.maxScore() + bucketSize - 1) / bucketSize;
+            this.buckets = new ManyToOneConcurrentArrayQueue[numBuckets];
+            this.drainBuffers = new MatchEvent[numBuckets][];
+            this.overflow = new ConcurrentLinkedQueue[numBuckets];
+            for (int i = 0; i < numBuckets; i++) {
+                buckets[i] = new ManyToOneConcurrentArrayQueue<>(t.expectedLoadPerBucket());
+                overflow[i] = new ConcurrentLinkedQueue<>();
+                drainBuffers[i] = new MatchEvent[t.expectedLoadPerBucket()];
+            }
+            this.bucketStates = new int[numBuckets];
+            this.bucketOldest = new AtomicLongArray(numBuckets);
+            for (int i = 0; i < numBuckets; i++) bucketOldest.set(i, Long.MAX_VALUE);
+        }
+
+        int bucketOf(int score) {
+            return Math.max(0, Math.min(numBuckets - 1, (score - 1) / bucketSize));
+        }
+
+        /**
+         * 拉取桶 i 的事件，调用方须占用该桶。有溢出时先取至多一半溢出者再取队列，
+         * 总数超过一批时两边的等待者也能轮换着进入同一批
+         */
+        int drain(int i, MatchEvent[] buf, int max) {
+            ConcurrentLinkedQueue<MatchEvent> o = overflow[i];
+            if (o.isEmpty()) return drainTo(buckets[i], buf, max);
+            int cnt = 0;
+            MatchEvent e;
+            while (cnt < (max + 1) / 2 && (e = o.poll()) != null) {
+                buf[cnt++] = e;
+            }
+            while (cnt < max && (e = buckets[i].poll()) != null) {
+                buf[cnt++] = e;
+            }
+            while (cnt < max && (e = o.poll()) != null) {
+                buf[cnt++] = e;
+            }
+            return cnt;
+        }
+
+        MatchEvent poll(int i) {
+            MatchEvent e = overflow[i].poll();
+            return e != null ? e : buckets[i].poll();
+        }
+
+        /**
+         * 占用桶期间放回等待者：拉取后空出的槽位可能已被新提交占满，此时转入溢出列表，不丢弃
+         */
+        void putBack(int i, MatchEvent e) {
+            if (!buckets[i].offer(e)) overflow[i].add(e);
+        }
+
+        boolean isEmpty(int i) {
+            return buckets[i].isEmpty() && overflow[i].isEmpty();
+        }
+
+        int depth(int i) {
+            ConcurrentLinkedQueue<MatchEvent> o = overflow[i];
+            return buckets[i].size() + (o.isEmpty() ? 0 : o.size());
+        }
+
+        int exclusive(IntSupplier task) {
+            return workers != null ? workers.exclusive(task) : task.getAsInt();
+        }
+    }
+
+    private Layout newLayout(EngineTuning t) {
+        Layout l = new Layout(t);
+        if (bucketWorkers > 0) {
+            l.workers = new BucketWorkers(l.numBuckets, bucketWorkers, bucketWorkerCpus,
+                    b -> processIfFree(l, b), b -> bucketNonEmpty(l, b), metrics, this::onCycleEnd);
+        }
+        return l;
+    }
+
+    private void scheduleCycle(long delayMs) {
+        reschedule(() -> {
+            try {
+                runCycle();
+            } finally {
+                scheduleCycle(cycleIntervalMs());
+            }
+        }, delayMs);
+    }
+
+    private void scheduleGlobalMatch(long delayMs) {
+        reschedule(() -> {
+            try {
+                if (globalMatchWorthwhile()) {
+                    tryGlobalMatch(); // 全桶匹配
                 }
+            } finally {
+                scheduleGlobalMatch(tuning.globalMatchIntervalMs());
             }
-        }, 1, 1, TimeUnit.SECONDS);
+        }, delayMs);
+    }
 
+    private boolean globalMatchWorthwhile() {
+        if (controller != null) return controller.shouldRunGlobal(pendingEvents.get(), oldestWaitMs());
+        return matchCounter.get() < tuning.globalMatchIdleThreshold();
+    }
 
+    /**
+     * 当前匹配轮间隔：自适应时由控制器给出，否则为配置值
+     */
+    public long cycleIntervalMs() {
+        return controller != null ? controller.intervalMs() : tuning.cycleIntervalMs();
+    }
+
+    /**
+     * 每桶单轮拉取上限，未启用自适应时为 -1（拉满 DrainBuffer）
+     */
+    public int drainBatchLimit() {
+        return controller != null ? controller.batchLimit() : -1;
+    }
+
+    private void onCycleEnd(long nanos, int pairs) {
+        if (controller != null) controller.onCycle(nanos, pendingEvents.get());
+    }
+
+    private void reschedule(Runnable task, long delayMs) {
+        if (draining || stopped) return;
+        try {
+            driver.schedule(task, delayMs);
+        } catch (RejectedExecutionException ex) {
+            // 与 stop() 竞争，调度器已关闭
+        }
     }
 
     /**
      * 提交事件，若超出阈值则拒绝
      */
+    @Override
     public boolean submitEvent(String username, int score, int matchRange, String channelId) {
+        return submitEvent(username, score, matchRange, null, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, String channelId) {
+        return submitEvent(username, score, matchRange, mode, 0, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, int region, String channelId) {
+        if (draining) {
+            metrics.recordRejected();
+            return false;
+        }
+        // 快照恢复后的重连：沿用原事件及其桶内位置
+        if (!parked.isEmpty()) {
+            MatchEvent restored = parked.remove(username);
+            if (restored != null && restored.resume(channelId)) {
+                userIndex.claim(username, restored);
+                return true;
+            }
+        }
         MatchEvent e = new MatchEvent();
-        e.init(username, score, matchRange, channelId);
+        e.init(username, score, matchRange, mode, region, channelId);
+        return enqueue(e);
+    }
+
+    /**
+     * 组队提交：以全部成员名原子登记，整队占一个槽位；成员在别人的队伍里排队时拒绝，
+     * 成员自己的单人排队按 duplicatePolicy 作废。不写预写日志 / 快照，重启后需重新组队
+     */
+    @Override
+    public boolean submitParty(Party party, String mode, int region) {
+        if (draining) {
+            metrics.recordRejected();
+            return false;
+        }
+        Party.Member leader = party.leader();
+        MatchEvent e = new MatchEvent();
+        e.init(leader.username(), party.rating(), party.matchRange(), mode, region, leader.channelId());
+        e.setParty(party);
+        return enqueue(e);
+    }
+
+    /**
+     * 后压检查后登记新事件；同一用户仍在排队时按 duplicatePolicy 原地更新或作废重登
+     */
+    private boolean enqueue(MatchEvent e) {
+        long maxPending = tuning.maxPendingEvents();
+        if (heapPressure || (maxPending > 0 && pendingEvents.get() >= maxPending)) {
+            metrics.recordRejected();
+            return false;
+        }
+        String username = e.getUsername();
+        MatchEvent live;
+        while ((live = userIndex.claim(username, e)) != null) {
+            // 同一用户（或某个成员）仍在排队
+            if (rejectDuplicates || !supersedes(e, live)) {
+                metrics.recordRejected();
+                return false;
+            }
+            Layout l = layout;
+            MatchJournal j = journal;
+            // 只有单人之间原地更新，组队与单人互换须重新登记；SUBMIT 在回到 PROCESSING 前写入，先于任何 PAIR
+            if (live.getParty() == null && e.getParty() == null
+                    && l.bucketOf(live.getScore()) == l.bucketOf(e.getScore())
+                    && live.update(e.getScore(), e.getMatchRange(), e.getMode(), e.getRegion(), e.getChannelId(),
+                            j != null ? j::appendSubmit : null)) {
+                return true;
+            }
+            // 换桶或正被匹配：作废旧事件后重新登记
+            if (live.cancel() && j != null) j.appendCancel(live.getUsername());
+        }
+        if (!submit(e)) {
+            userIndex.remove(username, e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 重复提交只能顶替本人的单人排队或本人带的队伍，不能拆散别人带的队伍
+     */
+    private static boolean supersedes(MatchEvent e, MatchEvent live) {
+        Party p = live.getParty();
+        return p == null || p.leader().username().equals(e.getUsername());
+    }
+
+    /**
+     * 取消排队：只改状态，不扫描桶；下一次拉取该桶时丢弃
+     */
+    @Override
+    public boolean cancelEvent(String username, String channelId) {
+        MatchEvent e = userIndex.get(username);
+        if (e == null) {
+            e = parked.get(username);
+            if (e == null) return false;
+        }
+        // 带连接的取消只能作用于本连接登记的事件；日志 / 快照恢复出的事件没有连接，须重连认领后才能取消
+        if (channelId != null && !channelId.equals(e.getChannelId())) {
+            return false;
+        }
+        if (!e.cancel()) return false;
+        userIndex.remove(username, e);
+        parked.remove(username, e);
+        MatchJournal j = journal;
+        if (j != null) j.appendCancel(username);
+        return true;
+    }
+
+    /**
+     * 确认阶段作废后带原入队时间重新排队；期间已重新提交的用户不再重复入队
+     */
+    @Override
+    public boolean requeue(String username, int score, int matchRange, String mode, String channelId, long enqueuedAt) {
+        return requeue(username, score, matchRange, mode, 0, channelId, enqueuedAt);
+    }
+
+    @Override
+    public boolean requeue(String username, int score, int matchRange, String mode, int region,
+                           String channelId, long enqueuedAt) {
+        MatchEvent e = new MatchEvent();
+        e.init(username, score, matchRange, mode, region, channelId);
+        e.setEnqueuedAt(enqueuedAt);
+        if (userIndex.claim(username, e) != null) return true;
+        if (!submit(e)) {
+            userIndex.remove(username, e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按用户名查询排队中（含快照恢复后待认领）的事件，不存在返回 null
+     */
+    public MatchEvent lookup(String username) {
+        MatchEvent e = userIndex.get(username);
+        return e != null ? e : parked.get(username);
+    }
+
+    /**
+     * 清空一个桶：拉出其中全部事件并作废，被普通轮次占用时跳过
+     * @return 作废的事件数
+     */
+    public int drainBucket(int bucket) {
+        Layout l = layout;
+        if (bucket < 0 || bucket >= l.numBuckets) {
+            throw new IllegalArgumentException("bucket out of range: " + bucket);
+        }
+        List<MatchEvent> drained = new ArrayList<>();
+        l.exclusive(() -> drainScoreRange0(l, bucket * l.bucketSize + 1, (bucket + 1) * l.bucketSize, drained));
+        MatchJournal j = journal;
+        int cancelled = 0;
+        for (MatchEvent e : drained) {
+            if (e.cancel()) {
+                cancelled++;
+                if (j != null) j.appendCancel(e.getUsername());
+            }
+        }
+        return cancelled;
+    }
+
+    long clockMillis() {
+        return clock.millis();
+    }
+
+    public int numBuckets() {
+        return layout.numBuckets;
+    }
+
+    /**
+     * 当前生效的参数
+     */
+    public EngineTuning tuning() {
+        return tuning;
+    }
+
+    /**
+     * 桶内排队事件总数
+     */
+    public long pendingEvents() {
+        return pendingEvents.get();
+    }
+
+    /**
+     * 当前索引中的用户数
+     */
+    public int indexedUsers() {
+        return userIndex.size();
+    }
+
+    /**
+     * 登记已构造的事件（集群节点本地提交与转发提交）：与 submitEvent 相同的后压与重复提交处理
+     */
+    public boolean enqueueEvent(MatchEvent e) {
+        if (draining) {
+            metrics.recordRejected();
+            return false;
+        }
+        return enqueue(e);
+    }
+
+    /**
+     * 边界交换后放回本地的等待者：重新登记索引后入桶；期间该用户已重新提交则丢弃
+     * @return 是否重新入桶
+     */
+    public boolean resubmit(MatchEvent e) {
+        String username = e.getUsername();
+        if (userIndex.claim(username, e) != null) return false;
+        if (!submit(e)) {
+            userIndex.remove(username, e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 提交已构造的事件，不登记用户索引（快照恢复等调用方自行管理索引的场景）
+     */
+    public boolean submit(MatchEvent e) {
         e.tryAcquire();
-        int bucket = Math.min(numBuckets - 1, (e.getScore() - 1) / bucketSize);
-        boolean ok = buckets[bucket].offer(e);
+        if (e.getEnqueuedAt() == 0) {
+            e.setEnqueuedAt(clock.millis());
+        }
+        // 先写 SUBMIT 再入桶：入桶后随时可能被 worker 配对，PAIR 不能先于 SUBMIT 进入日志；
+        // 日志写不进（环形缓冲持续满）时拒绝，崩溃恢复不会漏掉已进桶的玩家
+        MatchJournal j = journal;
+        boolean journaled = j != null && e.getParty() == null;
+        if (journaled && !j.appendSubmit(e)) {
+            metrics.recordRejected();
+            return false;
+        }
+        boolean ok = offer(e);
         if (ok) {
-            disruptorNotificationService.getAtomicInteger().incrementAndGet();
+            metrics.recordSubmit();
             pendingEvents.incrementAndGet();
             matchCounter.incrementAndGet();
+        } else {
+            if (journaled) j.appendCancel(e.getUsername());
+            metrics.recordRejected();
         }
         return ok;
     }
 
-    public void doGlobalMatch() {
-        List<MatchEvent> allEvents = new ArrayList<>();
+    /**
+     * 写入当前布局对应的桶。先登记为写者再确认布局未被替换，保证 {@link #reconfigure(EngineTuning)}
+     * 迁移旧布局时不会有迟到的写入
+     */
+    private boolean offer(MatchEvent e) {
+        for (;;) {
+            Layout l = layout;
+            l.writers.incrementAndGet();
+            try {
+                if (layout == l) return l.buckets[l.bucketOf(e.getScore())].offer(e);
+            } finally {
+                l.writers.decrementAndGet();
+            }
+        }
+    }
 
-        // 锁定每个桶
-        for (int i = 0; i < numBuckets; i++) {
-            if ((int) STATE_HANDLE.getVolatile(bucketStates, i) == 0 &&
-                    STATE_HANDLE.compareAndSet(bucketStates, i, 0, 1)) {
+    /**
+     * 拉取分数落在 [lowScore, highScore] 内各桶的全部事件，被占用的桶跳过
+     * @return 拉取数量
+     */
+    public int drainScoreRange(int lowScore, int highScore, List<MatchEvent> out) {
+        Layout l = layout;
+        return l.exclusive(() -> drainScoreRange0(l, lowScore, highScore, out));
+    }
+
+    private int drainScoreRange0(Layout l, int lowScore, int highScore, List<MatchEvent> out) {
+        int from = l.bucketOf(lowScore);
+        int to = l.bucketOf(highScore);
+        int drained = 0;
+        for (int i = from; i <= to; i++) {
+            if (acquireBucket(l, i)) {
                 try {
-                    ManyToOneConcurrentArrayQueue<MatchEvent> q = buckets[i];
                     MatchEvent e;
-                    while ((e = q.poll()) != null) {
-                        allEvents.add(e);
+                    while ((e = l.poll(i)) != null) {
+                        // 交给其他节点，不再由本地索引管理；放回时经 resubmit 重新登记
+                        userIndex.remove(e.getUsername(), e);
+                        out.add(e);
+                        drained++;
                     }
+                    l.bucketOldest.lazySet(i, Long.MAX_VALUE);
                 } finally {
-                    STATE_HANDLE.setRelease(bucketStates, i, 0);
+                    STATE_HANDLE.setRelease(l.bucketStates, i, 0);
+                }
+            }
+        }
+        pendingEvents.addAndGet(-drained);
+        return drained;
+    }
+
+    /**
+     * 逐桶短暂占用并遍历等待者（PROCESSING / PARKED），遍历后按原顺序返还；被占用的桶本轮跳过。
+     * 生产者不受影响，供快照等后台任务使用。
+     */
+    public int visitWaiting(Consumer<MatchEvent> visitor) {
+        Layout l = layout;
+        return l.exclusive(() -> visitWaiting0(l, visitor));
+    }
+
+    private int visitWaiting0(Layout l, Consumer<MatchEvent> visitor) {
+        int visited = 0;
+        for (int i = 0; i < l.numBuckets; i++) {
+            if (l.isEmpty(i)) continue;
+            if (acquireBucket(l, i)) {
+                try {
+                    // 含溢出者可能多于一批，按进入时的深度逐个取出，不受 DrainBuffer 长度限制
+                    List<MatchEvent> drained = new ArrayList<>();
+                    MatchEvent polled;
+                    for (int n = l.depth(i); n > 0 && (polled = l.poll(i)) != null; n--) {
+                        drained.add(polled);
+                    }
+                    for (MatchEvent e : drained) {
+                        if (e.isWaiting()) {
+                            visitor.accept(e);
+                            visited++;
+                            l.putBack(i, e);
+                        } else {
+                            userIndex.remove(e.getUsername(), e);
+                            pendingEvents.decrementAndGet();
+                        }
+                    }
+                } finally {
+                    STATE_HANDLE.setRelease(l.bucketStates, i, 0);
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * 批量恢复快照中的等待者：直接写回各桶，状态为 PARKED，等待同名用户重连后参与匹配
+     */
+    public int restore(List<MatchEvent> events, Duration resumeWindow) {
+        int restored = 0;
+        for (MatchEvent e : events) {
+            if (!e.park()) continue;
+            if (offer(e)) {
+                parked.put(e.getUsername(), e);
+                restored++;
+            }
+        }
+        pendingEvents.addAndGet(restored);
+        // 超过重连窗口仍未认领的，下一轮处理时丢弃
+        driver.schedule(() -> parked.values().removeIf(MatchEvent::expire), resumeWindow.toMillis());
+        return restored;
+    }
+
+    int bucketOf(int score) {
+        return layout.bucketOf(score);
+    }
+
+    /**
+     * 在线调整参数，提交不停顿：
+     * 1. 分桶参数（bucketSize / maxScore / expectedLoadPerBucket）不变时只替换参数，间隔类在下一次调度时生效
+     * 2. 否则新建整套桶并原子替换引用，新提交立即写入新布局；旧布局的常驻 worker 等本轮结束后停止
+     * 3. 逐桶占用旧布局（等进行中的全局匹配 / 快照遍历释放），再等仍在写旧布局的提交者退出
+     * 4. 旧桶中的等待者保持原事件与入队时间，按新 bucketOf 迁入；新桶装不下的进入该桶的溢出列表，不作废
+     * @return 迁移的等待者数，未重新分桶为 -1
+     */
+    public int reconfigure(EngineTuning next) {
+        synchronized (reconfigureLock) {
+            if (draining || stopped) throw new IllegalStateException("engine is stopping");
+            EngineTuning prev = tuning;
+            if (!next.layoutDiffers(prev)) {
+                tuning = next;
+                log.info("engine tuning updated: {}", next);
+                return -1;
+            }
+            Layout old = layout;
+            Layout fresh = newLayout(next);
+            if (old.workers != null) old.workers.close();
+            tuning = next;
+            layout = fresh;
+
+            for (int i = 0; i < old.numBuckets; i++) {
+                while (!STATE_HANDLE.compareAndSet(old.bucketStates, i, 0, 1)) {
+                    Thread.onSpinWait();
+                }
+            }
+            while (old.writers.get() != 0) {
+                Thread.onSpinWait();
+            }
+
+            int migrated = 0;
+            for (int i = 0; i < old.numBuckets; i++) {
+                MatchEvent e;
+                while ((e = old.poll(i)) != null) {
+                    int b = fresh.bucketOf(e.getScore());
+                    if (e.isWaiting()) {
+                        // 新桶容量更小时装不下的等待者进入溢出列表，调参不能让排队的人消失
+                        fresh.putBack(b, e);
+                        fresh.bucketOldest.accumulateAndGet(b, e.getEnqueuedAt(), Math::min);
+                        migrated++;
+                        continue;
+                    }
+                    // 已匹配 / 已取消 / 已过期：出索引
+                    userIndex.remove(e.getUsername(), e);
+                    parked.remove(e.getUsername(), e);
+                    pendingEvents.decrementAndGet();
                 }
             }
+            log.info("rebucketed {} -> {} buckets (size {} -> {}): migrated {}",
+                    old.numBuckets, fresh.numBuckets, prev.bucketSize(), next.bucketSize(), migrated);
+            return migrated;
         }
+    }
 
-        if (!allEvents.isEmpty()) {
-            MatchEvent[] batch = allEvents.toArray(new MatchEvent[0]);
+    /**
+     * 没有其他全局匹配在进行时执行一次
+     * @return 是否执行
+     */
+    public boolean tryGlobalMatch() {
+        if ((int) GLOBAL_HANDLE.getVolatile(this) != 0 || !GLOBAL_HANDLE.compareAndSet(this, 0, 1)) {
+            return false;
+        }
+        try {
+            doGlobalMatch();
+        } finally {
+            GLOBAL_HANDLE.setRelease(this, 0);
+        }
+        return true;
+    }
+
+    /**
+     * 全局匹配，主要补齐跨桶边界的配对，任一时刻只占用一个有界窗口内的桶：
+     * 1. 窗口为相邻两段（2 × globalSegmentBuckets 个相邻桶），逐桶 CAS 占用，匹配后立即释放，再处理下一个窗口；
+     *    不暂停普通轮次与 worker，正被普通轮次处理的桶等它放回再占，整轮等待超过 GLOBAL_ACQUIRE_WAIT_NS 后才在该桶处断开
+     * 2. 桶本身是首尾相接的分数区间，逐桶排序后直接拼接即窗口内有序，不再整体重排
+     * 3. 两批窗口：从第 0 段起每两段一个窗口，再错开一段；同批窗口互不相交，用 fork-join 并行，
+     *    每个段边界都与左右相邻段合并一次，相距不超过一段的两个桶必在同一窗口
+     */
+    public void doGlobalMatch() {
+        Layout l = layout;
+        long deadline = System.nanoTime() + GLOBAL_ACQUIRE_WAIT_NS;
+        int span = 2 * globalSegmentBuckets;
+        matchWindows(l, 0, span, deadline);
+        if (l.numBuckets > span) matchWindows(l, globalSegmentBuckets, span, deadline);
+    }
+
+    /**
+     * 从 first 起每 span 个桶一个窗口，互不相交，可并行
+     */
+    private void matchWindows(Layout l, int first, int span, long deadline) {
+        int windows = (l.numBuckets - first + span - 1) / span;
+        if (windows <= 0) return;
+        if (windows > 1 && driver.concurrent()) {
+            ForkJoinPool.commonPool().invoke(new GlobalWindows(l, first, span, deadline, 0, windows));
+        } else {
+            for (int w = 0; w < windows; w++) matchWindow(l, first + w * span, span, deadline);
+        }
+    }
+
+    /**
+     * 占用窗口 [from, from + span) 内的桶，在占不到的桶处断开，逐段匹配并释放
+     */
+    private void matchWindow(Layout l, int from, int span, long deadline) {
+        int to = Math.min(l.numBuckets, from + span);
+        int runStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && awaitBucket(l, i, deadline)) continue;
+            if (i > runStart) matchRun(l, runStart, i);
+            runStart = i + 1;
+        }
+    }
+
+    /**
+     * 占用桶 i；被占用时让出 CPU 等其释放，过了 deadline 则放弃
+     */
+    private static boolean awaitBucket(Layout l, int i, long deadline) {
+        while (!acquireBucket(l, i)) {
+            if (System.nanoTime() - deadline > 0) return false;
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * 二分拆分同一批的窗口，叶子上逐个窗口占用、匹配、释放
+     */
+    private final class GlobalWindows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Layout l;
+        private final int first;
+        private final int span;
+        private final long deadline;
+        private final int from;
+        private final int to;
+
+        GlobalWindows(Layout l, int first, int span, long deadline, int from, int to) {
+            this.l = l;
+            this.first = first;
+            this.span = span;
+            this.deadline = deadline;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                matchWindow(l, first + from * span, span, deadline);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GlobalWindows(l, first, span, deadline, from, mid),
+                    new GlobalWindows(l, first, span, deadline, mid, to));
+        }
+    }
+
+    /**
+     * worker 处理单个桶：与全局匹配、快照等经 bucketStates 互斥，被占用时本轮跳过
+     */
+    private int processIfFree(Layout l, int bucketId) {
+        if (!acquireBucket(l, bucketId)) return 0;
+        try {
+            return processBucket(l, bucketId);
+        } finally {
+            STATE_HANDLE.setRelease(l.bucketStates, bucketId, 0);
+        }
+    }
+
+    private static boolean acquireBucket(Layout l, int i) {
+        return (int) STATE_HANDLE.getVolatile(l.bucketStates, i) == 0 &&
+                STATE_HANDLE.compareAndSet(l.bucketStates, i, 0, 1);
+    }
+
+    /**
+     * 桶 [from, to) 均已占用：逐桶拉取排序、拼接、匹配、返还，最后释放
+     */
+    private void matchRun(Layout l, int from, int to) {
+        try {
+            List<SortedBatch> parts = new ArrayList<>(to - from);
+            int[] counts = new int[to - from];
+            int total = 0;
+            for (int i = from; i < to; i++) {
+                MatchEvent[] buf = l.drainBuffers[i];
+                int count = l.drain(i, buf, buf.length);
+                counts[i - from] = count;
+                total += count;
+                if (count > 0) parts.add(SortedBatch.of(buf, count));
+            }
+            // 单桶内的配对已由普通轮次完成，至少两个非空桶才有跨桶机会
+            if (parts.size() < 2) {
+                for (int i = from; i < to; i++) {
+                    MatchEvent[] buf = l.drainBuffers[i];
+                    for (int j = 0; j < counts[i - from]; j++) l.putBack(i, buf[j]);
+                }
+                return;
+            }
+            pendingEvents.addAndGet(-total);
+
+            long now = clock.millis();
             List<MatchPair> pairs = new ArrayList<>();
-            VectorizedMatchPipeline.processBatch(batch,  batch.length, pairs);
+            VectorizedMatchPipeline.processSorted(SortedBatch.concat(parts), regionGrid, now, pairs);
             emitPairs(pairs);
 
-            for (MatchEvent e : batch) {
-                if (e.getStateCode() == MatchEvent.PROCESSING) {
-                    // 重新放入原桶
-                    int bucketId = Math.min(numBuckets - 1, (e.getScore() - 1) / bucketSize);
-                    buckets[bucketId].offer(e);
+            for (int i = from; i < to; i++) {
+                MatchEvent[] buf = l.drainBuffers[i];
+                long oldest = Long.MAX_VALUE;
+                for (int j = 0; j < counts[i - from]; j++) {
+                    MatchEvent e = buf[j];
+                    if (e.isWaiting()) {
+                        // 重新放入原桶
+                        l.putBack(i, e);
+                        pendingEvents.incrementAndGet();
+                        oldest = Math.min(oldest, e.getEnqueuedAt());
+                    } else {
+                        userIndex.remove(e.getUsername(), e);
+                        if (e.isMatched()) metrics.recordMatched(e, now);
+                    }
                 }
+                l.bucketOldest.lazySet(i, oldest);
+            }
+        } finally {
+            for (int i = from; i < to; i++) {
+                STATE_HANDLE.setRelease(l.bucketStates, i, 0);
             }
         }
     }
@@ -183,80 +905,234 @@ public class EnhancedMatchEngine {
      * 扫描各桶并行处理一轮
      */
     private void runCycle() {
+        if (!driver.concurrent()) {
+            runCycleSequential();
+            return;
+        }
+        Layout l = layout;
+        if (l.workers != null) {
+            l.workers.startCycle();
+            return;
+        }
+        long start = System.nanoTime();
+        AtomicInteger cyclePairs = new AtomicInteger();
+        MatchJfrEvents.MatchCycle jfr = new MatchJfrEvents.MatchCycle();
+        jfr.begin();
 
-        Flux.range(0, numBuckets)
+        Flux.range(0, l.numBuckets)
                 .parallel()
                 .runOn(Schedulers.parallel())
-                .filter(this::bucketNonEmpty)
+                .filter(bucketId -> bucketNonEmpty(l, bucketId))
                 .doOnNext(bucketId -> {
                     // CAS 原子获取占用权
-                    if ((int) STATE_HANDLE.getVolatile(bucketStates, bucketId) == 0 &&
-                            STATE_HANDLE.compareAndSet(bucketStates, bucketId, 0, 1)) {
+                    if (acquireBucket(l, bucketId)) {
 
                         try {
-                            processBucket(bucketId);
+                            cyclePairs.addAndGet(processBucket(l, bucketId));
                         } finally {
                             // 匹配结束，释放占用
-                            STATE_HANDLE.setRelease(bucketStates, bucketId, 0);
+                            STATE_HANDLE.setRelease(l.bucketStates, bucketId, 0);
                         }
                     }
-                }).sequential().subscribe();
+                }).sequential()
+                .doOnComplete(() -> {
+                    long nanos = System.nanoTime() - start;
+                    metrics.recordCycle(nanos, cyclePairs.get());
+                    onCycleEnd(nanos, cyclePairs.get());
+                    jfr.end();
+                    if (jfr.shouldCommit()) {
+                        jfr.pairs = cyclePairs.get();
+                        jfr.commit();
+                    }
+                })
+                .subscribe();
+    }
+
+    /**
+     * 确定性调度下的一轮：调用线程按桶序串行处理，结果只取决于输入与仿真时钟
+     */
+    private int runCycleSequential() {
+        long start = System.nanoTime();
+        int cyclePairs = 0;
+        Layout l = layout;
+        for (int bucketId = 0; bucketId < l.numBuckets; bucketId++) {
+            if (!bucketNonEmpty(l, bucketId)) continue;
+            if (STATE_HANDLE.compareAndSet(l.bucketStates, bucketId, 0, 1)) {
+                try {
+                    cyclePairs += processBucket(l, bucketId);
+                } finally {
+                    STATE_HANDLE.setRelease(l.bucketStates, bucketId, 0);
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        metrics.recordCycle(nanos, cyclePairs);
+        onCycleEnd(nanos, cyclePairs);
+        return cyclePairs;
     }
 
     /**
      * 判断桶是否有待处理事件
      */
-    private boolean bucketNonEmpty(int bucketId) {
-        return !buckets[bucketId].isEmpty();
+    private static boolean bucketNonEmpty(Layout l, int bucketId) {
+        return !l.isEmpty(bucketId);
     }
 
     /**
      * 对单个桶执行批量匹配、跨桶逻辑
      */
-    private void processBucket(int bucketId) {
+    private int processBucket(Layout l, int bucketId) {
+        MatchJfrEvents.BucketDrain jfr = new MatchJfrEvents.BucketDrain();
+        jfr.begin();
         // 原地扫描批量拉取
-        MatchEvent[] buf = drainBuffers[bucketId];
-        int count = drainTo(buckets[bucketId], buf, buf.length);
-        if (count <= 0) return;
+        MatchEvent[] buf = l.drainBuffers[bucketId];
+        CycleController c = controller;
+        int limit = c != null ? Math.min(buf.length, c.batchLimit()) : buf.length;
+        int count = l.drain(bucketId, buf, limit);
+        if (count <= 0) return 0;
         pendingEvents.addAndGet(-count);
 
         // 同桶匹配
+        long now = clock.millis();
         List<MatchPair> pairs = new ArrayList<>();
-        VectorizedMatchPipeline.processBatch(buf, count, pairs);
+        VectorizedMatchPipeline.processBatch(buf, count, regionGrid, now, pairs);
+        int produced = pairs.size();
         emitPairs(pairs);
 
 
 
         // 未匹配者返还本桶
+        long oldest = Long.MAX_VALUE;
+        long matchedWaitMax = -1;
         for (int i = 0; i < count; i++) {
             MatchEvent me = buf[i];
-            if (me.getStateCode() == MatchEvent.PROCESSING) {
-                buckets[bucketId].offer(me);
+            if (me.isWaiting()) {
+                l.putBack(bucketId, me);
                 pendingEvents.incrementAndGet();
+                oldest = Math.min(oldest, me.getEnqueuedAt());
+            } else {
+                // 已匹配 / 已取消 / 已过期：出索引
+                userIndex.remove(me.getUsername(), me);
+                if (me.isMatched()) {
+                    metrics.recordMatched(me, now);
+                    matchedWaitMax = Math.max(matchedWaitMax, now - me.getEnqueuedAt());
+                }
             }
         }
+        l.bucketOldest.lazySet(bucketId, oldest);
+        if (c != null) c.onBucket(count, limit, matchedWaitMax);
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.bucketId = bucketId;
+            jfr.count = count;
+            jfr.pairs = produced;
+            jfr.commit();
+        }
+        return produced;
+    }
+
+    /**
+     * 各桶当前队列深度（近似值）
+     */
+    public int[] bucketDepths() {
+        Layout l = layout;
+        int[] depths = new int[l.numBuckets];
+        for (int i = 0; i < l.numBuckets; i++) {
+            depths[i] = l.depth(i);
+        }
+        return depths;
+    }
+
+    /**
+     * 仍在排队者中最长的等待（毫秒），以各桶上一轮处理后的状态为准
+     */
+    public long oldestWaitMs() {
+        Layout l = layout;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < l.numBuckets; i++) {
+            oldest = Math.min(oldest, l.bucketOldest.get(i));
+        }
+        return oldest == Long.MAX_VALUE ? 0 : Math.max(0, clock.millis() - oldest);
     }
 
     /**
      * 推送 MatchPair
      */
     private void emitPairs(List<MatchPair> pairs) {
+        MatchJournal j = journal;
         for (MatchPair p : pairs) {
+            // 管线按系统时间创建，统一改为引擎时钟
+            p.setCreatedAt(clock.millis());
+            if (j != null) j.appendPair(p);
+            ReadyCheckService rc = readyCheck;
+            if (rc != null) rc.register(p);
             disruptorNotificationService.submit(p);
         }
+        emittedPairs.add(pairs.size());
         pairs.clear();
     }
 
     /**
      * 检测 Heap 使用率
      */
-    private boolean isHeapOverThreshold() {
+    private boolean isHeapOverThreshold(double heapUsageThreshold) {
         MemoryUsage usage = memoryBean.getHeapMemoryUsage();
-        return usage.getUsed() >= (long)(usage.getMax() * heapUsageThreshold);
+        // 未设置 -Xmx 时 max 为 -1，无从判断
+        return usage.getMax() > 0 && usage.getUsed() >= (long)(usage.getMax() * heapUsageThreshold);
+    }
+
+    public void setJournal(MatchJournal journal) {
+        this.journal = journal;
+    }
+
+    public void setReadyCheck(ReadyCheckService readyCheck) {
+        this.readyCheck = readyCheck;
+    }
+
+    /**
+     * 停机收尾第一步：拒绝新提交，停止周期调度与常驻 worker。已在运行的一轮仍会结束，其占用的桶由后续收尾轮次重试
+     */
+    public void beginDrain() {
+        synchronized (reconfigureLock) {
+            draining = true;
+            driver.shutdown();
+            Layout l = layout;
+            if (l.workers != null) l.workers.close();
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * 在调用线程上执行最后几轮分桶匹配 + 全局匹配，须先 {@link #beginDrain()}
+     * @return 本次收尾产出的配对数
+     */
+    public long finalPasses(int passes) {
+        long before = emittedPairs.sum();
+        for (int i = 0; i < passes; i++) {
+            runCycleSequential();
+            tryGlobalMatch();
+        }
+        return emittedPairs.sum() - before;
     }
 
+    /**
+     * 累计发出的配对数
+     */
+    public long emittedPairs() {
+        return emittedPairs.sum();
+    }
+
+    @Override
     public void stop() {
-        scheduler.shutdown();
+        synchronized (reconfigureLock) {
+            stopped = true;
+            driver.shutdown();
+            Layout l = layout;
+            if (l.workers != null) l.workers.close();
+        }
     }
 
     // 扩展 Agrona 队列：添加 drainTo 方法
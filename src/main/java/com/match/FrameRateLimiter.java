@@ -0,0 +1,101 @@
+package com.match;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 入站 WebSocket 帧限流，放在 {@link WebSocketHandler} 之前，超限的帧不做 UTF-8 / JSON 解码直接释放：
+ * 1. 每连接一个令牌桶，存在 channel attribute 中
+ * 2. 每个 event loop 一个全局令牌桶，存在 FastThreadLocal 中
+ * 两者都只被所属 event loop 线程访问，无锁。rate ≤ 0 表示不限。
+ */
+@ChannelHandler.Sharable
+public class FrameRateLimiter extends ChannelInboundHandlerAdapter {
+
+    private static final AttributeKey<TokenBucket> BUCKET = AttributeKey.valueOf("match.frameBucket");
+
+    private final long channelRate;
+    private final long channelBurst;
+    private final MatchMetrics metrics;
+    private final LongSupplier nanoClock;
+    private final FastThreadLocal<TokenBucket> loopBucket;
+
+    public FrameRateLimiter(MatchProperties props, MatchMetrics metrics) {
+        this(props.getChannelFrameRate(), props.getChannelFrameBurst(),
+                props.getLoopFrameRate(), props.getLoopFrameBurst(), metrics, System::nanoTime);
+    }
+
+    FrameRateLimiter(long channelRate, long channelBurst, long loopRate, long loopBurst,
+                     MatchMetrics metrics, LongSupplier nanoClock) {
+        this.channelRate = channelRate;
+        this.channelBurst = channelBurst;
+        this.metrics = metrics;
+        this.nanoClock = nanoClock;
+        this.loopBucket = new FastThreadLocal<>() {
+            @Override
+            protected TokenBucket initialValue() {
+                return loopRate > 0 ? new TokenBucket(loopRate, loopBurst) : null;
+            }
+        };
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof WebSocketFrame) {
+            long now = nanoClock.getAsLong();
+            TokenBucket own = channelBucket(ctx);
+            if (own != null && !own.tryAcquire(now)) {
+                ReferenceCountUtil.release(msg);
+                metrics.recordDroppedFrame(false);
+                return;
+            }
+            TokenBucket loop = loopBucket.get();
+            if (loop != null && !loop.tryAcquire(now)) {
+                ReferenceCountUtil.release(msg);
+                metrics.recordDroppedFrame(true);
+                return;
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private TokenBucket channelBucket(ChannelHandlerContext ctx) {
+        if (channelRate <= 0) return null;
+        TokenBucket b = ctx.channel().attr(BUCKET).get();
+        if (b == null) {
+            b = new TokenBucket(channelRate, channelBurst);
+            ctx.channel().attr(BUCKET).set(b);
+        }
+        return b;
+    }
+
+    /**
+     * GCRA 形式的令牌桶：只记理论到达时间 tat，每取一个令牌 tat 前进 1/rate，
+     * tat 领先当前时间超过 burst 个令牌的时长即拒绝。单线程使用。
+     */
+    static final class TokenBucket {
+        private final long nanosPerToken;
+        private final long burstNanos;
+        private long tat = Long.MIN_VALUE;
+
+        TokenBucket(long ratePerSecond, long burst) {
+            this.nanosPerToken = Math.max(1, TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            this.burstNanos = nanosPerToken * Math.max(1, burst);
+        }
+
+        boolean tryAcquire(long nowNanos) {
+            long next = (tat == Long.MIN_VALUE || tat - nowNanos < 0 ? nowNanos : tat) + nanosPerToken;
+            if (next - nowNanos > burstNanos) return false;
+            tat = next;
+            return true;
+        }
+    }
+}
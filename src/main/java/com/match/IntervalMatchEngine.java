@@ -0,0 +1,294 @@
+package com.match;
+
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.ManyToOneConcurrentArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于分数区间索引的匹配引擎：
+ * 1. 分数槽 [0, maxScore]，每个槽一个 FIFO 等待队列
+ * 2. 两棵线段树分别维护槽内 score + maxRange（向左可达）与 score - maxRange（向右可达）
+ * 3. 每个到达事件在 O(log maxScore) 内找到最近的、双方 range 均覆盖的等待者，无周期性扫描
+ * 4. 单写者：生产者只写 Agrona 队列，索引只由 matcher 线程修改
+ * 5. 取消只改事件状态，失效等待者在下次命中所在槽时清理
+ */
+public class IntervalMatchEngine implements MatchEngine, Agent {
+    private static final Logger log = LoggerFactory.getLogger(IntervalMatchEngine.class);
+
+    private static final int EMPTY_MAX = Integer.MIN_VALUE;
+    private static final int EMPTY_MIN = Integer.MAX_VALUE;
+    private static final int DRAIN_LIMIT = 4096;
+
+    private final int maxScore;
+    private final int size;          // 叶子数，2 的幂
+    // 线段树：maxReach[leaf] = slot + 槽内最大 range，minReach[leaf] = slot - 槽内最大 range
+    private final int[] maxReach;
+    private final int[] minReach;
+    // 每个槽的 FIFO 等待者，按需创建
+    private final ArrayDeque<MatchEvent>[] waiters;
+
+    // 生产者 -> matcher 线程
+    private final ManyToOneConcurrentArrayQueue<MatchEvent> inbox;
+    private final MatchEvent[] drainBuffer;
+
+    private final DisruptorNotificationService disruptorNotificationService;
+    private final MatchMetrics metrics;
+    private final AtomicLong waitingEvents = new AtomicLong(0);
+    private final UserIndex userIndex;
+    private final boolean rejectDuplicates;
+    private final AgentRunner runner;
+
+    @SuppressWarnings("unchecked")
+    public IntervalMatchEngine(MatchProperties props,
+                               DisruptorNotificationService disruptorNotificationService) {
+        this.maxScore = props.getMaxScore();
+        int leaves = 1;
+        while (leaves < maxScore + 1) leaves <<= 1;
+        this.size = leaves;
+        this.maxReach = new int[size << 1];
+        this.minReach = new int[size << 1];
+        Arrays.fill(maxReach, EMPTY_MAX);
+        Arrays.fill(minReach, EMPTY_MIN);
+        this.waiters = new ArrayDeque[maxScore + 1];
+
+        this.inbox = new ManyToOneConcurrentArrayQueue<>(props.getExpectedLoadPerBucket());
+        this.drainBuffer = new MatchEvent[DRAIN_LIMIT];
+        this.disruptorNotificationService = disruptorNotificationService;
+        this.metrics = disruptorNotificationService.getMetrics();
+        metrics.setQueueDepthSource(() -> new int[]{(int) waitingEvents.get()});
+        this.userIndex = new UserIndex(props.getUserIndexShards());
+        this.rejectDuplicates = "reject".equalsIgnoreCase(props.getDuplicatePolicy());
+
+        this.runner = new AgentRunner(
+                new BackoffIdleStrategy(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1)),
+                ex -> log.error("interval matcher error", ex),
+                null,
+                this);
+        AgentRunner.startOnThread(runner);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String channelId) {
+        return submitEvent(username, score, matchRange, null, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, String channelId) {
+        MatchEvent e = new MatchEvent();
+        e.init(username, score, matchRange, mode, channelId);
+        e.setEnqueuedAt(System.currentTimeMillis());
+        e.tryAcquire();
+        MatchEvent live;
+        while ((live = userIndex.claim(username, e)) != null) {
+            if (rejectDuplicates) {
+                metrics.recordRejected();
+                return false;
+            }
+            // 槽位即分数，无法原地更新：作废旧事件后重新登记
+            live.cancel();
+        }
+        boolean ok = inbox.offer(e);
+        if (ok) {
+            metrics.recordSubmit();
+        } else {
+            userIndex.remove(username, e);
+            metrics.recordRejected();
+        }
+        return ok;
+    }
+
+    @Override
+    public boolean cancelEvent(String username, String channelId) {
+        MatchEvent e = userIndex.get(username);
+        if (e == null) return false;
+        if (channelId != null && e.getChannelId() != null && !channelId.equals(e.getChannelId())) {
+            return false;
+        }
+        if (!e.cancel()) return false;
+        userIndex.remove(username, e);
+        return true;
+    }
+
+    @Override
+    public int doWork() {
+        int count = EnhancedMatchEngine.drainTo(inbox, drainBuffer, drainBuffer.length);
+        if (count == 0) return 0;
+        long start = System.nanoTime();
+        int pairs = 0;
+        for (int i = 0; i < count; i++) {
+            MatchPair pair = match(drainBuffer[i]);
+            drainBuffer[i] = null;
+            if (pair != null) {
+                disruptorNotificationService.submit(pair);
+                pairs++;
+            }
+        }
+        // 无周期扫描，以一次 drain 作为一轮
+        metrics.recordCycle(System.nanoTime() - start, pairs);
+        return count;
+    }
+
+    @Override
+    public String roleName() {
+        return "interval-matcher";
+    }
+
+    @Override
+    public void stop() {
+        runner.close();
+    }
+
+    /**
+     * 当前索引中等待的玩家数
+     */
+    public long waitingCount() {
+        return waitingEvents.get();
+    }
+
+    /**
+     * 对到达事件做一次区间查询：命中则移出等待者并返回 MatchPair，否则入槽等待。
+     * 仅允许 matcher 线程调用。
+     */
+    MatchPair match(MatchEvent e) {
+        // 先占住到达者，查询期间 WebSocket 线程上的取消会等待结果
+        if (!e.claim()) {
+            // 入队前已取消
+            userIndex.remove(e.getUsername(), e);
+            return null;
+        }
+        int s = clamp(e.getScore());
+        int r = Math.max(0, e.getMatchRange());
+
+        MatchEvent candidate;
+        for (;;) {
+            // 左侧 [s - r, s]：需要 slot + range ≥ s
+            int left = findRightmost(1, 0, size - 1, Math.max(0, s - r), s, s);
+            // 右侧 (s, s + r]：需要 slot - range ≤ s
+            int right = s + 1 <= maxScore
+                    ? findLeftmost(1, 0, size - 1, s + 1, Math.min(maxScore, s + r), s)
+                    : -1;
+
+            int slot;
+            if (left < 0) slot = right;
+            else if (right < 0) slot = left;
+            else slot = (s - left) <= (right - s) ? left : right;
+
+            if (slot < 0) {
+                e.releaseClaim();
+                enqueue(s, e);
+                return null;
+            }
+
+            candidate = take(slot, Math.abs(s - slot));
+            if (candidate != null && candidate.markMatched()) break;
+            // 命中的是已取消的等待者：take 已清理并校正叶子，重新查询
+        }
+        e.commitClaim();
+        userIndex.remove(candidate.getUsername(), candidate);
+        userIndex.remove(e.getUsername(), e);
+        long now = System.currentTimeMillis();
+        metrics.recordMatched(candidate, now);
+        metrics.recordMatched(e, now);
+        MatchPair pair = new MatchPair();
+        pair.init(candidate, e);
+        return pair;
+    }
+
+    private void enqueue(int slot, MatchEvent e) {
+        ArrayDeque<MatchEvent> q = waiters[slot];
+        if (q == null) {
+            q = new ArrayDeque<>();
+            waiters[slot] = q;
+        }
+        q.addLast(e);
+        waitingEvents.incrementAndGet();
+        int reach = slot + Math.max(0, e.getMatchRange());
+        if (reach > maxReach[size + slot]) {
+            updateLeaf(slot, Math.max(0, e.getMatchRange()));
+        }
+    }
+
+    /**
+     * 取出槽内第一个 range ≥ distance 的等待者（FIFO 顺序），顺带清理已取消者并按剩余者校正叶子
+     */
+    private MatchEvent take(int slot, int distance) {
+        ArrayDeque<MatchEvent> q = waiters[slot];
+        if (q == null) {
+            updateLeaf(slot, -1);
+            return null;
+        }
+        MatchEvent found = null;
+        int maxRange = -1;
+        for (Iterator<MatchEvent> it = q.iterator(); it.hasNext(); ) {
+            MatchEvent w = it.next();
+            if (!w.isWaiting()) {
+                it.remove();
+                waitingEvents.decrementAndGet();
+                userIndex.remove(w.getUsername(), w);
+                continue;
+            }
+            if (found == null && w.getMatchRange() >= distance) {
+                found = w;
+                it.remove();
+                waitingEvents.decrementAndGet();
+                continue;
+            }
+            maxRange = Math.max(maxRange, w.getMatchRange());
+        }
+        updateLeaf(slot, maxRange);
+        return found;
+    }
+
+    /**
+     * maxRange < 0 表示槽已空
+     */
+    private void updateLeaf(int slot, int maxRange) {
+        int i = size + slot;
+        if (maxRange < 0) {
+            maxReach[i] = EMPTY_MAX;
+            minReach[i] = EMPTY_MIN;
+        } else {
+            maxReach[i] = slot + maxRange;
+            minReach[i] = slot - maxRange;
+        }
+        for (i >>= 1; i >= 1; i >>= 1) {
+            maxReach[i] = Math.max(maxReach[i << 1], maxReach[(i << 1) | 1]);
+            minReach[i] = Math.min(minReach[i << 1], minReach[(i << 1) | 1]);
+        }
+    }
+
+    /**
+     * [lo, hi] 内最靠右的、maxReach ≥ target 的槽
+     */
+    private int findRightmost(int node, int nl, int nr, int lo, int hi, int target) {
+        if (nr < lo || nl > hi || maxReach[node] < target) return -1;
+        if (nl == nr) return nl;
+        int mid = (nl + nr) >>> 1;
+        int res = findRightmost((node << 1) | 1, mid + 1, nr, lo, hi, target);
+        return res >= 0 ? res : findRightmost(node << 1, nl, mid, lo, hi, target);
+    }
+
+    /**
+     * [lo, hi] 内最靠左的、minReach ≤ target 的槽
+     */
+    private int findLeftmost(int node, int nl, int nr, int lo, int hi, int target) {
+        if (nr < lo || nl > hi || minReach[node] > target) return -1;
+        if (nl == nr) return nl;
+        int mid = (nl + nr) >>> 1;
+        int res = findLeftmost(node << 1, nl, mid, lo, hi, target);
+        return res >= 0 ? res : findLeftmost((node << 1) | 1, mid + 1, nr, lo, hi, target);
+    }
+
+    private int clamp(int score) {
+        return Math.max(0, Math.min(maxScore, score));
+    }
+}
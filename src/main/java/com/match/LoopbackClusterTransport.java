@@ -0,0 +1,80 @@
+package com.match;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内回环传输：所有节点在同一 JVM 中，调用直接落到目标节点。
+ * 跨节点的 MatchEvent / MatchPair 一律复制，模拟序列化边界，避免节点间共享状态。
+ */
+public class LoopbackClusterTransport implements ClusterTransport {
+    private final ConcurrentHashMap<Integer, ClusterMatchEngine> nodes = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(ClusterMatchEngine node) {
+        nodes.put(node.getNodeId(), node);
+    }
+
+    @Override
+    public boolean forwardSubmit(int targetNode, MatchEvent event) {
+        return node(targetNode).onForwardedSubmit(copy(event));
+    }
+
+    @Override
+    public void sendBoundary(int targetNode, int fromNode, MatchEvent[] events) {
+        node(targetNode).onBoundary(fromNode, copyAll(events));
+    }
+
+    @Override
+    public void returnEvents(int targetNode, MatchEvent[] events) {
+        node(targetNode).onReturned(copyAll(events));
+    }
+
+    @Override
+    public void deliverPair(int targetNode, MatchPair pair) {
+        MatchPair p = new MatchPair();
+        p.setUserA(pair.getUserA());
+        p.setChannelA(pair.getChannelA());
+        p.setScoreA(pair.getScoreA());
+        p.setRangeA(pair.getRangeA());
+        p.setNodeA(pair.getNodeA());
+        p.setUserB(pair.getUserB());
+        p.setChannelB(pair.getChannelB());
+        p.setScoreB(pair.getScoreB());
+        p.setRangeB(pair.getRangeB());
+        p.setNodeB(pair.getNodeB());
+        p.setModeA(pair.getModeA());
+        p.setModeB(pair.getModeB());
+        p.setEnqueuedAtA(pair.getEnqueuedAtA());
+        p.setEnqueuedAtB(pair.getEnqueuedAtB());
+        p.setRegionA(pair.getRegionA());
+        p.setRegionB(pair.getRegionB());
+        p.setPartyA(pair.getPartyA());
+        p.setPartyB(pair.getPartyB());
+        p.setMatchId(pair.getMatchId());
+        p.setCreatedAt(pair.getCreatedAt());
+        node(targetNode).onRemotePair(p);
+    }
+
+    private ClusterMatchEngine node(int nodeId) {
+        ClusterMatchEngine n = nodes.get(nodeId);
+        if (n == null) throw new IllegalStateException("unknown node " + nodeId);
+        return n;
+    }
+
+    private static MatchEvent copy(MatchEvent e) {
+        MatchEvent c = new MatchEvent();
+        c.init(e.getUsername(), e.getScore(), e.getMatchRange(), e.getMode(), e.getRegion(), e.getChannelId());
+        // Party 为不可变 record，可直接共享
+        c.setParty(e.getParty());
+        // 保留入队时间，跨节点往返不重置等待优先级
+        c.setEnqueuedAt(e.getEnqueuedAt());
+        c.setOriginNode(e.getOriginNode());
+        return c;
+    }
+
+    private static MatchEvent[] copyAll(MatchEvent[] events) {
+        MatchEvent[] out = new MatchEvent[events.length];
+        for (int i = 0; i < events.length; i++) out[i] = copy(events[i]);
+        return out;
+    }
+}
@@ -0,0 +1,196 @@
+package com.match;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * 运维查询 / 操作接口（WebFlux 函数式路由，挂在 /admin 下）：
+ * <ul>
+ *     <li>GET  /admin/stats：各桶深度、排队数、RingBuffer 剩余槽位、周期耗时与等待时长、当前间隔与拉取上限</li>
+ *     <li>GET  /admin/users/{username}：单个用户的排队状态</li>
+ *     <li>POST /admin/buckets/{bucket}/drain：清空一个桶</li>
+ *     <li>POST /admin/global-pass：立即执行一次全局匹配</li>
+ *     <li>GET  /admin/config：当前引擎参数；PUT /admin/config：部分更新，分桶参数变化时在线重新分桶</li>
+ * </ul>
+ * 查询只读原子计数、队列 size 与直方图快照，不占用桶也不进入匹配路径；
+ * 操作类接口复用引擎自身的桶占用 / 全局匹配互斥，放到 boundedElastic 上执行，不阻塞 event loop。
+ * 操作类、参数与用户查询仅分桶引擎支持，其他引擎返回 501。
+ * 会清桶或改参数的接口（drain、global-pass、PUT config）需要鉴权：配置了 match.admin-token 时须带
+ * {@code Authorization: Bearer <token>}，否则 401；未配置时只接受来自本机回环地址的请求，否则 403。
+ */
+@Component
+public class MatchAdminHandler {
+    private static final String BEARER = "Bearer ";
+
+    private final MatchMetrics metrics;
+    private final DisruptorNotificationService notifier;
+    private final ObjectProvider<EnhancedMatchEngine> engine;
+    // 空表示不启用令牌，操作类接口仅限本机
+    private final byte[] adminToken;
+
+    public MatchAdminHandler(MatchMetrics metrics, DisruptorNotificationService notifier,
+                             ObjectProvider<EnhancedMatchEngine> engine, MatchProperties props) {
+        this.metrics = metrics;
+        this.notifier = notifier;
+        this.engine = engine;
+        String token = props.getAdminToken();
+        this.adminToken = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        RouterFunction<ServerResponse> operations = RouterFunctions.route()
+                .POST("/admin/buckets/{bucket}/drain", this::drainBucket)
+                .POST("/admin/global-pass", this::globalPass)
+                .PUT("/admin/config", this::reconfigure)
+                .filter(this::authorize)
+                .build();
+        return RouterFunctions.route()
+                .GET("/admin/stats", this::stats)
+                .GET("/admin/users/{username}", this::user)
+                .GET("/admin/config", this::config)
+                .build()
+                .and(operations);
+    }
+
+    /**
+     * 操作类接口的鉴权：令牌按常量时间比较；未配置令牌时只放行回环地址
+     */
+    private Mono<ServerResponse> authorize(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        if (adminToken.length > 0) {
+            String header = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
+            byte[] given = header != null && header.startsWith(BEARER)
+                    ? header.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            if (!MessageDigest.isEqual(adminToken, given)) {
+                return ServerResponse.status(HttpStatus.UNAUTHORIZED).bodyValue(Map.of("error", "admin token required"));
+            }
+            return next.handle(request);
+        }
+        boolean loopback = request.remoteAddress()
+                .map(InetSocketAddress::getAddress)
+                .map(InetAddress::isLoopbackAddress)
+                .orElse(false);
+        if (!loopback) {
+            return ServerResponse.status(HttpStatus.FORBIDDEN)
+                    .bodyValue(Map.of("error", "set match.admin-token to allow remote admin operations"));
+        }
+        return next.handle(request);
+    }
+
+    public record Stats(long waiting, long pendingEvents, int[] bucketDepths, long ringBufferRemaining,
+                        long submitted, long rejected, long pairs, long notified,
+                        double cycleP99Us, long cycleMaxUs, double pairsPerCycleMean,
+                        double submitToMatchP99Ms, double submitToMatchP999Ms, long oldestWaitMs,
+                        long cycleIntervalMs, int drainBatchLimit) {
+    }
+
+    public record UserStatus(String username, String status, int score, int matchRange, String mode,
+                             int bucket, long enqueuedAt, long waitedMs) {
+    }
+
+    Mono<ServerResponse> stats(ServerRequest request) {
+        EnhancedMatchEngine e = engine.getIfAvailable();
+        int[] depths = metrics.getBucketDepths();
+        long waiting = 0;
+        for (int d : depths) waiting += d;
+        Stats s = new Stats(waiting, e != null ? e.pendingEvents() : waiting, depths, notifier.remainingCapacity(),
+                metrics.getSubmitted(), metrics.getRejected(), metrics.getPairs(), metrics.getNotified(),
+                metrics.getCycleP99Us(), metrics.getCycleMaxUs(), metrics.getPairsPerCycleMean(),
+                metrics.getSubmitToMatchP99Ms(), metrics.getSubmitToMatchP999Ms(), metrics.getOldestWaitMs(),
+                e != null ? e.cycleIntervalMs() : -1, e != null ? e.drainBatchLimit() : -1);
+        return ServerResponse.ok().bodyValue(s);
+    }
+
+    Mono<ServerResponse> user(ServerRequest request) {
+        EnhancedMatchEngine e = engine.getIfAvailable();
+        if (e == null) return notImplemented();
+        String username = request.pathVariable("username");
+        MatchEvent ev = e.lookup(username);
+        if (ev == null) return ServerResponse.notFound().build();
+        long enqueuedAt = ev.getEnqueuedAt();
+        UserStatus s = new UserStatus(username, statusName(ev.getStateCode()), ev.getScore(), ev.getMatchRange(),
+                ev.getMode(), e.bucketOf(ev.getScore()), enqueuedAt,
+                enqueuedAt > 0 ? Math.max(0, e.clockMillis() - enqueuedAt) : 0);
+        return ServerResponse.ok().bodyValue(s);
+    }
+
+    Mono<ServerResponse> drainBucket(ServerRequest request) {
+        EnhancedMatchEngine e = engine.getIfAvailable();
+        if (e == null) return notImplemented();
+        int bucket;
+        try {
+            bucket = Integer.parseInt(request.pathVariable("bucket"));
+        } catch (NumberFormatException ex) {
+            return ServerResponse.badRequest().bodyValue(Map.of("error", "bucket must be an integer"));
+        }
+        if (bucket < 0 || bucket >= e.numBuckets()) {
+            return ServerResponse.badRequest().bodyValue(Map.of("error", "bucket out of range: " + bucket));
+        }
+        return Mono.fromCallable(() -> e.drainBucket(bucket))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(n -> ServerResponse.ok().bodyValue(Map.of("bucket", bucket, "cancelled", n)));
+    }
+
+    Mono<ServerResponse> globalPass(ServerRequest request) {
+        EnhancedMatchEngine e = engine.getIfAvailable();
+        if (e == null) return notImplemented();
+        return Mono.fromCallable(e::tryGlobalMatch)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(ran -> ServerResponse.ok().bodyValue(Map.of("ran", ran)));
+    }
+
+    Mono<ServerResponse> config(ServerRequest request) {
+        EnhancedMatchEngine e = engine.getIfAvailable();
+        if (e == null) return notImplemented();
+        return ServerResponse.ok().bodyValue(e.tuning());
+    }
+
+    /**
+     * 重新分桶要等各桶释放并逐个迁移，放到 boundedElastic 上执行
+     */
+    Mono<ServerResponse> reconfigure(ServerRequest request) {
+        EnhancedMatchEngine e = engine.getIfAvailable();
+        if (e == null) return notImplemented();
+        return request.bodyToMono(EngineTuning.Patch.class)
+                .publishOn(Schedulers.boundedElastic())
+                .map(patch -> {
+                    EngineTuning next = patch.applyTo(e.tuning());
+                    int migrated = e.reconfigure(next);
+                    return Map.<String, Object>of("tuning", next, "migrated", migrated);
+                })
+                .flatMap(body -> ServerResponse.ok().bodyValue(body))
+                .onErrorResume(IllegalArgumentException.class,
+                        ex -> ServerResponse.badRequest().bodyValue(Map.of("error", ex.getMessage())))
+                .onErrorResume(IllegalStateException.class,
+                        ex -> ServerResponse.status(HttpStatus.CONFLICT).bodyValue(Map.of("error", ex.getMessage())));
+    }
+
+    private static Mono<ServerResponse> notImplemented() {
+        return ServerResponse.status(HttpStatus.NOT_IMPLEMENTED)
+                .bodyValue(Map.of("error", "only supported by engine-mode=bucket"));
+    }
+
+    private static String statusName(int code) {
+        return switch (code) {
+            case MatchEvent.INITIAL, MatchEvent.PROCESSING, MatchEvent.UPDATING, MatchEvent.CLAIMED -> "waiting";
+            case MatchEvent.MATCHED, MatchEvent.FINALIZED -> "matched";
+            case MatchEvent.PARKED -> "parked";
+            case MatchEvent.CANCELLED -> "cancelled";
+            default -> "unknown";
+        };
+    }
+}
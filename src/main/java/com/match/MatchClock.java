@@ -0,0 +1,14 @@
+package com.match;
+
+/**
+ * 引擎使用的时钟，生产环境为系统时钟，回放 / 仿真时由 {@link SimulatedCycleDriver} 推进
+ */
+public interface MatchClock {
+
+    MatchClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * 当前时间（毫秒）
+     */
+    long millis();
+}
@@ -0,0 +1,66 @@
+package com.match;
+
+/**
+ * 匹配引擎抽象：WebSocket 层只依赖此接口，具体实现由 match.engine-mode 选择
+ * <ul>
+ *     <li>bucket：{@link EnhancedMatchEngine}，分桶 + 周期性批量扫描</li>
+ *     <li>interval：{@link IntervalMatchEngine}，分数区间索引，提交即匹配</li>
+ *     <li>offheap：{@link OffHeapMatchEngine}，堆外列式等待池，百万级积压几乎不产生 GC 压力</li>
+ *     <li>multi：{@link MatchQueueRegistry}，按 mode 分成多个分桶队列，共享 worker 池与定时线程</li>
+ *     <li>{@link ClusterMatchEngine}：分区集群节点，由 {@link ClusterTransport} 组装</li>
+ * </ul>
+ */
+public interface MatchEngine {
+
+    /**
+     * 提交事件，若超出阈值则拒绝
+     */
+    boolean submitEvent(String username, int score, int matchRange, String channelId);
+
+    /**
+     * 携带匹配模式提交，默认忽略 mode
+     */
+    default boolean submitEvent(String username, int score, int matchRange, String mode, String channelId) {
+        return submitEvent(username, score, matchRange, channelId);
+    }
+
+    /**
+     * 携带区域编码（{@link RegionGrid#code}）提交，默认忽略 region
+     */
+    default boolean submitEvent(String username, int score, int matchRange, String mode, int region, String channelId) {
+        return submitEvent(username, score, matchRange, mode, channelId);
+    }
+
+    /**
+     * 组队提交：整队占一个槽位，以 {@link Party#rating()} 与同人数的队伍匹配；默认不支持
+     */
+    default boolean submitParty(Party party, String mode, int region) {
+        return false;
+    }
+
+    /**
+     * 取消排队，channelId 非空时须与排队事件的连接一致；默认不支持
+     * @return 是否取消成功
+     */
+    default boolean cancelEvent(String username, String channelId) {
+        return false;
+    }
+
+    /**
+     * 确认阶段作废后重新排队，保留原入队时间以维持等待优先级；默认按新提交处理
+     * @return 是否已在队列中
+     */
+    default boolean requeue(String username, int score, int matchRange, String mode, String channelId, long enqueuedAt) {
+        return submitEvent(username, score, matchRange, mode, channelId);
+    }
+
+    /**
+     * 带区域编码重新排队，默认忽略 region
+     */
+    default boolean requeue(String username, int score, int matchRange, String mode, int region,
+                            String channelId, long enqueuedAt) {
+        return requeue(username, score, matchRange, mode, channelId, enqueuedAt);
+    }
+
+    void stop();
+}
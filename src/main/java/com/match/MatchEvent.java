@@ -4,6 +4,7 @@ import lombok.Data;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -34,13 +35,29 @@ public class MatchEvent {
     public static final int PROCESSING     = 1;
     public static final int MATCHED        = 2;
     public static final int FINALIZED      = 3;
+    // 从快照恢复、等待客户端重连，不参与匹配但保留桶内位置
+    public static final int PARKED         = 4;
+    // 客户端主动取消，匹配跳过，下一次拉取时丢弃
+    public static final int CANCELLED      = 5;
+    // 重复提交原地更新中，短暂占位，匹配跳过但仍留在桶内
+    public static final int UPDATING       = 6;
+    // 匹配核认领中，短暂占位：双方都认领成功转 MATCHED，否则回到 PROCESSING
+    public static final int CLAIMED        = 7;
     public static final int MATCHED_FLAG   = 0x0001_0000;
 
     private int score;
     private int matchRange;
     private String username;
     private String channelId;
-
+    private String mode;
+    // 区域编码（{@link RegionGrid}），0 表示不限区域
+    private int region;
+    // 组队排队时的队伍，单人为 null
+    private Party party;
+    // 入队时间（毫秒），快照恢复时保留原值
+    private long enqueuedAt;
+    // 集群模式下持有该玩家 WebSocket 的节点，-1 表示本地
+    private int originNode = -1;
 
 
 
@@ -53,6 +70,16 @@ public class MatchEvent {
         this.channelId    = channelId;
     }
 
+    public void init(String username, int score, int matchRange, String mode, String channelId) {
+        init(username, score, matchRange, channelId);
+        this.mode = mode;
+    }
+
+    public void init(String username, int score, int matchRange, String mode, int region, String channelId) {
+        init(username, score, matchRange, mode, channelId);
+        this.region = region;
+    }
+
     public boolean tryAcquire() {
         int prev;
         do {
@@ -73,6 +100,100 @@ public class MatchEvent {
     }
 
 
+    /**
+     * PROCESSING -> CLAIMED：匹配核先占住锚点，再抢候选；取消与原地更新会等待占位结束
+     */
+    public boolean claim() {
+        return STATE_HANDLE.compareAndSet(this, PROCESSING, CLAIMED);
+    }
+
+    /**
+     * CLAIMED -> MATCHED
+     */
+    public void commitClaim() {
+        STATE_HANDLE.setRelease(this, MATCHED | MATCHED_FLAG);
+    }
+
+    /**
+     * CLAIMED -> PROCESSING：候选已被他人占用或数据已过期，放回等待
+     */
+    public void releaseClaim() {
+        STATE_HANDLE.setRelease(this, PROCESSING);
+    }
+
+    /**
+     * INITIAL -> PARKED，快照恢复时使用
+     */
+    public boolean park() {
+        return STATE_HANDLE.compareAndSet(this, INITIAL, PARKED);
+    }
+
+    /**
+     * 客户端重连：绑定新 channel 并 PARKED -> PROCESSING，保留原桶内位置
+     */
+    public boolean resume(String channelId) {
+        this.channelId = channelId;
+        return STATE_HANDLE.compareAndSet(this, PARKED, PROCESSING);
+    }
+
+    /**
+     * 超过重连窗口：PARKED -> FINALIZED，下一轮不再返还桶
+     */
+    public boolean expire() {
+        return STATE_HANDLE.compareAndSet(this, PARKED, FINALIZED);
+    }
+
+    /**
+     * PROCESSING / PARKED -> CANCELLED；已匹配或已结束返回 false
+     */
+    public boolean cancel() {
+        for (;;) {
+            int prev = (int) STATE_HANDLE.getAcquire(this);
+            int code = prev & STATUS_MASK;
+            if (code == UPDATING || code == CLAIMED) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (code != PROCESSING && code != PARKED) return false;
+            if (STATE_HANDLE.compareAndSet(this, prev, CANCELLED)) return true;
+        }
+    }
+
+    /**
+     * 重复提交：PROCESSING -> UPDATING，改写分数 / 范围 / 连接后回到 PROCESSING，桶内位置不变
+     * @return false 表示已匹配或不在排队中，调用方应另行提交
+     */
+    public boolean update(int score, int matchRange, String mode, String channelId) {
+        return update(score, matchRange, mode, region, channelId);
+    }
+
+    public boolean update(int score, int matchRange, String mode, int region, String channelId) {
+        return update(score, matchRange, mode, region, channelId, null);
+    }
+
+    /**
+     * @param whileUpdating 改写完成、回到 PROCESSING 之前调用（如写预写日志），此时匹配核不会选中本事件
+     */
+    public boolean update(int score, int matchRange, String mode, int region, String channelId,
+                          Consumer<MatchEvent> whileUpdating) {
+        while (!STATE_HANDLE.compareAndSet(this, PROCESSING, UPDATING)) {
+            // 匹配核认领中：等结果出来再决定
+            if (((int) STATE_HANDLE.getAcquire(this) & STATUS_MASK) != CLAIMED) return false;
+            Thread.onSpinWait();
+        }
+        this.score = score;
+        this.matchRange = matchRange;
+        this.mode = mode;
+        this.region = region;
+        this.channelId = channelId;
+        try {
+            if (whileUpdating != null) whileUpdating.accept(this);
+        } finally {
+            STATE_HANDLE.setRelease(this, PROCESSING);
+        }
+        return true;
+    }
+
     // 原子化reset操作
     public MatchEvent reset() {
         STATE_HANDLE.set(this, INITIAL);
@@ -81,9 +202,20 @@ public class MatchEvent {
         this.matchRange = 0;
         this.username = null;
         this.channelId = null;
+        this.mode = null;
+        this.region = 0;
+        this.party = null;
+        this.enqueuedAt = 0;
+        this.originNode = -1;
         return this;
     }
 
+    /** 占用槽位的人数，单人为 1 */
+    public int getPartySize() {
+        Party p = party;
+        return p == null ? 1 : p.size();
+    }
+
     /** 取低16位状态码 */
     public int getStateCode() {
         return ((int) STATE_HANDLE.getAcquire(this) & STATUS_MASK);
@@ -98,4 +230,14 @@ public class MatchEvent {
     public boolean isProcessing() {
         return ((int) STATE_HANDLE.getAcquire(this) & STATUS_MASK) == PROCESSING;
     }
+
+    /** 仍需留在桶中：PROCESSING、PARKED、UPDATING 或 CLAIMED */
+    public boolean isWaiting() {
+        int code = (int) STATE_HANDLE.getAcquire(this) & STATUS_MASK;
+        return code == PROCESSING || code == PARKED || code == UPDATING || code == CLAIMED;
+    }
+
+    public boolean isCancelled() {
+        return ((int) STATE_HANDLE.getAcquire(this) & STATUS_MASK) == CANCELLED;
+    }
 }
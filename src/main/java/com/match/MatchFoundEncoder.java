@@ -0,0 +1,211 @@
+package com.match;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 匹配成功通知帧，直接写入池化 ByteBuf，不经过 JSON 序列化、String 拼接或 byte[]：
+ * <pre>
+ * {"type":"match_found","username":"A","opponent":"B","matchId":"00000000000000a1","players":[{"username":"A","score":1},{"username":"B","score":2}]}
+ * </pre>
+ * 1. 固定片段预先编码为只读模板，按字节拷贝
+ * 2. 从 "matchId" 起的公共部分每对只编码一次，双方帧各自持有一份 retained slice，用 CompositeByteBuf 接在各自前缀后
+ * 3. username 按 JSON 规则转义后以 UTF-8 直接写入
+ * 组队一方在其 players 项中追加 "members":["A","C"]，同一帧推送给该队全部成员。
+ * 另有确认阶段（{@link ReadyCheckService}）的状态帧 {@link #encodeStatus} 与停机提示帧 {@link #encodeDraining}。
+ */
+public final class MatchFoundEncoder {
+
+    private static final ByteBuf HEAD = template("{\"type\":\"match_found\",\"username\":\"");
+    private static final ByteBuf OPPONENT = template("\",\"opponent\":\"");
+    private static final ByteBuf MATCH_ID = template("\",\"matchId\":\"");
+    private static final ByteBuf PLAYERS = template("\",\"players\":[{\"username\":\"");
+    private static final ByteBuf SCORE = template("\",\"score\":");
+    private static final ByteBuf NEXT_PLAYER = template("},{\"username\":\"");
+    private static final ByteBuf TAIL = template("}]}");
+    private static final ByteBuf MEMBERS = template(",\"members\":[\"");
+    private static final ByteBuf MEMBER_SEP = template("\",\"");
+    private static final ByteBuf MEMBERS_END = template("\"]");
+
+    // 确认阶段状态帧：{"type":"match_confirmed","matchId":"…","requeued":false}
+    private static final ByteBuf STATUS_HEAD = template("{\"type\":\"");
+    private static final ByteBuf REQUEUED_TRUE = template("\",\"requeued\":true}");
+    private static final ByteBuf REQUEUED_FALSE = template("\",\"requeued\":false}");
+
+    // 停机收尾提示：{"type":"server_draining","requeue":true,"resumeWithinMs":60000}
+    private static final ByteBuf DRAINING = template("{\"type\":\"server_draining\",\"requeue\":true,\"resumeWithinMs\":");
+    private static final ByteBuf OBJECT_END = template("}");
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteBufAllocator alloc;
+
+    public MatchFoundEncoder() {
+        this(PooledByteBufAllocator.DEFAULT);
+    }
+
+    public MatchFoundEncoder(ByteBufAllocator alloc) {
+        this.alloc = alloc;
+    }
+
+    private static ByteBuf template(String s) {
+        return Unpooled.unreleasableBuffer(
+                Unpooled.directBuffer(s.length()).writeBytes(s.getBytes(StandardCharsets.UTF_8)).asReadOnly());
+    }
+
+    /**
+     * 一对通知帧，调用方负责把两帧各自写出或释放
+     */
+    public record Frames(long matchId, TextWebSocketFrame forA, TextWebSocketFrame forB) {
+        public void release() {
+            forA.release();
+            forB.release();
+        }
+    }
+
+    public Frames encode(MatchPair p) {
+        long id = p.assignMatchId();
+
+        ByteBuf common = alloc.buffer(96 + utf8Max(p.getUserA()) + utf8Max(p.getUserB())
+                + membersMax(p.getPartyA()) + membersMax(p.getPartyB()));
+        put(common, MATCH_ID);
+        writeHex(common, id);
+        put(common, PLAYERS);
+        writeJsonString(common, p.getUserA());
+        put(common, SCORE);
+        writeInt(common, p.getScoreA());
+        writeMembers(common, p.getPartyA());
+        put(common, NEXT_PLAYER);
+        writeJsonString(common, p.getUserB());
+        put(common, SCORE);
+        writeInt(common, p.getScoreB());
+        writeMembers(common, p.getPartyB());
+        put(common, TAIL);
+
+        // A 拿 retained slice，B 接管 common 本身的引用
+        TextWebSocketFrame a = new TextWebSocketFrame(frame(p.getUserA(), p.getUserB(), common.retainedSlice()));
+        TextWebSocketFrame b = new TextWebSocketFrame(frame(p.getUserB(), p.getUserA(), common));
+        return new Frames(id, a, b);
+    }
+
+    /**
+     * 确认阶段结果帧，type 为 match_confirmed / match_cancelled
+     */
+    public TextWebSocketFrame encodeStatus(String type, long matchId, boolean requeued) {
+        ByteBuf buf = alloc.buffer(64 + type.length());
+        put(buf, STATUS_HEAD);
+        writeJsonString(buf, type);
+        put(buf, MATCH_ID);
+        writeHex(buf, matchId);
+        put(buf, requeued ? REQUEUED_TRUE : REQUEUED_FALSE);
+        return new TextWebSocketFrame(buf);
+    }
+
+    /**
+     * 停机收尾时发给仍在排队者：请重连后重新提交；resumeWithinMs > 0 表示在此时长内重连可沿用原排队位置
+     */
+    public TextWebSocketFrame encodeDraining(long resumeWithinMs) {
+        ByteBuf buf = alloc.buffer(80);
+        put(buf, DRAINING);
+        writeLong(buf, resumeWithinMs);
+        put(buf, OBJECT_END);
+        return new TextWebSocketFrame(buf);
+    }
+
+    private CompositeByteBuf frame(String self, String opponent, ByteBuf common) {
+        ByteBuf head = alloc.buffer(48 + utf8Max(self) + utf8Max(opponent));
+        put(head, HEAD);
+        writeJsonString(head, self);
+        put(head, OPPONENT);
+        writeJsonString(head, opponent);
+        return alloc.compositeBuffer(2).addComponents(true, head, common);
+    }
+
+    private static void writeMembers(ByteBuf buf, Party party) {
+        if (party == null) return;
+        put(buf, MEMBERS);
+        List<Party.Member> members = party.members();
+        for (int i = 0; i < members.size(); i++) {
+            if (i > 0) put(buf, MEMBER_SEP);
+            writeJsonString(buf, members.get(i).username());
+        }
+        put(buf, MEMBERS_END);
+    }
+
+    private static int membersMax(Party party) {
+        if (party == null) return 0;
+        int size = 16;
+        for (Party.Member m : party.members()) size += utf8Max(m.username());
+        return size;
+    }
+
+    private static void put(ByteBuf dst, ByteBuf template) {
+        dst.writeBytes(template, template.readerIndex(), template.readableBytes());
+    }
+
+    private static int utf8Max(String s) {
+        return s == null ? 0 : ByteBufUtil.utf8MaxBytes(s) + 8;
+    }
+
+    /**
+     * 写入 JSON 字符串内容（不含引号），只对 " \ 与控制字符转义
+     */
+    static void writeJsonString(ByteBuf buf, String s) {
+        if (s == null) return;
+        int start = 0;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) continue;
+            if (i > start) ByteBufUtil.writeUtf8(buf, s, start, i);
+            buf.writeByte('\\');
+            switch (c) {
+                case '"' -> buf.writeByte('"');
+                case '\\' -> buf.writeByte('\\');
+                case '\n' -> buf.writeByte('n');
+                case '\r' -> buf.writeByte('r');
+                case '\t' -> buf.writeByte('t');
+                default -> {
+                    buf.writeByte('u').writeByte('0').writeByte('0');
+                    buf.writeByte(HEX[c >> 4]).writeByte(HEX[c & 0xF]);
+                }
+            }
+            start = i + 1;
+        }
+        if (start < n) ByteBufUtil.writeUtf8(buf, s, start, n);
+    }
+
+    static void writeInt(ByteBuf buf, int value) {
+        writeLong(buf, value);
+    }
+
+    static void writeLong(ByteBuf buf, long v) {
+        if (v == Long.MIN_VALUE) {
+            buf.writeCharSequence(Long.toString(v), StandardCharsets.US_ASCII);
+            return;
+        }
+        if (v < 0) {
+            buf.writeByte('-');
+            v = -v;
+        }
+        long div = 1;
+        while (v / div >= 10) div *= 10;
+        for (; div > 0; div /= 10) {
+            buf.writeByte('0' + (int) (v / div % 10));
+        }
+    }
+
+    private static void writeHex(ByteBuf buf, long v) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buf.writeByte(HEX[(int) (v >>> shift) & 0xF]);
+        }
+    }
+}
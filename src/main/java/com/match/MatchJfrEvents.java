@@ -0,0 +1,90 @@
+package com.match;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * 匹配与通知热路径的 JFR 事件。
+ * 未开启录制时 shouldCommit() 直接返回 false，事件对象可被逃逸分析消除；
+ * 默认阈值只记录慢操作，值班排查使用 resources/jfr/match-oncall.jfc。
+ */
+public final class MatchJfrEvents {
+
+    private MatchJfrEvents() {
+    }
+
+    @Name("com.match.MatchCycle")
+    @Label("Match Cycle")
+    @Category({"Match", "Engine"})
+    @Description("一轮 runCycle：并行扫描全部非空桶")
+    @StackTrace(false)
+    @Threshold("20 ms")
+    static final class MatchCycle extends Event {
+        @Label("Pairs")
+        int pairs;
+    }
+
+    @Name("com.match.BucketDrain")
+    @Label("Bucket Drain")
+    @Category({"Match", "Engine"})
+    @Description("processBucket：拉取、匹配并返还单个桶")
+    @StackTrace(false)
+    @Threshold("5 ms")
+    static final class BucketDrain extends Event {
+        @Label("Bucket")
+        int bucketId;
+        @Label("Drained")
+        int count;
+        @Label("Pairs")
+        int pairs;
+    }
+
+    @Name("com.match.BatchMatch")
+    @Label("Batch Match")
+    @Category({"Match", "Pipeline"})
+    @Description("VectorizedMatchPipeline.processBatch：排序与向量扫描耗时")
+    @StackTrace(false)
+    @Threshold("5 ms")
+    static final class BatchMatch extends Event {
+        @Label("Batch Size")
+        int n;
+        @Label("Pairs")
+        int pairs;
+        @Label("Sort Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long sortNanos;
+        @Label("Scan Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long scanNanos;
+    }
+
+    @Name("com.match.RingBufferClaim")
+    @Label("Ring Buffer Claim")
+    @Category({"Match", "Notification"})
+    @Description("DisruptorNotificationService.submit 中 ringBuffer.next() 的阻塞时间")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class RingBufferClaim extends Event {
+        @Label("Remaining Slots")
+        long remaining;
+    }
+
+    @Name("com.match.NotificationDelivery")
+    @Label("Notification Delivery")
+    @Category({"Match", "Notification"})
+    @Description("单个玩家的 writeAndFlush 直到完成")
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class NotificationDelivery extends Event {
+        @Label("Channel")
+        String channelId;
+        @Label("Success")
+        boolean success;
+    }
+}
@@ -0,0 +1,241 @@
+package com.match;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 提交 / 取消 / 配对的预写日志：
+ * 1. 生产者把二进制记录写入 Agrona ManyToOneRingBuffer（无锁，仅一次拷贝）
+ * 2. 单写者线程把记录顺序追加到内存映射的分段文件 journal-NNNNNNNN.log
+ * 3. 按 forceInterval 批量 force，分段写满或关闭时强制落盘
+ * 段内格式：int length | int type | payload，length == 0 表示段结束；
+ * 读取与恢复见 {@link MatchJournalReader}。
+ */
+public class MatchJournal implements Agent {
+    private static final Logger log = LoggerFactory.getLogger(MatchJournal.class);
+
+    public static final int SUBMIT = 1;
+    public static final int CANCEL = 2;
+    public static final int PAIR   = 3;
+
+    static final int RECORD_HEADER = 8;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int READ_LIMIT = 1024;
+    // 环形缓冲满时等待写者腾出空间的上限
+    private static final long BACKPRESSURE_NS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long PARK_NS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long forceIntervalNs;
+    private final ManyToOneRingBuffer ringBuffer;
+    private final ThreadLocal<ExpandableArrayBuffer> scratch =
+            ThreadLocal.withInitial(() -> new ExpandableArrayBuffer(256));
+
+    // 以下仅由写者线程访问
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private UnsafeBuffer segment;
+    private int position;
+    private boolean dirty;
+    private long lastForceNs;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AgentRunner runner;
+
+    /**
+     * @param dir          日志目录，已有分段会被清理（恢复应先于构造完成）
+     * @param segmentSize  单段字节数
+     * @param ringCapacity 生产者环形缓冲字节数，取 2 的幂
+     * @param forceIntervalMs 批量 force 间隔
+     * @param carryOver    恢复出的等待者，作为新日志的首批 SUBMIT 直接写入
+     */
+    public MatchJournal(Path dir, int segmentSize, int ringCapacity, long forceIntervalMs,
+                        List<MatchEvent> carryOver) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.forceIntervalNs = TimeUnit.MILLISECONDS.toNanos(forceIntervalMs);
+        int capacity = BitUtil.findNextPositivePowerOfTwo(ringCapacity) + RingBufferDescriptor.TRAILER_LENGTH;
+        this.ringBuffer = new ManyToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity)));
+        try {
+            Files.createDirectories(dir);
+            for (Path old : MatchJournalReader.segments(dir)) {
+                Files.delete(old);
+            }
+            openSegment(0);
+            // 写者线程尚未启动，直接落段
+            for (MatchEvent e : carryOver) {
+                ExpandableArrayBuffer buf = scratch.get();
+                onRecord(SUBMIT, buf, 0, encodeSubmit(buf, e));
+            }
+            mapped.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.lastForceNs = System.nanoTime();
+        this.runner = new AgentRunner(
+                new BackoffIdleStrategy(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1)),
+                ex -> log.error("journal writer error", ex),
+                null,
+                this);
+        AgentRunner.startOnThread(runner);
+    }
+
+    // ========== 生产者侧 ==========
+
+    public boolean appendSubmit(MatchEvent e) {
+        ExpandableArrayBuffer buf = scratch.get();
+        return publish(SUBMIT, buf, encodeSubmit(buf, e));
+    }
+
+    public boolean appendCancel(String username) {
+        ExpandableArrayBuffer buf = scratch.get();
+        int len = 0;
+        buf.putLong(len, System.currentTimeMillis()); len += 8;
+        len += buf.putStringUtf8(len, nonNull(username));
+        return publish(CANCEL, buf, len);
+    }
+
+    public boolean appendPair(MatchPair p) {
+        ExpandableArrayBuffer buf = scratch.get();
+        int len = 0;
+        buf.putLong(len, p.getCreatedAt()); len += 8;
+        len += buf.putStringUtf8(len, nonNull(p.getUserA()));
+        len += buf.putStringUtf8(len, nonNull(p.getUserB()));
+        return publish(PAIR, buf, len);
+    }
+
+    private static int encodeSubmit(MutableDirectBuffer buf, MatchEvent e) {
+        int len = 0;
+        buf.putLong(len, e.getEnqueuedAt()); len += 8;
+        buf.putInt(len, e.getScore()); len += 4;
+        buf.putInt(len, e.getMatchRange()); len += 4;
+        len += buf.putStringUtf8(len, nonNull(e.getUsername()));
+        len += buf.putStringUtf8(len, nonNull(e.getMode()));
+        len += buf.putStringUtf8(len, nonNull(e.getChannelId()));
+        return len;
+    }
+
+    /**
+     * 环形缓冲满时短暂让出，等写者腾出空间；超过 BACKPRESSURE_NS 仍写不进才放弃并计数，
+     * 调用方据返回值决定是否拒绝（SUBMIT 失败时引擎拒绝该提交，不让未落日志的玩家进桶）
+     */
+    private boolean publish(int type, DirectBuffer buf, int len) {
+        if (ringBuffer.write(type, buf, 0, len)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + BACKPRESSURE_NS;
+        do {
+            LockSupport.parkNanos(PARK_NS);
+            if (ringBuffer.write(type, buf, 0, len)) {
+                return true;
+            }
+        } while (System.nanoTime() - deadline < 0);
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // ========== 写者线程 ==========
+
+    @Override
+    public int doWork() throws IOException {
+        int work = ringBuffer.read(this::onRecord, READ_LIMIT);
+        long now = System.nanoTime();
+        if (dirty && now - lastForceNs >= forceIntervalNs) {
+            mapped.force();
+            dirty = false;
+            lastForceNs = now;
+        }
+        return work;
+    }
+
+    @Override
+    public void onClose() {
+        // 排空剩余记录后落盘；read 在缓冲末尾的填充记录处返回 0，须按剩余字节判断是否读完
+        while (ringBuffer.read(this::onRecord, READ_LIMIT) > 0 || ringBuffer.size() > 0) {
+            // drain
+        }
+        try {
+            mapped.force();
+            channel.close();
+        } catch (IOException e) {
+            log.error("journal close failed", e);
+        }
+    }
+
+    @Override
+    public String roleName() {
+        return "match-journal";
+    }
+
+    public void close() {
+        runner.close();
+    }
+
+    private void onRecord(int type, MutableDirectBuffer src, int index, int length) {
+        if (position + RECORD_HEADER + length > segmentSize) {
+            try {
+                mapped.force();
+                channel.close();
+                openSegment(segmentIndex + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        segment.putInt(position + 4, type);
+        segment.putBytes(position + RECORD_HEADER, src, index, length);
+        // 最后写长度，读者以 length != 0 判断记录完整
+        segment.putIntOrdered(position, length);
+        position += RECORD_HEADER + length;
+        dirty = true;
+        written.incrementAndGet();
+    }
+
+    private void openSegment(int index) throws IOException {
+        this.segmentIndex = index;
+        this.channel = FileChannel.open(MatchJournalReader.segmentPath(dir, index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        this.segment = new UnsafeBuffer(mapped);
+        this.position = 0;
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -0,0 +1,134 @@
+package com.match;
+
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 顺序读取 {@link MatchJournal} 分段，重放出崩溃前仍在等待的玩家
+ */
+public class MatchJournalReader {
+
+    /**
+     * 记录回调，字符串为空串时回传 null
+     */
+    public interface Listener {
+        default void onSubmit(long enqueuedAt, int score, int matchRange,
+                              String username, String mode, String channelId) {}
+
+        default void onCancel(long timestamp, String username) {}
+
+        default void onPair(long createdAt, String userA, String userB) {}
+    }
+
+    private final Path dir;
+
+    public MatchJournalReader(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 按段序重放全部记录
+     * @return 记录数
+     */
+    public long replay(Listener listener) throws IOException {
+        long records = 0;
+        for (Path file : segments(dir)) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                UnsafeBuffer buf = new UnsafeBuffer(mapped);
+                int pos = 0;
+                while (pos + MatchJournal.RECORD_HEADER <= buf.capacity()) {
+                    int length = buf.getIntVolatile(pos);
+                    if (length <= 0) break;
+                    int type = buf.getInt(pos + 4);
+                    decode(buf, type, pos + MatchJournal.RECORD_HEADER, listener);
+                    pos += MatchJournal.RECORD_HEADER + length;
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 重建崩溃前仍在排队的玩家：按提交顺序，去掉已配对与已取消者，同名以最后一次提交为准
+     */
+    public List<MatchEvent> recoverWaiting() throws IOException {
+        Map<String, MatchEvent> waiting = new LinkedHashMap<>();
+        replay(new Listener() {
+            @Override
+            public void onSubmit(long enqueuedAt, int score, int matchRange,
+                                 String username, String mode, String channelId) {
+                MatchEvent e = new MatchEvent();
+                e.init(username, score, matchRange, mode, null);
+                e.setEnqueuedAt(enqueuedAt);
+                waiting.put(username, e);
+            }
+
+            @Override
+            public void onCancel(long timestamp, String username) {
+                waiting.remove(username);
+            }
+
+            @Override
+            public void onPair(long createdAt, String userA, String userB) {
+                waiting.remove(userA);
+                waiting.remove(userB);
+            }
+        });
+        return new ArrayList<>(waiting.values());
+    }
+
+    private static void decode(UnsafeBuffer buf, int type, int offset, Listener listener) {
+        int p = offset;
+        long ts = buf.getLong(p); p += 8;
+        switch (type) {
+            case MatchJournal.SUBMIT -> {
+                int score = buf.getInt(p); p += 4;
+                int range = buf.getInt(p); p += 4;
+                String username = buf.getStringUtf8(p); p += 4 + buf.getInt(p);
+                String mode = buf.getStringUtf8(p); p += 4 + buf.getInt(p);
+                String channelId = buf.getStringUtf8(p);
+                listener.onSubmit(ts, score, range, nullIfEmpty(username), nullIfEmpty(mode), nullIfEmpty(channelId));
+            }
+            case MatchJournal.CANCEL -> listener.onCancel(ts, nullIfEmpty(buf.getStringUtf8(p)));
+            case MatchJournal.PAIR -> {
+                String userA = buf.getStringUtf8(p); p += 4 + buf.getInt(p);
+                String userB = buf.getStringUtf8(p);
+                listener.onPair(ts, nullIfEmpty(userA), nullIfEmpty(userB));
+            }
+            default -> { /* 未知类型跳过 */ }
+        }
+    }
+
+    static Path segmentPath(Path dir, int index) {
+        return dir.resolve(String.format("%s%08d%s", MatchJournal.SEGMENT_PREFIX, index, MatchJournal.SEGMENT_SUFFIX));
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                        String name = f.getFileName().toString();
+                        return name.startsWith(MatchJournal.SEGMENT_PREFIX) && name.endsWith(MatchJournal.SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String nullIfEmpty(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+}
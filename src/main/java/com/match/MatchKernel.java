@@ -0,0 +1,76 @@
+package com.match;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 批量匹配的扫描策略，由 {@link VectorizedMatchPipeline} 在启动时选定：
+ * <ul>
+ *     <li>{@link VectorMatchKernel}：Vector API，按平台首选或配置的位宽</li>
+ *     <li>{@link ScalarMatchKernel}：纯标量，未加载 jdk.incubator.vector 时自动启用</li>
+ * </ul>
+ * 两者对同一输入必须产生完全相同的配对（顺序与成员）。
+ */
+public interface MatchKernel {
+
+    /** {@link #claimPair} 的结果 */
+    int PAIRED = 0;
+    int ANCHOR_LOST = 1;
+    int CANDIDATE_LOST = 2;
+
+    String name();
+
+    /**
+     * 同批匹配：每个 PROCESSING 的 i 与其后第一个满足双方 range 且 CAS 成功的 j 配对
+     */
+    void match(SortedBatch batch, List<MatchPair> pairs);
+
+    /**
+     * 公平模式：按 order 给出的批内位置（通常由等待最久者开始）依次作为锚点，
+     * 在 [score - range, score + range] 内找第一个满足对方 range 且 CAS 成功的候选配对
+     */
+    void matchByAge(SortedBatch batch, int[] order, List<MatchPair> pairs);
+
+    /**
+     * 跨批匹配：A 中每个 PROCESSING 的 i 与 B 中第一个满足双方 range 的 j 尝试配对
+     */
+    void matchCross(SortedBatch a, SortedBatch b, List<MatchPair> pairs);
+
+    /**
+     * 列式扫描（{@link OffHeapWaitingPool}）：在 [from, to) 中找第一个 states[j] == liveState 且 scores[j] - score ≤ ranges[j] 的 j。
+     * 三列均为本机字节序的 int 列，调用方保证 scores 升序且 [from, to) 内 scores[j] - score ∈ [0, 本方 range]。
+     * @return 下标，无则 -1
+     */
+    int firstCandidate(ByteBuffer scores, ByteBuffer ranges, ByteBuffer states,
+                       int from, int to, int score, int liveState);
+
+    /**
+     * 两段式认领：先占锚点 a，再占候选 j，双方都占到且列数据未被原地改写才配对；
+     * 任一步失败都释放已占的一方。取消 / 更新在 WebSocket 线程上并发进行，不会出现只标记一方
+     * @return {@link #PAIRED}；{@link #ANCHOR_LOST} 锚点已不可配，换下一个锚点；{@link #CANDIDATE_LOST} 继续找候选
+     */
+    static int claimPair(SortedBatch ab, int a, SortedBatch bb, int j, List<MatchPair> pairs) {
+        MatchEvent ei = ab.event(a);
+        if (!ei.claim()) return ANCHOR_LOST;
+        if (!ab.current(a)) {
+            ei.releaseClaim();
+            return ANCHOR_LOST;
+        }
+        MatchEvent ej = bb.event(j);
+        if (!ej.claim()) {
+            ei.releaseClaim();
+            return CANDIDATE_LOST;
+        }
+        if (!bb.current(j)) {
+            ej.releaseClaim();
+            ei.releaseClaim();
+            return CANDIDATE_LOST;
+        }
+        ej.commitClaim();
+        ei.commitClaim();
+        MatchPair pair = new MatchPair();
+        pair.init(ej, ei);
+        pairs.add(pair);
+        return PAIRED;
+    }
+}
@@ -0,0 +1,323 @@
+package com.match;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 匹配系统指标：
+ * 1. 计数用 LongAdder，多生产者无竞争
+ * 2. 延迟用 HdrHistogram Recorder，记录无锁，按区间翻转后供读取
+ * 3. 通过 Micrometer（actuator）与 JMX 暴露，替代原先的 printf 报告
+ */
+public class MatchMetrics implements MeterBinder, MatchMetricsMXBean {
+    private static final Logger log = LoggerFactory.getLogger(MatchMetrics.class);
+    private static final String OBJECT_NAME = "com.match:type=MatchMetrics";
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder pairs = new LongAdder();
+    private final LongAdder notified = new LongAdder();
+    // 入站限流丢弃的帧：连接级 / event loop 级
+    private final LongAdder droppedByChannel = new LongAdder();
+    private final LongAdder droppedByLoop = new LongAdder();
+    // 确认阶段结果：确认 / 拒绝 / 超时
+    public static final int READY_CONFIRMED = 0;
+    public static final int READY_DECLINED = 1;
+    public static final int READY_TIMEOUT = 2;
+    private static final String[] READY_OUTCOMES = {"confirmed", "declined", "timeout"};
+    private final LongAdder[] readyChecks = {new LongAdder(), new LongAdder(), new LongAdder()};
+
+    // 提交 -> 匹配（毫秒，排队时间量级）
+    private final Recorder submitToMatchMs = new Recorder(TimeUnit.MINUTES.toMillis(30), 3);
+    // 匹配 -> 通知（微秒）
+    private final Recorder matchToNotifyUs = new Recorder(TimeUnit.SECONDS.toMicros(60), 3);
+    // 一轮 runCycle 耗时（微秒）
+    private final Recorder cycleUs = new Recorder(TimeUnit.SECONDS.toMicros(60), 3);
+    // 每轮产出的 pair 数
+    private final Recorder pairsPerCycle = new Recorder(10_000_000, 2);
+
+    // 最近一个区间的直方图，翻转时整体替换，读者无需加锁
+    private volatile Histogram lastSubmitToMatch = submitToMatchMs.getIntervalHistogram();
+    private volatile Histogram lastMatchToNotify = matchToNotifyUs.getIntervalHistogram();
+    private volatile Histogram lastCycle = cycleUs.getIntervalHistogram();
+    private volatile Histogram lastPairsPerCycle = pairsPerCycle.getIntervalHistogram();
+
+    private volatile Supplier<int[]> queueDepthSource = () -> new int[0];
+    // 仍在排队者中最长的等待（毫秒）；只看已匹配的直方图会漏掉一直配不上的人
+    private volatile LongSupplier oldestWaitSource = () -> 0;
+
+    // 启动耗时（自 JVM 启动的毫秒数）：端口就绪 / 首个配对推送，-1 表示尚未发生
+    private volatile long readyUptimeMs = -1;
+    private volatile long firstMatchUptimeMs = -1;
+    private volatile long firstMatchTargetMs = 0;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "match-metrics");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 按固定区间翻转直方图
+     */
+    public void start(Duration interval) {
+        long ms = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::rollInterval, ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (Exception e) {
+            log.warn("unregister {} failed", OBJECT_NAME, e);
+        }
+    }
+
+    public void registerMBean() {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) server.registerMBean(this, name);
+        } catch (Exception e) {
+            log.warn("register {} failed", OBJECT_NAME, e);
+        }
+    }
+
+    public void rollInterval() {
+        lastSubmitToMatch = submitToMatchMs.getIntervalHistogram();
+        lastMatchToNotify = matchToNotifyUs.getIntervalHistogram();
+        lastCycle = cycleUs.getIntervalHistogram();
+        lastPairsPerCycle = pairsPerCycle.getIntervalHistogram();
+    }
+
+    public void setQueueDepthSource(Supplier<int[]> queueDepthSource) {
+        this.queueDepthSource = queueDepthSource;
+    }
+
+    public void setOldestWaitSource(LongSupplier oldestWaitSource) {
+        this.oldestWaitSource = oldestWaitSource;
+    }
+
+    // ========== 记录 ==========
+
+    public void recordSubmit() {
+        submitted.increment();
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    public void recordDroppedFrame(boolean byLoop) {
+        (byLoop ? droppedByLoop : droppedByChannel).increment();
+    }
+
+    public void recordReadyCheck(int outcome) {
+        readyChecks[outcome].increment();
+    }
+
+    public long getReadyChecks(int outcome) {
+        return readyChecks[outcome].sum();
+    }
+
+    /**
+     * 已匹配事件的排队时长
+     */
+    public void recordMatched(MatchEvent e, long nowMs) {
+        recordMatched(e.getEnqueuedAt(), nowMs);
+    }
+
+    public void recordMatched(long enqueuedAt, long nowMs) {
+        if (enqueuedAt > 0) {
+            submitToMatchMs.recordValue(clamp(nowMs - enqueuedAt, TimeUnit.MINUTES.toMillis(30)));
+        }
+    }
+
+    public void setFirstMatchTarget(Duration target) {
+        this.firstMatchTargetMs = target.toMillis();
+    }
+
+    /**
+     * WebSocket 端口已绑定
+     */
+    public void recordReady() {
+        readyUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("match server ready {} ms after JVM start", readyUptimeMs);
+    }
+
+    public void recordNotified(MatchPair p) {
+        if (firstMatchUptimeMs < 0) recordFirstMatch();
+        notified.add(2);
+        long created = p.getCreatedNanos();
+        if (created > 0) {
+            matchToNotifyUs.recordValue(clamp(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - created),
+                    TimeUnit.SECONDS.toMicros(60)));
+        }
+    }
+
+    public void recordCycle(long durationNanos, int pairCount) {
+        pairs.add(pairCount);
+        cycleUs.recordValue(clamp(TimeUnit.NANOSECONDS.toMicros(durationNanos), TimeUnit.SECONDS.toMicros(60)));
+        pairsPerCycle.recordValue(clamp(pairCount, 10_000_000));
+    }
+
+    private synchronized void recordFirstMatch() {
+        if (firstMatchUptimeMs >= 0) return;
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        firstMatchUptimeMs = uptime;
+        long target = firstMatchTargetMs;
+        if (target > 0 && uptime > target) {
+            log.warn("first match notified {} ms after JVM start, target {} ms", uptime, target);
+        } else {
+            log.info("first match notified {} ms after JVM start", uptime);
+        }
+    }
+
+    private static long clamp(long v, long max) {
+        return Math.max(0, Math.min(max, v));
+    }
+
+    // ========== Micrometer ==========
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("match.submitted", submitted, LongAdder::sum).register(registry);
+        FunctionCounter.builder("match.rejected", rejected, LongAdder::sum).register(registry);
+        FunctionCounter.builder("match.pairs", pairs, LongAdder::sum).register(registry);
+        FunctionCounter.builder("match.notified", notified, LongAdder::sum).register(registry);
+        FunctionCounter.builder("match.frames.dropped", droppedByChannel, LongAdder::sum).tag("limit", "channel").register(registry);
+        FunctionCounter.builder("match.frames.dropped", droppedByLoop, LongAdder::sum).tag("limit", "loop").register(registry);
+        for (int i = 0; i < READY_OUTCOMES.length; i++) {
+            FunctionCounter.builder("match.ready_check", readyChecks[i], LongAdder::sum).tag("outcome", READY_OUTCOMES[i]).register(registry);
+        }
+
+        bindHistogram(registry, "match.submit_to_match", "milliseconds", () -> lastSubmitToMatch);
+        bindHistogram(registry, "match.match_to_notify", "microseconds", () -> lastMatchToNotify);
+        bindHistogram(registry, "match.cycle.duration", "microseconds", () -> lastCycle);
+        Gauge.builder("match.cycle.pairs.mean", this, MatchMetrics::getPairsPerCycleMean).register(registry);
+
+        Gauge.builder("match.startup.ready", this, MatchMetrics::getReadyUptimeMs).baseUnit("milliseconds").register(registry);
+        Gauge.builder("match.startup.first_match", this, MatchMetrics::getFirstMatchUptimeMs).baseUnit("milliseconds").register(registry);
+
+        Gauge.builder("match.queue.waiting", this, MatchMetrics::getWaiting).register(registry);
+        Gauge.builder("match.queue.oldest_wait", this, MatchMetrics::getOldestWaitMs).baseUnit("milliseconds").register(registry);
+        Gauge.builder("match.queue.depth.max", this, m -> {
+            int max = 0;
+            for (int d : m.getBucketDepths()) max = Math.max(max, d);
+            return max;
+        }).register(registry);
+    }
+
+    private void bindHistogram(MeterRegistry registry, String name, String unit, Supplier<Histogram> h) {
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            Gauge.builder(name, h, s -> s.get().getValueAtPercentile(q * 100))
+                    .tag("quantile", String.valueOf(q))
+                    .baseUnit(unit)
+                    .register(registry);
+        }
+        Gauge.builder(name + ".max", h, s -> s.get().getMaxValue()).baseUnit(unit).register(registry);
+    }
+
+    // ========== JMX ==========
+
+    @Override
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getPairs() {
+        return pairs.sum();
+    }
+
+    @Override
+    public long getNotified() {
+        return notified.sum();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedByChannel.sum() + droppedByLoop.sum();
+    }
+
+    @Override
+    public double getSubmitToMatchP99Ms() {
+        return lastSubmitToMatch.getValueAtPercentile(99);
+    }
+
+    @Override
+    public double getSubmitToMatchP999Ms() {
+        return lastSubmitToMatch.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getOldestWaitMs() {
+        return oldestWaitSource.getAsLong();
+    }
+
+    @Override
+    public double getMatchToNotifyP99Us() {
+        return lastMatchToNotify.getValueAtPercentile(99);
+    }
+
+    @Override
+    public double getCycleP99Us() {
+        return lastCycle.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getCycleMaxUs() {
+        return lastCycle.getMaxValue();
+    }
+
+    @Override
+    public double getPairsPerCycleMean() {
+        return lastPairsPerCycle.getMean();
+    }
+
+    @Override
+    public long getReadyUptimeMs() {
+        return readyUptimeMs;
+    }
+
+    @Override
+    public long getFirstMatchUptimeMs() {
+        return firstMatchUptimeMs;
+    }
+
+    @Override
+    public long getWaiting() {
+        long total = 0;
+        for (int d : getBucketDepths()) total += d;
+        return total;
+    }
+
+    @Override
+    public int[] getBucketDepths() {
+        return queueDepthSource.get();
+    }
+}
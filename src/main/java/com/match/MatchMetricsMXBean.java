@@ -0,0 +1,41 @@
+package com.match;
+
+/**
+ * JMX 视图：com.match:type=MatchMetrics，延迟取最近一个统计区间
+ */
+public interface MatchMetricsMXBean {
+
+    long getSubmitted();
+
+    long getRejected();
+
+    long getPairs();
+
+    long getNotified();
+
+    long getDroppedFrames();
+
+    double getSubmitToMatchP99Ms();
+
+    double getSubmitToMatchP999Ms();
+
+    long getOldestWaitMs();
+
+    double getMatchToNotifyP99Us();
+
+    double getCycleP99Us();
+
+    long getCycleMaxUs();
+
+    double getPairsPerCycleMean();
+
+    /** JVM 启动到 WebSocket 端口就绪的毫秒数，-1 表示尚未就绪 */
+    long getReadyUptimeMs();
+
+    /** JVM 启动到首个配对推送的毫秒数，-1 表示尚无配对 */
+    long getFirstMatchUptimeMs();
+
+    long getWaiting();
+
+    int[] getBucketDepths();
+}
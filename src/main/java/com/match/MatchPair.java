@@ -5,6 +5,7 @@ import lombok.Data;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 匹配成功对子对象，存储一对 MatchEvent 的关键信息，并维护通知状态机
@@ -15,10 +16,15 @@ public class MatchPair {
     private volatile long state;
     private long padA, padB, padC, padD, padE, padF, padG;
     private volatile long createdAt;
+    // 单调时钟，用于匹配 -> 通知延迟
+    private volatile long createdNanos;
     private long pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
 
 
+    // 进程内递增，以启动时刻为高位，重启后不易与旧 id 重复
+    private static final AtomicLong MATCH_IDS = new AtomicLong(System.currentTimeMillis() << 20);
+
     private static final VarHandle STATE_HANDLE;
     static {
         try {
@@ -49,6 +55,25 @@ public class MatchPair {
     private volatile int    scoreB;
     private volatile int    rangeB;
 
+    // 集群模式下双方 WebSocket 所在节点，-1 表示本地
+    private volatile int    nodeA = -1;
+    private volatile int    nodeB = -1;
+
+    // 确认阶段超时 / 拒绝后重新排队所需：模式与原始入队时间（保持等待优先级）
+    private volatile String modeA;
+    private volatile String modeB;
+    private volatile long   enqueuedAtA;
+    private volatile long   enqueuedAtB;
+    // 区域编码，重新排队时沿用
+    private volatile int    regionA;
+    private volatile int    regionB;
+    // 组队一方的队伍，单人为 null；通知推送给全部成员
+    private volatile Party  partyA;
+    private volatile Party  partyB;
+
+    // 引擎发出时分配，0 表示未分配（由通知编码器补发）
+    private volatile long   matchId;
+
 
     // 手动填充避免伪共享（假设缓存行64字节）
 
@@ -64,7 +89,19 @@ public class MatchPair {
         this.scoreB = 0;
         this.rangeA = 0;
         this.rangeB = 0;
+        this.nodeA = -1;
+        this.nodeB = -1;
+        this.modeA = null;
+        this.modeB = null;
+        this.enqueuedAtA = 0;
+        this.enqueuedAtB = 0;
+        this.regionA = 0;
+        this.regionB = 0;
+        this.partyA = null;
+        this.partyB = null;
+        this.matchId = 0;
         this.createdAt = 0;
+        this.createdNanos = 0;
         return this;
     }
 
@@ -82,7 +119,47 @@ public class MatchPair {
         this.scoreB = mb.getScore();
         this.rangeA = ma.getMatchRange();
         this.rangeB = mb.getMatchRange();
+        this.nodeA = ma.getOriginNode();
+        this.nodeB = mb.getOriginNode();
+        this.modeA = ma.getMode();
+        this.modeB = mb.getMode();
+        this.enqueuedAtA = ma.getEnqueuedAt();
+        this.enqueuedAtB = mb.getEnqueuedAt();
+        this.regionA = ma.getRegion();
+        this.regionB = mb.getRegion();
+        this.partyA = ma.getParty();
+        this.partyB = mb.getParty();
+        this.createdAt = System.currentTimeMillis();
+        this.createdNanos = System.nanoTime();
+    }
+
+    /**
+     * 不经 MatchEvent 构造（堆外等待池），双方均为本地连接
+     */
+    public void init(String userA, String channelA, int scoreA, int rangeA,
+                     String userB, String channelB, int scoreB, int rangeB) {
+        this.userA = userA;
+        this.userB = userB;
+        this.channelA = channelA;
+        this.channelB = channelB;
+        this.scoreA = scoreA;
+        this.scoreB = scoreB;
+        this.rangeA = rangeA;
+        this.rangeB = rangeB;
         this.createdAt = System.currentTimeMillis();
+        this.createdNanos = System.nanoTime();
+    }
+
+    /**
+     * 尚未分配则分配 matchId
+     */
+    public long assignMatchId() {
+        long id = matchId;
+        if (id == 0) {
+            id = MATCH_IDS.incrementAndGet();
+            matchId = id;
+        }
+        return id;
     }
 
     /**
@@ -162,7 +239,11 @@ public class MatchPair {
 
 
     public boolean isTimeout() {
-        return System.currentTimeMillis() - createdAt > 500;
+        return isTimeout(System.currentTimeMillis());
+    }
+
+    public boolean isTimeout(long nowMillis) {
+        return nowMillis - createdAt > 500;
     }
 
 }
@@ -5,6 +5,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 @ConfigurationProperties(prefix = "match")
@@ -13,6 +17,211 @@ public class MatchProperties {
     private int bucketSize = 10;
     private int maxScore = 100;
     private int expectedLoadPerBucket = 50000;
+    /***
+     * @Description bucket 模式：桶内排队事件上限，超出拒绝新提交；≤ 0 不限
+     */
+    private long maxPendingEvents = 0;
+    /***
+     * @Description bucket 模式：堆使用率超过该比例时拒绝新提交（每秒采样），≤ 0 不检测
+     */
+    private double heapUsageThreshold = 0;
+    /***
+     * @Description bucket / offheap 模式：匹配轮间隔
+     */
+    private Duration cycleInterval = Duration.ofMillis(200);
+    /***
+     * @Description bucket 模式：定时全局匹配间隔，仅在每秒提交数低于 globalMatchIdleThreshold 时执行
+     */
+    private Duration globalMatchInterval = Duration.ofSeconds(1);
+    private int globalMatchIdleThreshold = 10;
+    /***
+     * @Description bucket 模式：按匹配时延目标自适应调整匹配轮间隔（cycleInterval 为初始值）、每桶单轮拉取上限与全局匹配时机，
+     * 开启后 globalMatchIdleThreshold 不再使用
+     */
+    private boolean adaptiveCycle = false;
+    private Duration targetMatchLatency = Duration.ofSeconds(1);
+    private Duration minCycleInterval = Duration.ofMillis(20);
+    private Duration maxCycleInterval = Duration.ofSeconds(1);
+    /***
+     * @Description 自适应模式下每桶单轮拉取上限的下界，上界为 expectedLoadPerBucket
+     */
+    private int minDrainBatch = 256;
+    /***
+     * @Description 匹配轮耗时占间隔的上限比例
+     */
+    private double cycleDutyCycle = 0.5;
+
+    /***
+     * @Description 引擎模式：bucket（分桶周期扫描）| interval（分数区间索引，提交即匹配）| offheap（堆外列式等待池）
+     */
+    private String engineMode = "bucket";
+
+    /***
+     * @Description multi 模式：按 mode 划分的队列，各自一个分桶引擎，共享 worker 池、定时线程与通知 Disruptor；
+     * 未知 mode 进入名为 default 的队列，未配置则拒绝
+     */
+    private Map<String, QueueSpec> queues = new LinkedHashMap<>();
+    /***
+     * @Description multi 模式：共享 worker 线程数，≤ 0 取 CPU 核数
+     */
+    private int queueWorkers = 0;
+    /***
+     * @Description multi 模式：队列未指定 expected-waiting / expected-load-per-bucket 时预计的同时排队人数，
+     * 桶容量按它平摊到各桶，而不是每个队列都按全局 expectedLoadPerBucket 预分配
+     */
+    private int queueExpectedWaiting = 50000;
+
+    /***
+     * @Description offheap 模式：等待池行数上限，每行 24 字节
+     */
+    private int offHeapCapacity = 1 << 20;
+    /***
+     * @Description offheap 模式：两轮归并之间可暂存的新到达者数，写满即提前归并
+     */
+    private int offHeapStagingCapacity = 1 << 16;
+    /***
+     * @Description offheap 模式：提交环形缓冲字节数，取 2 的幂
+     */
+    private int offHeapInboxCapacity = 1 << 22;
+
+    /***
+     * @Description bucket 模式：常驻分桶 worker 线程数，每个 worker 固定负责一段连续的桶；0 表示每轮用 Flux.parallel
+     */
+    private int bucketWorkers = 0;
+    /***
+     * @Description worker 依次绑定的 CPU，如 "2-5" 或 "2,4,6"，为空不绑核（仅 Linux，需要 taskset）
+     */
+    private String bucketWorkerCpus = "";
+
+    /***
+     * @Description 全局匹配每段包含的相邻桶数：相邻两段为一个窗口，逐窗口占用、匹配、释放，不相交的窗口并行；跨桶配对的可达距离为一段
+     */
+    private int globalSegmentBuckets = 16;
+
+    /***
+     * @Description 批量匹配实现：auto（有 Vector API 则向量化，否则标量）| vector | scalar
+     */
+    private String kernel = "auto";
+    /***
+     * @Description 向量位宽：0 为平台首选（AVX-512 上 512，NEON 上 128），也可指定 128 / 256 / 512
+     */
+    private int vectorBits = 0;
+
+    /***
+     * @Description 批内匹配顺序：score（按分数从低到高贪心）| age（等待最久者先挑对手，压低排队时间尾部）
+     */
+    private String matchOrder = "score";
+
+    /***
+     * @Description bucket 模式：区域列表，非空时按 分数段 × 区域 二维匹配，玩家以 region 或各区域 ping 中最低者归区；
+     * 未知区域的玩家与任何区域兼容
+     */
+    private List<String> regions = new ArrayList<>();
+    /***
+     * @Description 等待超过该时长后放宽区域限制，可与任意区域的玩家配对；≤ 0 不放宽
+     */
+    private Duration regionRelaxAfter = Duration.ofSeconds(10);
+
+    /***
+     * @Description 组队人数上限（含队长），超出拒绝；≤ 1 不接受组队
+     */
+    private int maxPartySize = 5;
+
+    /***
+     * @Description 启动预热：WebSocket 绑定端口前用合成批次跑匹配管线，至 warmupRounds 轮或 warmupBudget 用尽（fast-startup profile 开启）
+     */
+    private boolean warmupEnabled = false;
+    private int warmupRounds = 400;
+    private Duration warmupBudget = Duration.ofSeconds(3);
+    private int warmupBatchSize = 2048;
+    /***
+     * @Description 启动到首个配对推送（自 JVM 启动计）的目标，超出时告警；≤ 0 不检查
+     */
+    private Duration firstMatchTarget = Duration.ofSeconds(10);
+    /***
+     * @Description 端口绑定后立即退出，用于 -XX:ArchiveClassesAtExit 生成 CDS 归档的训练运行
+     */
+    private boolean exitAfterStartup = false;
+
+    /***
+     * @Description 每连接入站帧速率（帧/秒）与突发容量，超出的帧在解码前丢弃；rate ≤ 0 不限
+     */
+    private int channelFrameRate = 20;
+    private int channelFrameBurst = 40;
+    /***
+     * @Description 每个 Netty event loop 的入站帧总速率与突发容量，防止大量连接合力压垮单个 loop；rate ≤ 0 不限
+     */
+    private int loopFrameRate = 200_000;
+    private int loopFrameBurst = 20_000;
+
+    /***
+     * @Description 匹配后是否要求双方在 readyCheckWindow 内 accept；拒绝 / 超时后未拒绝 / 已接受的一方带原入队时间重新排队
+     */
+    private boolean readyCheckEnabled = false;
+    private Duration readyCheckWindow = Duration.ofSeconds(10);
+    /***
+     * @Description 确认超时时间轮的格宽与格数（取 2 的幂）
+     */
+    private Duration readyCheckTick = Duration.ofMillis(100);
+    private int readyCheckWheelSize = 512;
+
+    /***
+     * @Description 同一用户仍在排队时重复提交的处理：update（原地更新分数 / 范围）| reject（拒绝）
+     */
+    private String duplicatePolicy = "update";
+    /***
+     * @Description username 索引分片数，取 2 的幂
+     */
+    private int userIndexShards = 64;
+
+    /***
+     * @Description 集群模式下相邻分区做跨界匹配的分数窗口
+     */
+    private int clusterBoundaryWindow = 100;
+
+    /***
+     * @Description 等待玩家快照文件（内存映射），为空则不启用
+     */
+    private String snapshotPath;
+    /***
+     * @Description 快照周期
+     */
+    private Duration snapshotInterval = Duration.ofSeconds(1);
+    /***
+     * @Description 恢复后等待客户端重连认领原排队位置的时长
+     */
+    private Duration snapshotResumeWindow = Duration.ofSeconds(60);
+
+    /***
+     * @Description 预写日志目录，为空则不启用；启用时启动恢复以日志为准
+     */
+    private String journalPath;
+    /***
+     * @Description 单个日志分段字节数
+     */
+    private int journalSegmentSize = 64 * 1024 * 1024;
+    /***
+     * @Description 生产者环形缓冲字节数
+     */
+    private int journalRingCapacity = 1 << 20;
+    /***
+     * @Description 批量 force 间隔
+     */
+    private Duration journalForceInterval = Duration.ofMillis(50);
+
+    /***
+     * @Description 停机收尾总时限：收尾匹配、快照、推送与清空通知队列都须在此时间内完成
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(20);
+    /***
+     * @Description 停机时最后执行的分桶 + 全局匹配轮数
+     */
+    private int shutdownFinalPasses = 2;
+
+    /***
+     * @Description 延迟直方图统计区间
+     */
+    private Duration metricsInterval = Duration.ofSeconds(5);
 
     private int maxRetries = 3;
     private Duration initialBackoff = Duration.ofMillis(100);
@@ -38,4 +247,28 @@ public class MatchProperties {
      * @Description 接收器缓冲区大小
      */
     private int sinkBufferSize = 1000;
+
+    /***
+     * @Description 运维接口中清桶、全局匹配、改参数所需的 Bearer 令牌；为空时这些接口只接受本机回环地址的请求
+     */
+    private String adminToken = "";
+
+    /***
+     * @Description multi 模式下单个队列的配置，为空的字段沿用全局 match.*
+     */
+    @Data
+    public static class QueueSpec {
+        /***
+         * @Description 加权公平调度的权重，争用时按比例分得 worker 时间
+         */
+        private int weight = 1;
+        private Integer bucketSize;
+        private Integer maxScore;
+        private Integer expectedLoadPerBucket;
+        /***
+         * @Description 本队列预计的同时排队人数，未指定 expectedLoadPerBucket 时据此确定桶容量
+         */
+        private Integer expectedWaiting;
+        private Duration cycleInterval;
+    }
 }
@@ -0,0 +1,466 @@
+package com.match;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * 单进程托管多个相互独立的分桶队列（按游戏 / 区域 / 模式划分），engine-mode=multi 时作为 {@link MatchEngine}：
+ * 1. 提交按 mode 路由到同名队列，未知 mode 进入 default 队列，未配置 default 则拒绝
+ * 2. 每个队列是一个轻量 {@link EnhancedMatchEngine}，自身不建线程：周期任务经 {@link Queue} 这个 CycleDriver
+ *    交给共享的定时线程，到期后进入就绪堆，由共享 worker 池执行；同一队列的任务串行，不会同时占用两个 worker
+ * 3. 加权公平：队列每执行一次任务，虚拟时间增加 耗时 / weight，worker 总是先取虚拟时间最小的就绪队列；
+ *    空闲后重新就绪的队列从当前虚拟时间起算，不能攒下额度
+ * 4. 所有队列共用同一个通知 Disruptor 与 MatchMetrics，队列深度指标为各队列的排队数
+ * 5. 用户名在注册表层面登记：同一用户同时只在一个队列中排队，换 mode 按 duplicatePolicy 作废旧队列中的排队或拒绝
+ */
+public class MatchQueueRegistry implements MatchEngine {
+    private static final Logger log = LoggerFactory.getLogger(MatchQueueRegistry.class);
+    public static final String DEFAULT_QUEUE = "default";
+
+    private final MatchProperties base;
+    private final DisruptorNotificationService notifier;
+    private final MatchMetrics metrics;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+    private final LongSupplier ticker;
+
+    private final Map<String, Queue> queues = new ConcurrentHashMap<>();
+    // 就绪堆与各队列的任务列表、虚拟时间均由 ready 保护
+    private final PriorityQueue<Queue> ready = new PriorityQueue<>(
+            Comparator.comparingLong((Queue q) -> q.vtime).thenComparingInt(q -> q.seq));
+    private long virtualTime;
+    private final AtomicInteger seq = new AtomicInteger();
+    private volatile boolean stopped;
+
+    // 按用户名分段加锁，跨队列的查重与提交在同一把锁内完成
+    private static final int CLAIM_STRIPES = 64;
+    private final Object[] claimLocks = new Object[CLAIM_STRIPES];
+    private final boolean rejectDuplicates;
+
+    public MatchQueueRegistry(MatchProperties props, DisruptorNotificationService notifier) {
+        this(props, notifier,
+                Executors.newSingleThreadScheduledExecutor(daemon("match-queue-timer")),
+                Executors.newFixedThreadPool(props.getQueueWorkers() > 0
+                        ? props.getQueueWorkers() : Runtime.getRuntime().availableProcessors(),
+                        daemon("match-queue-worker")),
+                System::nanoTime);
+    }
+
+    /**
+     * @param ticker 计量任务耗时的纳秒时钟，测试中可替换以得到确定的调度顺序
+     */
+    MatchQueueRegistry(MatchProperties props, DisruptorNotificationService notifier,
+                       ScheduledExecutorService timer, ExecutorService workers, LongSupplier ticker) {
+        this.base = props;
+        this.notifier = notifier;
+        this.metrics = notifier.getMetrics();
+        this.timer = timer;
+        this.workers = workers;
+        this.ticker = ticker;
+        this.rejectDuplicates = "reject".equalsIgnoreCase(props.getDuplicatePolicy());
+        for (int i = 0; i < CLAIM_STRIPES; i++) claimLocks[i] = new Object();
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 按配置新建队列，未设置的字段沿用全局 match.* 配置；桶容量除外，见 {@link #bucketCapacity}
+     */
+    public EnhancedMatchEngine register(String id, MatchProperties.QueueSpec spec) {
+        MatchProperties props = new MatchProperties();
+        BeanUtils.copyProperties(base, props, "queues");
+        if (spec.getBucketSize() != null) props.setBucketSize(spec.getBucketSize());
+        if (spec.getMaxScore() != null) props.setMaxScore(spec.getMaxScore());
+        if (spec.getCycleInterval() != null) props.setCycleInterval(spec.getCycleInterval());
+        props.setExpectedLoadPerBucket(bucketCapacity(spec, props));
+        // 队列内串行，常驻 worker 由共享池替代
+        props.setBucketWorkers(0);
+        return register(id, props, spec.getWeight());
+    }
+
+    /**
+     * 队列的每桶容量：显式配置优先；否则把预计排队人数按 2 倍余量平摊到各桶（分数分布不均），
+     * 下限 minDrainBatch，上限全局 expectedLoadPerBucket。桶满时新提交被拒绝，放回的等待者进溢出列表
+     */
+    static int bucketCapacity(MatchProperties.QueueSpec spec, MatchProperties props) {
+        if (spec.getExpectedLoadPerBucket() != null) return spec.getExpectedLoadPerBucket();
+        int expected = spec.getExpectedWaiting() != null ? spec.getExpectedWaiting() : props.getQueueExpectedWaiting();
+        int numBuckets = (props.getMaxScore() + props.getBucketSize() - 1) / props.getBucketSize();
+        long perBucket = 2L * expected / Math.max(1, numBuckets);
+        return (int) Math.min(props.getExpectedLoadPerBucket(), Math.max(props.getMinDrainBatch(), perBucket));
+    }
+
+    public EnhancedMatchEngine register(String id, MatchProperties props, int weight) {
+        if (weight <= 0) throw new IllegalArgumentException("weight must be > 0: " + weight);
+        if (stopped) throw new IllegalStateException("registry is stopped");
+        if (queues.containsKey(id)) throw new IllegalArgumentException("queue already registered: " + id);
+        Queue q = new Queue(id, weight, seq.getAndIncrement());
+        q.engine = new EnhancedMatchEngine(props, notifier, null, MatchClock.SYSTEM, q);
+        if (queues.putIfAbsent(id, q) != null) {
+            q.engine.stop();
+            throw new IllegalArgumentException("queue already registered: " + id);
+        }
+        // 引擎构造时指向自己的深度，改回按队列汇总
+        metrics.setQueueDepthSource(this::queueDepths);
+        metrics.setOldestWaitSource(this::oldestWaitMs);
+        log.info("match queue {} registered: weight {}, bucketSize {}, maxScore {}",
+                id, weight, props.getBucketSize(), props.getMaxScore());
+        return q.engine;
+    }
+
+    /**
+     * 下线队列：停止其周期任务，排队者随引擎丢弃
+     */
+    public boolean remove(String id) {
+        Queue q = queues.remove(id);
+        if (q == null) return false;
+        q.engine.stop();
+        return true;
+    }
+
+    public EnhancedMatchEngine engine(String id) {
+        Queue q = queues.get(id);
+        return q != null ? q.engine : null;
+    }
+
+    /**
+     * 按注册顺序
+     */
+    public List<EnhancedMatchEngine> engines() {
+        return ordered().stream().map(q -> q.engine).toList();
+    }
+
+    CycleDriver driver(String id) {
+        return queues.get(id);
+    }
+
+    public List<String> queueIds() {
+        return ordered().stream().map(q -> q.id).toList();
+    }
+
+    /**
+     * 按注册顺序
+     */
+    private List<Queue> ordered() {
+        List<Queue> list = new ArrayList<>(queues.values());
+        list.sort(Comparator.comparingInt(q -> q.seq));
+        return list;
+    }
+
+    /**
+     * 单个队列的调度统计
+     * @param dispatched 执行过的任务数
+     * @param busyNanos  在共享 worker 上累计占用的时间
+     */
+    public record QueueStats(String id, int weight, long pendingEvents, long dispatched, long busyNanos) {
+    }
+
+    public List<QueueStats> stats() {
+        List<QueueStats> out = new ArrayList<>();
+        for (Queue q : ordered()) {
+            out.add(new QueueStats(q.id, q.weight, q.engine.pendingEvents(), q.dispatched.sum(), q.busyNanos.sum()));
+        }
+        return out;
+    }
+
+    private int[] queueDepths() {
+        List<Queue> list = ordered();
+        int[] depths = new int[list.size()];
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = (int) list.get(i).engine.pendingEvents();
+        }
+        return depths;
+    }
+
+    private long oldestWaitMs() {
+        long max = 0;
+        for (Queue q : queues.values()) max = Math.max(max, q.engine.oldestWaitMs());
+        return max;
+    }
+
+    private Queue route(String mode) {
+        Queue q = mode != null ? queues.get(mode) : null;
+        return q != null ? q : queues.get(DEFAULT_QUEUE);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String channelId) {
+        return submitEvent(username, score, matchRange, null, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, String channelId) {
+        return submitEvent(username, score, matchRange, mode, 0, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, int region, String channelId) {
+        Queue q = route(mode);
+        if (q == null) {
+            metrics.recordRejected();
+            return false;
+        }
+        return claimed(q, List.of(username), false,
+                () -> q.engine.submitEvent(username, score, matchRange, mode, region, channelId));
+    }
+
+    @Override
+    public boolean submitParty(Party party, String mode, int region) {
+        Queue q = route(mode);
+        if (q == null) {
+            metrics.recordRejected();
+            return false;
+        }
+        List<String> names = party.members().stream().map(Party.Member::username).toList();
+        return claimed(q, names, false, () -> q.engine.submitParty(party, mode, region));
+    }
+
+    /**
+     * 取消不带 mode，逐个队列尝试；按用户名的索引查找，不扫描桶。注册表层面的登记保证至多一个队列中仍在排队
+     */
+    @Override
+    public boolean cancelEvent(String username, String channelId) {
+        for (Queue q : queues.values()) {
+            if (q.engine.cancelEvent(username, channelId)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean requeue(String username, int score, int matchRange, String mode, String channelId, long enqueuedAt) {
+        return requeue(username, score, matchRange, mode, 0, channelId, enqueuedAt);
+    }
+
+    @Override
+    public boolean requeue(String username, int score, int matchRange, String mode, int region,
+                           String channelId, long enqueuedAt) {
+        Queue q = route(mode);
+        return q != null && claimed(q, List.of(username), true,
+                () -> q.engine.requeue(username, score, matchRange, mode, region, channelId, enqueuedAt));
+    }
+
+    /**
+     * 持有全部用户名的分段锁，先处理其他队列中仍在排队的同名事件再提交到 q：
+     * 重排时对方已在别处重新排队视为完成；否则按 duplicatePolicy 作废旧排队，或在拒绝策略 / 别人带的队伍时拒绝
+     */
+    private boolean claimed(Queue q, List<String> usernames, boolean requeue, BooleanSupplier submit) {
+        int[] order = new int[usernames.size()];
+        for (int i = 0; i < order.length; i++) order[i] = claimStripe(usernames.get(i));
+        Arrays.sort(order);
+        return claimed(q, usernames, requeue, submit, order, 0);
+    }
+
+    private boolean claimed(Queue q, List<String> usernames, boolean requeue, BooleanSupplier submit,
+                            int[] order, int k) {
+        if (k < order.length) {
+            if (k > 0 && order[k] == order[k - 1]) return claimed(q, usernames, requeue, submit, order, k + 1);
+            synchronized (claimLocks[order[k]]) {
+                return claimed(q, usernames, requeue, submit, order, k + 1);
+            }
+        }
+        String self = usernames.get(0);
+        for (String username : usernames) {
+            for (Queue other : queues.values()) {
+                if (other == q) continue;
+                MatchEvent live = other.engine.lookup(username);
+                if (live == null || !live.isWaiting()) continue;
+                if (requeue) return true;
+                Party p = live.getParty();
+                boolean replaceable = !rejectDuplicates && (p == null || p.leader().username().equals(self));
+                // 作废失败时旧排队通常已被配对，无需再作废；仍在排队才拒绝
+                if (!replaceable || !other.engine.cancelEvent(username, null) && live.isWaiting()) {
+                    metrics.recordRejected();
+                    return false;
+                }
+            }
+        }
+        return submit.getAsBoolean();
+    }
+
+    private static int claimStripe(String username) {
+        return (username.hashCode() & 0x7fffffff) % CLAIM_STRIPES;
+    }
+
+    @Override
+    public void stop() {
+        if (stopped) return;
+        stopped = true;
+        for (Queue q : queues.values()) q.engine.stop();
+        timer.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) workers.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 任务到期：挂到所属队列，队列不在就绪堆中时入堆并唤醒一个 worker
+     */
+    private void enqueue(Queue q, Runnable task) {
+        synchronized (ready) {
+            if (q.shutdown) return;
+            q.tasks.add(task);
+            if (q.scheduled) return;
+            q.scheduled = true;
+            q.vtime = Math.max(q.vtime, virtualTime);
+            ready.add(q);
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        try {
+            workers.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
+    }
+
+    /**
+     * 取虚拟时间最小的就绪队列执行它的一个任务；每个在堆中的队列对应一次 runNext
+     */
+    private void runNext() {
+        Queue q;
+        Runnable task;
+        synchronized (ready) {
+            q = ready.poll();
+            if (q == null) return;
+            virtualTime = q.vtime;
+            task = q.tasks.poll();
+        }
+        long start = ticker.getAsLong();
+        try {
+            if (task != null && !q.shutdown) task.run();
+        } catch (Throwable t) {
+            log.error("match queue {} task failed", q.id, t);
+        } finally {
+            long cost = ticker.getAsLong() - start;
+            q.dispatched.increment();
+            q.busyNanos.add(cost);
+            boolean more;
+            synchronized (ready) {
+                q.vtime += Math.max(1, cost / q.weight);
+                more = !q.shutdown && !q.tasks.isEmpty();
+                if (more) {
+                    ready.add(q);
+                } else {
+                    q.scheduled = false;
+                }
+            }
+            if (more) dispatch();
+        }
+    }
+
+    /**
+     * 一个托管队列，同时是其引擎的 CycleDriver：定时交给共享定时线程，执行交给共享 worker 池
+     */
+    final class Queue implements CycleDriver {
+        final String id;
+        final int weight;
+        final int seq;
+        EnhancedMatchEngine engine;
+
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        // 在就绪堆中或正在执行
+        boolean scheduled;
+        long vtime;
+        volatile boolean shutdown;
+
+        final LongAdder dispatched = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+
+        Queue(String id, int weight, int seq) {
+            this.id = id;
+            this.weight = weight;
+            this.seq = seq;
+        }
+
+        @Override
+        public void scheduleWithFixedDelay(Runnable task, long initialDelayMs, long delayMs) {
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // 单轮失败不能中断续约，否则该队列从此静默停转
+                    try {
+                        task.run();
+                    } finally {
+                        schedule(this, delayMs);
+                    }
+                }
+            }, initialDelayMs);
+        }
+
+        @Override
+        public void scheduleAtFixedRate(Runnable task, long initialDelayMs, long periodMs) {
+            long first = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayMs);
+            schedule(new Runnable() {
+                long due = first;
+
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        due += TimeUnit.MILLISECONDS.toNanos(periodMs);
+                        schedule(this, Math.max(0, TimeUnit.NANOSECONDS.toMillis(due - System.nanoTime())));
+                    }
+                }
+            }, initialDelayMs);
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            if (shutdown) return;
+            try {
+                timer.schedule(() -> enqueue(this, task), delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 已停止
+            }
+        }
+
+        /**
+         * 同一队列的任务串行执行
+         */
+        @Override
+        public boolean concurrent() {
+            return false;
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (ready) {
+                shutdown = true;
+                tasks.clear();
+            }
+        }
+    }
+}
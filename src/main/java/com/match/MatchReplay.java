@@ -0,0 +1,144 @@
+package com.match;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线回放：用 {@link SimulatedCycleDriver} 驱动 {@link EnhancedMatchEngine}，
+ * 按录制的提交序列（预写日志或内存 trace）全速重放，同一输入得到同一组配对。
+ * <pre>
+ * java -cp target/classes:&lt;classpath&gt; com.match.MatchReplay &lt;journalDir&gt; [bucketSize] [maxScore]
+ * </pre>
+ */
+public class MatchReplay {
+
+    /**
+     * 一次提交，at 为毫秒时间戳
+     */
+    public record Submission(long at, String username, int score, int matchRange, String mode) {
+    }
+
+    /**
+     * @param pairs        按产生顺序的配对
+     * @param meanWaitMs   已配对玩家的平均仿真等待时间
+     * @param simulatedMs  仿真时间跨度
+     * @param wallNanos    实际耗时
+     */
+    public record Result(int submitted, int accepted, List<MatchPair> pairs, double meanWaitMs,
+                         long simulatedMs, long wallNanos) {
+
+        public double pairsPerWallSecond() {
+            return wallNanos == 0 ? 0 : pairs.size() * 1e9 / wallNanos;
+        }
+
+        public double speedup() {
+            return wallNanos == 0 ? 0 : simulatedMs * 1e6 / wallNanos;
+        }
+    }
+
+    /**
+     * 同步收集配对，不经 Disruptor
+     */
+    static final class CollectingNotificationService extends DisruptorNotificationService {
+        final List<MatchPair> pairs = new ArrayList<>();
+
+        CollectingNotificationService() {
+            super(new MatchMetrics());
+        }
+
+        @Override
+        public void submit(MatchPair pair) {
+            pairs.add(pair);
+        }
+    }
+
+    private MatchReplay() {
+    }
+
+    /**
+     * 从预写日志目录读取提交序列，按入队时间稳定排序：
+     * 多个线程并发写日志，更新沿用原入队时间，文件顺序并不单调
+     */
+    public static List<Submission> loadTrace(Path journalDir) throws IOException {
+        List<Submission> trace = new ArrayList<>();
+        new MatchJournalReader(journalDir).replay(new MatchJournalReader.Listener() {
+            @Override
+            public void onSubmit(long enqueuedAt, int score, int matchRange,
+                                 String username, String mode, String channelId) {
+                trace.add(new Submission(enqueuedAt, username, score, matchRange, mode));
+            }
+        });
+        trace.sort(Comparator.comparingLong(Submission::at));
+        return trace;
+    }
+
+    /**
+     * 全速重放 trace
+     * @param trace      按时间排序的提交
+     * @param tailMillis 最后一次提交后继续推进的仿真时间，让剩余玩家有机会被匹配
+     * @throws IllegalArgumentException trace 时间倒退；仿真时钟不能回拨，倒退的提交会被错记到更晚的时刻
+     */
+    public static Result run(MatchProperties props, List<Submission> trace, long tailMillis) {
+        for (int i = 1; i < trace.size(); i++) {
+            if (trace.get(i).at() < trace.get(i - 1).at()) {
+                throw new IllegalArgumentException("trace is not sorted by time at index " + i
+                        + ": " + trace.get(i).at() + " < " + trace.get(i - 1).at());
+            }
+        }
+        long start = trace.isEmpty() ? 0 : trace.get(0).at();
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(start);
+        CollectingNotificationService sink = new CollectingNotificationService();
+        EnhancedMatchEngine engine = new EnhancedMatchEngine(props, sink, null, driver, driver);
+
+        Map<String, Long> submittedAt = new HashMap<>();
+        int accepted = 0;
+        long wallStart = System.nanoTime();
+        for (Submission s : trace) {
+            driver.advanceTo(s.at());
+            if (engine.submitEvent(s.username(), s.score(), s.matchRange(), s.mode(), "replay")) {
+                submittedAt.put(s.username(), driver.millis());
+                accepted++;
+            }
+        }
+        driver.advanceBy(tailMillis);
+        long wallNanos = System.nanoTime() - wallStart;
+        engine.stop();
+
+        long waitSum = 0;
+        int waited = 0;
+        for (MatchPair p : sink.pairs) {
+            for (String user : new String[]{p.getUserA(), p.getUserB()}) {
+                Long at = submittedAt.get(user);
+                if (at != null) {
+                    waitSum += p.getCreatedAt() - at;
+                    waited++;
+                }
+            }
+        }
+        return new Result(trace.size(), accepted, sink.pairs,
+                waited == 0 ? 0 : (double) waitSum / waited,
+                driver.millis() - start, wallNanos);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: MatchReplay <journalDir> [bucketSize] [maxScore]");
+            System.exit(1);
+        }
+        MatchProperties props = new MatchProperties();
+        if (args.length > 1) props.setBucketSize(Integer.parseInt(args[1]));
+        if (args.length > 2) props.setMaxScore(Integer.parseInt(args[2]));
+
+        List<Submission> trace = loadTrace(Path.of(args[0]));
+        Result r = run(props, trace, 5_000);
+        System.out.printf("submitted %d, accepted %d, pairs %d%n", r.submitted(), r.accepted(), r.pairs().size());
+        System.out.printf("simulated %.1f s in %.1f ms (x%.0f), %.0f pairs/s, mean wait %.1f ms%n",
+                r.simulatedMs() / 1000.0, r.wallNanos() / 1e6, r.speedup(),
+                r.pairsPerWallSecond(), r.meanWaitMs());
+    }
+}
@@ -0,0 +1,149 @@
+package com.match;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有序停机，在 Spring 销毁各 bean 之前执行（SmartLifecycle 最高 phase 最先 stop）：
+ * 1. Netty 关闭监听端口，引擎拒绝新提交、停止周期调度；multi 模式下对注册表中的每个队列执行同样的收尾
+ * 2. 调用线程上做最后几轮分桶 + 全局匹配；启用确认阶段时跳过（新配对来不及确认），待确认的配对作废后双方回队
+ * 3. 剩余排队者写入快照（启用时），重启后在 snapshotResumeWindow 内重连可沿用原排队位置
+ * 4. 向剩余排队者推送 server_draining 提示
+ * 5. 在剩余时间内清空通知 RingBuffer 并等已发起的推送写完
+ * 总耗时受 match.shutdown-timeout 约束，超时的部分放弃并记日志。
+ */
+public class MatchShutdown implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(MatchShutdown.class);
+
+    private final MatchProperties props;
+    private final MatchEngine engine;
+    private final DisruptorNotificationService notifier;
+    private final WebSocketServer server;
+    private final ReadyCheckService readyCheck;
+    private final WaitingSnapshotStore snapshots;
+
+    private volatile boolean running;
+
+    /**
+     * @param server     为 null 时跳过网络层
+     * @param readyCheck 未启用确认阶段时为 null
+     * @param snapshots  未启用快照时为 null
+     */
+    public MatchShutdown(MatchProperties props, MatchEngine engine, DisruptorNotificationService notifier,
+                         WebSocketServer server, ReadyCheckService readyCheck, WaitingSnapshotStore snapshots) {
+        this.props = props;
+        this.engine = engine;
+        this.notifier = notifier;
+        this.server = server;
+        this.readyCheck = readyCheck;
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * 一次停机的结果
+     * @param finalPairs     收尾轮次产出的配对数
+     * @param requeued       作废后回队的待确认配对数
+     * @param waiting        收尾后仍在排队的人数
+     * @param persisted      写入快照的人数，未启用快照为 -1
+     * @param flushed        通知是否在期限内全部发出
+     */
+    public record Report(long finalPairs, int requeued, int waiting, int persisted, boolean flushed, long elapsedMs) {
+    }
+
+    public Report drain() {
+        long start = System.nanoTime();
+        long budgetMs = props.getShutdownTimeout().toMillis();
+
+        if (server != null) server.stopAccepting();
+        List<EnhancedMatchEngine> bucketEngines = bucketEngines();
+
+        long finalPairs = 0;
+        int requeued = 0;
+        // 先让所有队列拒绝新提交，再逐个收尾
+        for (EnhancedMatchEngine bucketEngine : bucketEngines) bucketEngine.beginDrain();
+        if (readyCheck == null) {
+            for (EnhancedMatchEngine bucketEngine : bucketEngines) {
+                finalPairs += bucketEngine.finalPasses(props.getShutdownFinalPasses());
+            }
+        } else {
+            readyCheck.stop();
+            requeued = readyCheck.cancelAll();
+        }
+
+        int persisted = -1;
+        // 快照、预写日志只在单引擎 bucket 模式下启用
+        if (snapshots != null && engine instanceof EnhancedMatchEngine bucketEngine) {
+            snapshots.stop();
+            try {
+                persisted = snapshots.write(bucketEngine);
+            } catch (IOException ex) {
+                log.error("final snapshot failed", ex);
+            }
+        }
+
+        // 有快照或预写日志时重启后可认领原位置
+        boolean resumable = persisted >= 0 || props.getJournalPath() != null && engine instanceof EnhancedMatchEngine;
+        long resumeWithinMs = resumable ? props.getSnapshotResumeWindow().toMillis() : 0;
+        AtomicInteger count = new AtomicInteger();
+        for (EnhancedMatchEngine bucketEngine : bucketEngines) {
+            bucketEngine.visitWaiting(e -> {
+                Party party = e.getParty();
+                if (party == null) {
+                    notifier.notifyDraining(e.getChannelId(), resumeWithinMs);
+                } else {
+                    // 组队不落盘，无法沿用原位置
+                    for (Party.Member m : party.members()) notifier.notifyDraining(m.channelId(), 0);
+                }
+                count.incrementAndGet();
+            });
+        }
+        int waiting = count.get();
+
+        long spentMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        boolean flushed = notifier.drain(Math.max(0, budgetMs - spentMs));
+        engine.stop();
+
+        Report report = new Report(finalPairs, requeued, waiting, persisted, flushed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("match shutdown: {}", report);
+        return report;
+    }
+
+    /**
+     * 需要有序收尾的分桶引擎：bucket 模式为引擎本身，multi 模式为注册表托管的各队列
+     */
+    private List<EnhancedMatchEngine> bucketEngines() {
+        if (engine instanceof EnhancedMatchEngine e) return List.of(e);
+        if (engine instanceof MatchQueueRegistry registry) return registry.engines();
+        return List.of();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+        running = false;
+        drain();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // 先于 Web 服务器的优雅停机与其他生命周期组件
+        return Integer.MAX_VALUE;
+    }
+}
@@ -1,25 +1,130 @@
 package com.match;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 
 @Configuration
 @EnableConfigurationProperties(MatchProperties.class)
 public class MatchSystemAutoConfiguration {
 
+    @Bean(destroyMethod = "stop")
+    public MatchMetrics matchMetrics(MatchProperties props) {
+        MatchMetrics metrics = new MatchMetrics();
+        metrics.start(props.getMetricsInterval());
+        metrics.setFirstMatchTarget(props.getFirstMatchTarget());
+        metrics.registerMBean();
+        return metrics;
+    }
+
    @Bean
-    public DisruptorNotificationService disruptorNotificationService() {
-        return new DisruptorNotificationService(1 << 16 , 10);
+    public DisruptorNotificationService disruptorNotificationService(MatchMetrics matchMetrics) {
+        return new DisruptorNotificationService(1 << 16 , 10, matchMetrics);
+    }
+
+
+    @Bean
+    public RouterFunction<ServerResponse> matchAdminRoutes(MatchAdminHandler matchAdminHandler) {
+        return matchAdminHandler.routes();
     }
 
+    @Bean
+    public MatchKernel matchKernel(MatchProperties props) {
+        MatchKernel kernel = VectorizedMatchPipeline.select(props.getKernel(), props.getVectorBits());
+        VectorizedMatchPipeline.useKernel(kernel);
+        VectorizedMatchPipeline.useMatchOrder(props.getMatchOrder());
+        return kernel;
+    }
 
     @Bean
+    @DependsOn("matchKernel")
+    @ConditionalOnProperty(prefix = "match", name = "engine-mode", havingValue = "bucket", matchIfMissing = true)
     public EnhancedMatchEngine enhancedMatchEngine(DisruptorNotificationService disruptorNotificationService,
                                    MatchProperties props,  ThreadPoolTaskExecutor matchThreadPool) {
         return new EnhancedMatchEngine(props, disruptorNotificationService, matchThreadPool);
     }
 
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnBean(EnhancedMatchEngine.class)
+    @ConditionalOnProperty(prefix = "match", name = "snapshot-path")
+    public WaitingSnapshotStore waitingSnapshotStore(EnhancedMatchEngine enhancedMatchEngine, MatchProperties props) {
+        WaitingSnapshotStore store = new WaitingSnapshotStore(Path.of(props.getSnapshotPath()));
+        // 启用预写日志时以日志恢复为准
+        if (props.getJournalPath() == null) {
+            store.restoreInto(enhancedMatchEngine, props.getSnapshotResumeWindow());
+        }
+        store.start(enhancedMatchEngine, props.getSnapshotInterval().toMillis());
+        return store;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnBean(EnhancedMatchEngine.class)
+    @ConditionalOnProperty(prefix = "match", name = "journal-path")
+    public MatchJournal matchJournal(EnhancedMatchEngine enhancedMatchEngine, MatchProperties props) throws IOException {
+        Path dir = Path.of(props.getJournalPath());
+        List<MatchEvent> recovered = new MatchJournalReader(dir).recoverWaiting();
+        MatchJournal journal = new MatchJournal(dir, props.getJournalSegmentSize(), props.getJournalRingCapacity(),
+                props.getJournalForceInterval().toMillis(), recovered);
+        enhancedMatchEngine.restore(recovered, props.getSnapshotResumeWindow());
+        enhancedMatchEngine.setJournal(journal);
+        return journal;
+    }
+
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnBean(EnhancedMatchEngine.class)
+    @ConditionalOnProperty(prefix = "match", name = "ready-check-enabled", havingValue = "true")
+    public ReadyCheckService readyCheckService(EnhancedMatchEngine enhancedMatchEngine, MatchProperties props,
+                                               DisruptorNotificationService disruptorNotificationService) {
+        ReadyCheckService readyCheck = new ReadyCheckService(props, enhancedMatchEngine, disruptorNotificationService);
+        enhancedMatchEngine.setReadyCheck(readyCheck);
+        return readyCheck;
+    }
+
+    @Bean
+    public MatchShutdown matchShutdown(MatchProperties props, MatchEngine matchEngine,
+                                       DisruptorNotificationService disruptorNotificationService,
+                                       ObjectProvider<WebSocketServer> webSocketServer,
+                                       ObjectProvider<ReadyCheckService> readyCheckService,
+                                       ObjectProvider<WaitingSnapshotStore> waitingSnapshotStore) {
+        return new MatchShutdown(props, matchEngine, disruptorNotificationService, webSocketServer.getIfAvailable(),
+                readyCheckService.getIfAvailable(), waitingSnapshotStore.getIfAvailable());
+    }
+
+    @Bean
+    @DependsOn("matchKernel")
+    @ConditionalOnProperty(prefix = "match", name = "engine-mode", havingValue = "multi")
+    public MatchQueueRegistry matchQueueRegistry(DisruptorNotificationService disruptorNotificationService,
+                                                 MatchProperties props) {
+        MatchQueueRegistry registry = new MatchQueueRegistry(props, disruptorNotificationService);
+        props.getQueues().forEach(registry::register);
+        return registry;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "match", name = "engine-mode", havingValue = "interval")
+    public IntervalMatchEngine intervalMatchEngine(DisruptorNotificationService disruptorNotificationService,
+                                                   MatchProperties props) {
+        return new IntervalMatchEngine(props, disruptorNotificationService);
+    }
+
+    @Bean
+    @DependsOn("matchKernel")
+    @ConditionalOnProperty(prefix = "match", name = "engine-mode", havingValue = "offheap")
+    public OffHeapMatchEngine offHeapMatchEngine(DisruptorNotificationService disruptorNotificationService,
+                                                 MatchProperties props) {
+        return new OffHeapMatchEngine(props, disruptorNotificationService);
+    }
+
 
 }
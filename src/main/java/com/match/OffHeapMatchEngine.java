@@ -0,0 +1,191 @@
+package com.match;
+
+import org.agrona.BitUtil;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 堆外等待池匹配引擎（engine-mode = offheap）：
+ * 1. 生产者把提交 / 取消编码进 Agrona ManyToOneRingBuffer，不分配 MatchEvent
+ * 2. 单个 matcher 线程解码写入 {@link OffHeapWaitingPool}，每 cycleInterval 归并一次并在列上匹配
+ * 3. 配对经 {@link DisruptorNotificationService} 推送，与其他引擎一致
+ */
+public class OffHeapMatchEngine implements MatchEngine, Agent {
+    private static final Logger log = LoggerFactory.getLogger(OffHeapMatchEngine.class);
+
+    private static final int SUBMIT = 1;
+    private static final int CANCEL = 2;
+    private static final int READ_LIMIT = 4096;
+
+    private final ManyToOneRingBuffer inbox;
+    private final ThreadLocal<ExpandableArrayBuffer> scratch =
+            ThreadLocal.withInitial(() -> new ExpandableArrayBuffer(256));
+
+    // 以下仅由 matcher 线程访问
+    private final OffHeapWaitingPool pool;
+    private final List<MatchPair> pairs = new ArrayList<>();
+    private long lastCycleNs = System.nanoTime();
+    // match.cycle-interval
+    private final long cycleIntervalNs;
+
+    private final boolean rejectDuplicates;
+    private final DisruptorNotificationService disruptorNotificationService;
+    private final MatchMetrics metrics;
+    private volatile int waiting;
+    private final AgentRunner runner;
+
+    public OffHeapMatchEngine(MatchProperties props,
+                              DisruptorNotificationService disruptorNotificationService) {
+        this.pool = new OffHeapWaitingPool(props.getOffHeapCapacity(), props.getOffHeapStagingCapacity());
+        int capacity = BitUtil.findNextPositivePowerOfTwo(props.getOffHeapInboxCapacity())
+                + RingBufferDescriptor.TRAILER_LENGTH;
+        this.inbox = new ManyToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity)));
+        this.rejectDuplicates = "reject".equalsIgnoreCase(props.getDuplicatePolicy());
+        this.cycleIntervalNs = props.getCycleInterval().toNanos();
+        this.disruptorNotificationService = disruptorNotificationService;
+        this.metrics = disruptorNotificationService.getMetrics();
+        metrics.setQueueDepthSource(() -> new int[]{waiting});
+
+        this.runner = new AgentRunner(
+                new BackoffIdleStrategy(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1)),
+                ex -> log.error("offheap matcher error", ex),
+                null,
+                this);
+        AgentRunner.startOnThread(runner);
+    }
+
+    // ========== 生产者侧 ==========
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String channelId) {
+        return submitEvent(username, score, matchRange, null, channelId);
+    }
+
+    @Override
+    public boolean submitEvent(String username, int score, int matchRange, String mode, String channelId) {
+        if (username == null) return false;
+        ExpandableArrayBuffer buf = scratch.get();
+        int len = 0;
+        buf.putLong(len, System.currentTimeMillis()); len += 8;
+        buf.putInt(len, score); len += 4;
+        buf.putInt(len, matchRange); len += 4;
+        len += buf.putStringUtf8(len, username);
+        len += buf.putStringUtf8(len, nonNull(mode));
+        len += buf.putStringUtf8(len, nonNull(channelId));
+        if (inbox.write(SUBMIT, buf, 0, len)) return true;
+        metrics.recordRejected();
+        return false;
+    }
+
+    /**
+     * 异步取消：返回 true 仅表示已投递，由 matcher 线程校验连接后执行
+     */
+    @Override
+    public boolean cancelEvent(String username, String channelId) {
+        if (username == null) return false;
+        ExpandableArrayBuffer buf = scratch.get();
+        int len = buf.putStringUtf8(0, username);
+        len += buf.putStringUtf8(len, nonNull(channelId));
+        return inbox.write(CANCEL, buf, 0, len);
+    }
+
+    /**
+     * 排队中的用户数（近似值）
+     */
+    public int waitingCount() {
+        return waiting;
+    }
+
+    // ========== matcher 线程 ==========
+
+    @Override
+    public int doWork() {
+        int work = inbox.read(this::onRecord, READ_LIMIT);
+        long now = System.nanoTime();
+        if (now - lastCycleNs >= cycleIntervalNs || pool.stagingFull()) {
+            lastCycleNs = now;
+            work += runCycle();
+        }
+        return work;
+    }
+
+    private void onRecord(int type, MutableDirectBuffer buf, int index, int length) {
+        int p = index;
+        if (type == SUBMIT) {
+            long enqueuedAt = buf.getLong(p); p += 8;
+            int score = buf.getInt(p); p += 4;
+            int range = buf.getInt(p); p += 4;
+            String username = buf.getStringUtf8(p); p += 4 + buf.getInt(p);
+            String mode = buf.getStringUtf8(p); p += 4 + buf.getInt(p);
+            String channelId = buf.getStringUtf8(p);
+            if (rejectDuplicates && pool.contains(username)) {
+                metrics.recordRejected();
+                return;
+            }
+            if (pool.add(username, score, range, nullIfEmpty(mode), nullIfEmpty(channelId), enqueuedAt)) {
+                metrics.recordSubmit();
+            } else {
+                metrics.recordRejected();
+            }
+        } else if (type == CANCEL) {
+            String username = buf.getStringUtf8(p); p += 4 + buf.getInt(p);
+            pool.cancel(username, nullIfEmpty(buf.getStringUtf8(p)));
+        }
+        waiting = pool.waiting();
+    }
+
+    /**
+     * 归并 + 匹配一轮
+     * @return 配对数
+     */
+    int runCycle() {
+        // 上一轮贪心扫描后剩余等待者两两不相容，没有新到达者就无需再扫
+        if (pool.staged() == 0) return 0;
+        long start = System.nanoTime();
+        pool.merge();
+        int produced = pool.match(VectorizedMatchPipeline.kernel(), pairs, metrics, System.currentTimeMillis());
+        for (MatchPair p : pairs) {
+            disruptorNotificationService.submit(p);
+        }
+        pairs.clear();
+        waiting = pool.waiting();
+        metrics.recordCycle(System.nanoTime() - start, produced);
+        return produced;
+    }
+
+    @Override
+    public void onClose() {
+        pool.free();
+    }
+
+    @Override
+    public String roleName() {
+        return "offheap-matcher";
+    }
+
+    @Override
+    public void stop() {
+        runner.close();
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static String nullIfEmpty(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+}
@@ -0,0 +1,326 @@
+package com.match;
+
+import org.agrona.BufferUtil;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Object2IntHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 堆外列式等待池，单写者（由 {@link OffHeapMatchEngine} 的 matcher 线程独占）：
+ * 1. 主区按分数升序存放 score / range / state / enqueuedAt / userId 五列，每列一块 direct 内存
+ * 2. 新到达者先写入暂存区，每轮 {@link #merge()} 压缩主区（丢弃已匹配 / 已取消）后与排序好的暂存区从尾部归并
+ * 3. {@link #match} 直接在主区列上做向量扫描，不构造 MatchEvent
+ * 4. 字符串只保存在 id 表中（每个排队用户一份 username / channelId / mode），id 随出池回收
+ * 每行 24 字节，500 万等待者约 120MB 堆外，堆上只剩 id 表。
+ */
+public class OffHeapWaitingPool {
+
+    static final int FREE      = 0;
+    static final int WAITING   = 1;
+    static final int MATCHED   = 2;
+    static final int CANCELLED = 3;
+
+    private static final int NO_SLOT = -1;
+
+    private final int capacity;
+    private final int stagingCapacity;
+
+    // 主区列（按 score 升序）
+    private final ByteBuffer scoreBuf, rangeBuf, stateBuf, enqueuedBuf, userBuf;
+    private final UnsafeBuffer scores, ranges, states, enqueued, users;
+    private int size;
+
+    // 暂存区列（到达顺序）
+    private final ByteBuffer stagedScoreBuf, stagedRangeBuf, stagedStateBuf, stagedEnqueuedBuf, stagedUserBuf;
+    private final UnsafeBuffer stagedScores, stagedRanges, stagedStates, stagedEnqueued, stagedUsers;
+    private int staged;
+    // (score << 32 | 暂存下标)，原始类型数组不被 GC 追踪
+    private final long[] sortKeys;
+
+    // id 表
+    private final Object2IntHashMap<String> ids;
+    private String[] names;
+    private String[] channels;
+    private String[] modes;
+    // id -> 主区下标（≥ 0）或 -(暂存下标 + 2)，NO_SLOT 表示不在池中
+    private int[] slotOf;
+    private final IntArrayList freeIds = new IntArrayList();
+    private int nextId;
+
+    public OffHeapWaitingPool(int capacity, int stagingCapacity) {
+        this.capacity = capacity;
+        this.stagingCapacity = stagingCapacity;
+
+        this.scoreBuf = column(capacity, 4);
+        this.rangeBuf = column(capacity, 4);
+        this.stateBuf = column(capacity, 4);
+        this.enqueuedBuf = column(capacity, 8);
+        this.userBuf = column(capacity, 4);
+        this.scores = new UnsafeBuffer(scoreBuf);
+        this.ranges = new UnsafeBuffer(rangeBuf);
+        this.states = new UnsafeBuffer(stateBuf);
+        this.enqueued = new UnsafeBuffer(enqueuedBuf);
+        this.users = new UnsafeBuffer(userBuf);
+
+        this.stagedScoreBuf = column(stagingCapacity, 4);
+        this.stagedRangeBuf = column(stagingCapacity, 4);
+        this.stagedStateBuf = column(stagingCapacity, 4);
+        this.stagedEnqueuedBuf = column(stagingCapacity, 8);
+        this.stagedUserBuf = column(stagingCapacity, 4);
+        this.stagedScores = new UnsafeBuffer(stagedScoreBuf);
+        this.stagedRanges = new UnsafeBuffer(stagedRangeBuf);
+        this.stagedStates = new UnsafeBuffer(stagedStateBuf);
+        this.stagedEnqueued = new UnsafeBuffer(stagedEnqueuedBuf);
+        this.stagedUsers = new UnsafeBuffer(stagedUserBuf);
+        this.sortKeys = new long[stagingCapacity];
+
+        int initialIds = Math.min(capacity, 1 << 16);
+        this.ids = new Object2IntHashMap<>(initialIds, 0.65f, NO_SLOT);
+        this.names = new String[initialIds];
+        this.channels = new String[initialIds];
+        this.modes = new String[initialIds];
+        this.slotOf = new int[initialIds];
+    }
+
+    private static ByteBuffer column(int rows, int width) {
+        return ByteBuffer.allocateDirect(rows * width).order(ByteOrder.nativeOrder());
+    }
+
+    // ========== 写入 ==========
+
+    /**
+     * 新到达者写入暂存区
+     * @return false 表示池或暂存区已满
+     */
+    public boolean add(String username, int score, int matchRange, String mode, String channelId, long enqueuedAt) {
+        if (staged >= stagingCapacity || size + staged >= capacity) return false;
+        int id = ids.getValue(username);
+        if (id == NO_SLOT) {
+            id = allocateId(username);
+        } else {
+            // 已在池中：作废旧行，沿用 id
+            markRow(slotOf[id], CANCELLED);
+        }
+        channels[id] = channelId;
+        modes[id] = mode;
+
+        int i = staged++;
+        int off = i << 2;
+        stagedScores.putInt(off, Math.max(0, score));
+        stagedRanges.putInt(off, Math.max(0, matchRange));
+        stagedStates.putInt(off, WAITING);
+        stagedEnqueued.putLong(i << 3, enqueuedAt);
+        stagedUsers.putInt(off, id);
+        slotOf[id] = -(i + 2);
+        return true;
+    }
+
+    /**
+     * 用户是否仍在池中排队
+     */
+    public boolean contains(String username) {
+        return ids.getValue(username) != NO_SLOT;
+    }
+
+    /**
+     * 取消排队，channelId 非空时须与排队时一致；排队时没有连接的行不接受带连接的取消
+     */
+    public boolean cancel(String username, String channelId) {
+        int id = ids.getValue(username);
+        if (id == NO_SLOT) return false;
+        if (channelId != null && !channelId.equals(channels[id])) return false;
+        markRow(slotOf[id], CANCELLED);
+        releaseId(id);
+        return true;
+    }
+
+    public boolean stagingFull() {
+        return staged >= stagingCapacity;
+    }
+
+    public int staged() {
+        return staged;
+    }
+
+    /**
+     * 主区行数（含本轮已匹配、尚未压缩的行）
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 排队中的用户数
+     */
+    public int waiting() {
+        return ids.size();
+    }
+
+    // ========== 归并 ==========
+
+    /**
+     * 压缩主区并把暂存区按分数归并进来，完成后主区按 score 升序、只含 WAITING 行
+     */
+    public void merge() {
+        // 1) 主区原地压缩
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if (states.getInt(r << 2) != WAITING) continue;
+            if (w != r) moveRow(r, w);
+            w++;
+        }
+
+        // 2) 暂存区排序（只取仍在等待的）
+        int live = 0;
+        for (int i = 0; i < staged; i++) {
+            if (stagedStates.getInt(i << 2) != WAITING) continue;
+            sortKeys[live++] = ((long) stagedScores.getInt(i << 2) << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, live);
+
+        // 3) 从尾部归并：同分时主区（更早到达）在前
+        int out = w + live - 1;
+        int m = w - 1;
+        int k = live - 1;
+        while (k >= 0) {
+            int si = (int) sortKeys[k];
+            int stagedScore = (int) (sortKeys[k] >>> 32);
+            if (m >= 0 && scores.getInt(m << 2) > stagedScore) {
+                moveRow(m--, out--);
+            } else {
+                copyStaged(si, out--);
+                k--;
+            }
+        }
+        size = w + live;
+        staged = 0;
+    }
+
+    private void moveRow(int from, int to) {
+        int f = from << 2, t = to << 2;
+        scores.putInt(t, scores.getInt(f));
+        ranges.putInt(t, ranges.getInt(f));
+        states.putInt(t, states.getInt(f));
+        enqueued.putLong(to << 3, enqueued.getLong(from << 3));
+        int id = users.getInt(f);
+        users.putInt(t, id);
+        slotOf[id] = to;
+    }
+
+    private void copyStaged(int from, int to) {
+        int f = from << 2, t = to << 2;
+        scores.putInt(t, stagedScores.getInt(f));
+        ranges.putInt(t, stagedRanges.getInt(f));
+        states.putInt(t, WAITING);
+        enqueued.putLong(to << 3, stagedEnqueued.getLong(from << 3));
+        int id = stagedUsers.getInt(f);
+        users.putInt(t, id);
+        slotOf[id] = to;
+    }
+
+    // ========== 匹配 ==========
+
+    /**
+     * 在已归并的主区上匹配：每个 WAITING 的 i 与其后第一个满足双方 range 的 WAITING j 配对，语义同 {@link MatchKernel#match}
+     * @return 本轮配对数
+     */
+    public int match(MatchKernel kernel, List<MatchPair> out, MatchMetrics metrics, long nowMs) {
+        int produced = 0;
+        for (int a = 0; a < size; a++) {
+            int offA = a << 2;
+            if (states.getInt(offA) != WAITING) continue;
+            int scoreI = scores.getInt(offA);
+            int rangeI = ranges.getInt(offA);
+            int upTo = lowerBound(a + 1, (int) Math.min(Integer.MAX_VALUE, (long) scoreI + rangeI + 1));
+            if (upTo <= a + 1) continue;
+
+            int j = kernel.firstCandidate(scoreBuf, rangeBuf, stateBuf, a + 1, upTo, scoreI, WAITING);
+            if (j < 0) continue;
+
+            int offJ = j << 2;
+            states.putInt(offA, MATCHED);
+            states.putInt(offJ, MATCHED);
+            int idA = users.getInt(offA);
+            int idJ = users.getInt(offJ);
+
+            MatchPair pair = new MatchPair();
+            pair.init(names[idJ], channels[idJ], scores.getInt(offJ), ranges.getInt(offJ),
+                    names[idA], channels[idA], scoreI, rangeI);
+            out.add(pair);
+            if (metrics != null) {
+                metrics.recordMatched(enqueued.getLong(j << 3), nowMs);
+                metrics.recordMatched(enqueued.getLong(a << 3), nowMs);
+            }
+            releaseId(idA);
+            releaseId(idJ);
+            produced++;
+        }
+        return produced;
+    }
+
+    /**
+     * 第一个 score ≥ value 的主区下标，范围 [from, size]
+     */
+    private int lowerBound(int from, int value) {
+        int lo = from, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (scores.getInt(mid << 2) < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ========== id 表 ==========
+
+    private int allocateId(String username) {
+        int id;
+        if (!freeIds.isEmpty()) {
+            id = freeIds.popInt();
+        } else {
+            id = nextId++;
+            if (id == names.length) {
+                int n = Math.min(capacity + 1, names.length << 1);
+                names = Arrays.copyOf(names, n);
+                channels = Arrays.copyOf(channels, n);
+                modes = Arrays.copyOf(modes, n);
+                slotOf = Arrays.copyOf(slotOf, n);
+            }
+        }
+        names[id] = username;
+        ids.put(username, id);
+        return id;
+    }
+
+    private void releaseId(int id) {
+        ids.removeKey(names[id]);
+        names[id] = null;
+        channels[id] = null;
+        modes[id] = null;
+        slotOf[id] = NO_SLOT;
+        freeIds.pushInt(id);
+    }
+
+    private void markRow(int slot, int state) {
+        if (slot >= 0) {
+            states.putInt(slot << 2, state);
+        } else if (slot != NO_SLOT) {
+            stagedStates.putInt((-slot - 2) << 2, state);
+        }
+    }
+
+    /**
+     * 释放堆外内存，之后不可再用
+     */
+    public void free() {
+        for (ByteBuffer b : new ByteBuffer[]{scoreBuf, rangeBuf, stateBuf, enqueuedBuf, userBuf,
+                stagedScoreBuf, stagedRangeBuf, stagedStateBuf, stagedEnqueuedBuf, stagedUserBuf}) {
+            BufferUtil.free(b);
+        }
+    }
+}
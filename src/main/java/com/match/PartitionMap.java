@@ -0,0 +1,39 @@
+package com.match;
+
+/**
+ * 集群分数分区：把 [0, maxScore] 等宽切成 nodeCount 段，第 i 段归节点 i 所有
+ */
+public class PartitionMap {
+    private final int nodeCount;
+    private final int maxScore;
+    private final int width;
+
+    public PartitionMap(int nodeCount, int maxScore) {
+        if (nodeCount <= 0) throw new IllegalArgumentException("nodeCount must be positive");
+        this.nodeCount = nodeCount;
+        this.maxScore = maxScore;
+        this.width = (maxScore + nodeCount) / nodeCount;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * 分数所属节点
+     */
+    public int ownerOf(int score) {
+        int s = Math.max(0, Math.min(maxScore, score));
+        return Math.min(nodeCount - 1, s / width);
+    }
+
+    /** 节点分区下界（含） */
+    public int lowerBound(int nodeId) {
+        return nodeId * width;
+    }
+
+    /** 节点分区上界（含） */
+    public int upperBound(int nodeId) {
+        return nodeId == nodeCount - 1 ? maxScore : (nodeId + 1) * width - 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.match;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 组队排队：整队在桶中只占一个槽位（队长的 {@link MatchEvent}），以队伍分数匹配，
+ * 只与人数相同的队伍配对（单人即 1 人队）；配对通知在同一个 Disruptor 事件中推送给全部成员
+ * @param rating     队伍分数（由客户端汇总）
+ * @param matchRange 可接受的分差
+ * @param members    成员，第一个为队长
+ */
+public record Party(int rating, int matchRange, List<Member> members) {
+
+    public record Member(String username, String channelId) {
+    }
+
+    public Party {
+        if (members == null || members.isEmpty()) throw new IllegalArgumentException("party has no members");
+        members = List.copyOf(members);
+    }
+
+    /**
+     * 由队长的提交帧组队：其余成员按用户名查连接
+     * @param channelOf 用户名 -> channelId，未上线或未同意加入返回 null
+     * @return 超过 maxSize、成员重复或有成员未上线 / 未同意时返回 null
+     */
+    public static Party of(String leader, String leaderChannel, int rating, int matchRange,
+                           List<String> others, Function<String, String> channelOf, int maxSize) {
+        if (leader == null || others.size() + 1 > maxSize) return null;
+        List<Member> members = new ArrayList<>(others.size() + 1);
+        members.add(new Member(leader, leaderChannel));
+        Set<String> seen = new HashSet<>();
+        seen.add(leader);
+        for (String name : others) {
+            if (name == null || !seen.add(name)) return null;
+            String channelId = channelOf.apply(name);
+            if (channelId == null) return null;
+            members.add(new Member(name, channelId));
+        }
+        return new Party(rating, matchRange, members);
+    }
+
+    public Member leader() {
+        return members.get(0);
+    }
+
+    public int size() {
+        return members.size();
+    }
+}
@@ -4,8 +4,18 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+import java.util.Map;
+
 @Getter
 public class Player {
+    public static final String ACTION_CANCEL = "cancel";
+    public static final String ACTION_LEAVE = "leave";
+    public static final String ACTION_ACCEPT = "accept";
+    public static final String ACTION_DECLINE = "decline";
+    // 只上报用户名并绑定连接；组队成员带 leader 表示同意加入该队长的队伍
+    public static final String ACTION_HELLO = "hello";
+
     @Override
     public String toString() {
         return username + ":" + score + ":" + matchRange + ":" + mode;
@@ -15,6 +25,18 @@ public class Player {
     private volatile int score;  // 改为基本类型提升性能
     private volatile int matchRange;
     private volatile String mode;
+    // 区域名（match.regions 之一）；为空时按 pings 中延迟最低的区域，都没有则不限区域
+    private volatile String region;
+    // 区域名 -> 往返延迟（毫秒），客户端测得
+    private volatile Map<String, Integer> pings;
+    // 组队排队：其余成员的用户名（成员须已在各自连接上发过带 leader 的 hello），score 为队伍分数
+    private volatile List<String> party;
+    // hello 帧：同意加入该队长的队伍，为空表示撤回
+    private volatile String leader;
+    // 为空或 join 表示排队；cancel / leave 表示取消排队；accept / decline 为确认阶段应答
+    private volatile String action;
+    // 确认阶段应答所针对的 match_found.matchId（十六进制）
+    private volatile String matchId;
     @Setter
     private volatile String channelId;
 
@@ -39,5 +61,25 @@ public class Player {
 
     }
 
+    public boolean hasParty() {
+        return party != null && !party.isEmpty();
+    }
+
+    public boolean isHello() {
+        return ACTION_HELLO.equalsIgnoreCase(action);
+    }
+
+    public boolean wantsCancel() {
+        return ACTION_CANCEL.equalsIgnoreCase(action) || ACTION_LEAVE.equalsIgnoreCase(action);
+    }
+
+    public boolean wantsAccept() {
+        return ACTION_ACCEPT.equalsIgnoreCase(action);
+    }
+
+    public boolean wantsDecline() {
+        return ACTION_DECLINE.equalsIgnoreCase(action);
+    }
+
 
 }
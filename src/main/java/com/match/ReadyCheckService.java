@@ -0,0 +1,288 @@
+package com.match;
+
+import org.agrona.concurrent.ManyToOneConcurrentLinkedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 匹配确认阶段：配对发出后双方须在 window 内 accept，否则作废。
+ * 1. 超时由哈希时间轮跟踪：tickMs 一格、wheelSize 格，每个配对只是槽内单链表上的一个节点，不占 ScheduledFuture
+ * 2. 登记（matcher 线程）先进无锁 MPSC 队列，下一 tick 由时间轮线程挂到对应槽；accept / decline 只 CAS 节点状态，
+ *    已结束的节点在其槽到期时顺带摘除
+ * 3. 拒绝或超时后，已接受（拒绝时为未拒绝）的一方带原入队时间重新排队，保持等待优先级
+ */
+public class ReadyCheckService {
+    private static final Logger log = LoggerFactory.getLogger(ReadyCheckService.class);
+
+    public static final String CONFIRMED = "match_confirmed";
+    public static final String CANCELLED = "match_cancelled";
+
+    static final int ACCEPT_A = 1;
+    static final int ACCEPT_B = 2;
+    static final int DONE = 4;
+
+    private final long windowMs;
+    private final long tickMs;
+    private final int mask;
+    private final Entry[] wheel;
+    private final ConcurrentHashMap<Long, Entry> outstanding = new ConcurrentHashMap<>();
+    private final ManyToOneConcurrentLinkedQueue<Entry> registrations = new ManyToOneConcurrentLinkedQueue<>();
+
+    private final MatchEngine engine;
+    private final DisruptorNotificationService notifier;
+    private final MatchMetrics metrics;
+    private final MatchClock clock;
+    private final CycleDriver driver;
+
+    // 以下仅由时间轮线程访问
+    private final long startMs;
+    private long currentTick;
+
+    public ReadyCheckService(MatchProperties props, MatchEngine engine, DisruptorNotificationService notifier) {
+        this(props.getReadyCheckWindow().toMillis(), props.getReadyCheckTick().toMillis(), props.getReadyCheckWheelSize(),
+                engine, notifier, MatchClock.SYSTEM, new ScheduledCycleDriver());
+    }
+
+    public ReadyCheckService(long windowMs, long tickMs, int wheelSize,
+                             MatchEngine engine, DisruptorNotificationService notifier,
+                             MatchClock clock, CycleDriver driver) {
+        this.windowMs = windowMs;
+        this.tickMs = Math.max(1, tickMs);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Entry[size];
+        this.mask = size - 1;
+        this.engine = engine;
+        this.notifier = notifier;
+        this.metrics = notifier.getMetrics();
+        this.clock = clock;
+        this.driver = driver;
+        this.startMs = clock.millis();
+        driver.scheduleAtFixedRate(this::tick, this.tickMs, this.tickMs);
+    }
+
+    /**
+     * 时间轮节点
+     */
+    static final class Entry {
+        private static final VarHandle STATE;
+
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(Entry.class, "state", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final MatchPair pair;
+        final long deadline;
+        volatile int state;
+        // 以下仅由时间轮线程访问
+        long rounds;
+        Entry next;
+
+        Entry(MatchPair pair, long deadline) {
+            this.pair = pair;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 置位，已结束返回 -1，否则返回置位后的状态
+         */
+        int set(int bits) {
+            int prev;
+            do {
+                prev = state;
+                if ((prev & DONE) != 0) return -1;
+            } while (!STATE.compareAndSet(this, prev, prev | bits));
+            return prev | bits;
+        }
+    }
+
+    // ========== 登记与应答 ==========
+
+    /**
+     * 登记配对，应在通知发出之前调用
+     * @return 分配的 matchId
+     */
+    public long register(MatchPair pair) {
+        long id = pair.assignMatchId();
+        Entry e = new Entry(pair, clock.millis() + windowMs);
+        outstanding.put(id, e);
+        registrations.offer(e);
+        return id;
+    }
+
+    public boolean accept(long matchId, String username, String channelId) {
+        Entry e = outstanding.get(matchId);
+        if (e == null) return false;
+        int side = sideOf(e.pair, username, channelId);
+        if (side == 0) return false;
+        int s = e.set(side);
+        if (s < 0) return false;
+        if ((s & (ACCEPT_A | ACCEPT_B)) == (ACCEPT_A | ACCEPT_B) && e.set(DONE) >= 0) {
+            confirm(matchId, e);
+        }
+        return true;
+    }
+
+    public boolean decline(long matchId, String username, String channelId) {
+        Entry e = outstanding.get(matchId);
+        if (e == null) return false;
+        int side = sideOf(e.pair, username, channelId);
+        if (side == 0) return false;
+        int s = e.set(DONE);
+        if (s < 0) return false;
+        outstanding.remove(matchId, e);
+        metrics.recordReadyCheck(MatchMetrics.READY_DECLINED);
+        MatchPair p = e.pair;
+        // 拒绝者出队，另一方无过错，无论是否已接受都重新排队
+        finish(matchId, p, side == ACCEPT_A, side == ACCEPT_B, side != ACCEPT_A, side != ACCEPT_B);
+        return true;
+    }
+
+    /**
+     * 停机收尾：作废全部待确认配对，双方都无过错，均带原入队时间重新排队
+     * @return 作废的配对数
+     */
+    public int cancelAll() {
+        int cancelled = 0;
+        for (var it = outstanding.entrySet().iterator(); it.hasNext(); ) {
+            var en = it.next();
+            Entry e = en.getValue();
+            if (e.set(DONE) < 0) continue;
+            it.remove();
+            finish(en.getKey(), e.pair, false, false, true, true);
+            cancelled++;
+        }
+        return cancelled;
+    }
+
+    /**
+     * 仍在等待确认的配对数
+     */
+    public int outstanding() {
+        return outstanding.size();
+    }
+
+    private static int sideOf(MatchPair p, String username, String channelId) {
+        if (username == null) return 0;
+        if (username.equals(p.getUserA()) && sameChannel(channelId, p.getChannelA())) return ACCEPT_A;
+        if (username.equals(p.getUserB()) && sameChannel(channelId, p.getChannelB())) return ACCEPT_B;
+        return 0;
+    }
+
+    private static boolean sameChannel(String given, String expected) {
+        return given == null || expected == null || given.equals(expected);
+    }
+
+    private void confirm(long matchId, Entry e) {
+        outstanding.remove(matchId, e);
+        metrics.recordReadyCheck(MatchMetrics.READY_CONFIRMED);
+        notifyStatus(e.pair.getPartyA(), e.pair.getChannelA(), CONFIRMED, matchId, false);
+        notifyStatus(e.pair.getPartyB(), e.pair.getChannelB(), CONFIRMED, matchId, false);
+    }
+
+    private void expire(long matchId, Entry e, int state) {
+        outstanding.remove(matchId, e);
+        metrics.recordReadyCheck(MatchMetrics.READY_TIMEOUT);
+        // 只有已接受的一方重新排队
+        finish(matchId, e.pair, false, false, (state & ACCEPT_A) != 0, (state & ACCEPT_B) != 0);
+    }
+
+    /**
+     * 组队由队长应答；作废后不重新排队（需重新组队提交），结果推送给全部成员
+     */
+    private void finish(long matchId, MatchPair p, boolean dropA, boolean dropB, boolean requeueA, boolean requeueB) {
+        requeueA &= p.getPartyA() == null;
+        requeueB &= p.getPartyB() == null;
+        boolean a = !dropA && requeueA && engine.requeue(p.getUserA(), p.getScoreA(), p.getRangeA(),
+                p.getModeA(), p.getRegionA(), p.getChannelA(), p.getEnqueuedAtA());
+        boolean b = !dropB && requeueB && engine.requeue(p.getUserB(), p.getScoreB(), p.getRangeB(),
+                p.getModeB(), p.getRegionB(), p.getChannelB(), p.getEnqueuedAtB());
+        notifyStatus(p.getPartyA(), p.getChannelA(), CANCELLED, matchId, a);
+        notifyStatus(p.getPartyB(), p.getChannelB(), CANCELLED, matchId, b);
+    }
+
+    private void notifyStatus(Party party, String channelId, String type, long matchId, boolean requeued) {
+        if (party == null) {
+            notifier.notifyStatus(channelId, type, matchId, requeued);
+            return;
+        }
+        for (Party.Member m : party.members()) notifier.notifyStatus(m.channelId(), type, matchId, requeued);
+    }
+
+    // ========== 时间轮 ==========
+
+    /**
+     * 推进到当前时间：挂入新登记，逐格处理到期槽
+     */
+    void tick() {
+        try {
+            long now = clock.millis();
+            long target = (now - startMs) / tickMs;
+            while (currentTick <= target) {
+                transferRegistrations();
+                expireSlot((int) (currentTick & mask));
+                currentTick++;
+            }
+        } catch (Throwable t) {
+            log.error("ready-check tick failed", t);
+        }
+    }
+
+    private void transferRegistrations() {
+        Entry e;
+        while ((e = registrations.poll()) != null) {
+            if ((e.state & DONE) != 0) continue;
+            // 截止时间所在的 tick，已过期的放进当前格
+            long due = Math.max(currentTick, ceilDiv(e.deadline - startMs, tickMs));
+            e.rounds = (due - currentTick) / wheel.length;
+            int slot = (int) (due & mask);
+            e.next = wheel[slot];
+            wheel[slot] = e;
+        }
+    }
+
+    private void expireSlot(int slot) {
+        Entry prev = null;
+        Entry e = wheel[slot];
+        while (e != null) {
+            Entry next = e.next;
+            boolean unlink;
+            if ((e.state & DONE) != 0) {
+                unlink = true;
+            } else if (e.rounds > 0) {
+                e.rounds--;
+                unlink = false;
+            } else {
+                unlink = true;
+                // 以置位 DONE 时原子替换掉的状态为准，之前读到的状态可能漏掉刚落下的接受
+                int s = e.set(DONE);
+                if (s >= 0) {
+                    expire(e.pair.getMatchId(), e, s);
+                }
+            }
+            if (unlink) {
+                if (prev == null) wheel[slot] = next;
+                else prev.next = next;
+                e.next = null;
+            } else {
+                prev = e;
+            }
+            e = next;
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    public void stop() {
+        driver.shutdown();
+    }
+}
@@ -0,0 +1,125 @@
+package com.match;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分数 × 区域 二维匹配。桶本身是分数段，本类在每批内再按区域分格，网格单元即 (分数段, 区域)：
+ * <ol>
+ *     <li>各区域格内用当前 {@link MatchKernel} 按分数匹配（向量化的分数过滤），同区域优先成对</li>
+ *     <li>不限区域格（未声明区域、或等待超过 relaxAfterMs 后放宽的玩家）与各区域格的剩余者跨格匹配</li>
+ *     <li>不限区域格内部互相匹配</li>
+ * </ol>
+ * 区域条件由分格保证，核内只比较分数；全批落在同一格时与一维管线完全相同。
+ * 区域编码：regions 中第 i 个为 i + 1，0 表示不限区域。
+ */
+public class RegionGrid {
+    public static final int ANY = 0;
+
+    private final List<String> regions;
+    private final long relaxAfterMs;
+
+    public RegionGrid(List<String> regions, long relaxAfterMs) {
+        if (regions.isEmpty()) throw new IllegalArgumentException("regions must not be empty");
+        this.regions = List.copyOf(regions);
+        this.relaxAfterMs = relaxAfterMs;
+    }
+
+    /**
+     * match.regions 为空时返回 null（只按分数匹配）
+     */
+    public static RegionGrid from(MatchProperties props) {
+        List<String> regions = props.getRegions();
+        if (regions == null || regions.isEmpty()) return null;
+        return new RegionGrid(regions, props.getRegionRelaxAfter().toMillis());
+    }
+
+    public List<String> regions() {
+        return regions;
+    }
+
+    public long relaxAfterMs() {
+        return relaxAfterMs;
+    }
+
+    /**
+     * 区域名 -> 编码，大小写不敏感；为空或不在列表中返回 {@link #ANY}
+     */
+    public static int code(List<String> regions, String region) {
+        if (region == null) return ANY;
+        for (int i = 0; i < regions.size(); i++) {
+            if (regions.get(i).equalsIgnoreCase(region)) return i + 1;
+        }
+        return ANY;
+    }
+
+    /**
+     * 客户端声明的区域优先；未声明时取 ping 最低的已知区域，都没有则不限区域
+     * @param pings 区域名 -> 往返延迟（毫秒），可为 null
+     */
+    public static int resolve(List<String> regions, String region, Map<String, Integer> pings) {
+        int code = code(regions, region);
+        if (code != ANY || pings == null || pings.isEmpty()) return code;
+        int best = ANY;
+        int bestPing = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> p : pings.entrySet()) {
+            Integer ms = p.getValue();
+            if (ms == null || ms < 0 || ms >= bestPing) continue;
+            int c = code(regions, p.getKey());
+            if (c != ANY) {
+                best = c;
+                bestPing = ms;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 事件当前所在的区域格：未知区域或已等够 relaxAfterMs 的落入 {@link #ANY}
+     */
+    int cellOf(MatchEvent e, long now) {
+        int region = e.getRegion();
+        if (region <= ANY || region > regions.size()) return ANY;
+        if (relaxAfterMs > 0 && now - e.getEnqueuedAt() >= relaxAfterMs) return ANY;
+        return region;
+    }
+
+    /**
+     * 在按分数排好序的批次上匹配，语义见类注释
+     */
+    public void match(SortedBatch b, long now, List<MatchPair> pairs) {
+        int n = b.n;
+        int cells = regions.size() + 1;
+        int[] cellOf = new int[n];
+        int[] counts = new int[cells];
+        for (int i = 0; i < n; i++) {
+            int c = cellOf(b.event(i), now);
+            cellOf[i] = c;
+            counts[c]++;
+        }
+        // 单区域 / 全部已放宽：无需分格
+        for (int c = 0; c < cells; c++) {
+            if (counts[c] == n) {
+                VectorizedMatchPipeline.processSorted(b, pairs);
+                return;
+            }
+        }
+
+        SortedBatch[] grid = b.partition(cellOf, cells);
+        for (int c = 1; c < cells; c++) {
+            if (counts[c] >= 2) VectorizedMatchPipeline.processSorted(grid[c], pairs);
+        }
+        SortedBatch any = grid[ANY];
+        if (any == null) return;
+        MatchKernel kernel = VectorizedMatchPipeline.kernel();
+        for (int c = 1; c < cells; c++) {
+            if (grid[c] != null) kernel.matchCross(any, grid[c], pairs);
+        }
+        if (any.n >= 2) VectorizedMatchPipeline.processSorted(any, pairs);
+    }
+
+    @Override
+    public String toString() {
+        return "RegionGrid{regions=" + regions + ", relaxAfterMs=" + relaxAfterMs + '}';
+    }
+}
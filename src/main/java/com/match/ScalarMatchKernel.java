@@ -0,0 +1,94 @@
+package com.match;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 标量实现：逐个比较，语义与 {@link VectorMatchKernel} 完全一致
+ */
+public class ScalarMatchKernel implements MatchKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void match(SortedBatch b, List<MatchPair> pairs) {
+        int n = b.n;
+        int[] scores = b.scores;
+        int[] ranges = b.ranges;
+        for (int a = 0; a < n; a++) {
+            MatchEvent ei = b.event(a);
+            // 只有处于 PROCESSING 的才有机会
+            if (ei.getStateCode() != MatchEvent.PROCESSING) continue;
+
+            int scoreI = scores[a];
+            int rangeI = ranges[a];
+            // 第一个 > scoreI + rangeI 的位置
+            int upTo = b.lowerBound(a + 1, scoreI + rangeI + 1);
+
+            for (int j = a + 1; j < upTo; j++) {
+                // 已排序，scoreJ - scoreI ≥ 0 且 ≤ rangeI
+                if (scores[j] - scoreI > ranges[j]) continue;
+                if (MatchKernel.claimPair(b, a, b, j, pairs) != CANDIDATE_LOST) break;
+            }
+        }
+    }
+
+    @Override
+    public void matchByAge(SortedBatch b, int[] order, List<MatchPair> pairs) {
+        int[] scores = b.scores;
+        int[] ranges = b.ranges;
+        for (int a : order) {
+            MatchEvent ei = b.event(a);
+            if (ei.getStateCode() != MatchEvent.PROCESSING) continue;
+
+            int scoreI = scores[a];
+            int rangeI = ranges[a];
+            int from = b.lowerBound(0, scoreI - rangeI);
+            int upTo = b.lowerBound(from, scoreI + rangeI + 1);
+
+            for (int j = from; j < upTo; j++) {
+                if (j == a) continue;
+                int diff = scores[j] - scoreI;
+                if (diff > ranges[j] || -diff > ranges[j]) continue;
+                if (MatchKernel.claimPair(b, a, b, j, pairs) != CANDIDATE_LOST) break;
+            }
+        }
+    }
+
+    @Override
+    public void matchCross(SortedBatch a, SortedBatch b, List<MatchPair> pairs) {
+        int[] scoresB = b.scores;
+        int[] rangesB = b.ranges;
+        for (int i = 0; i < a.n; i++) {
+            MatchEvent ei = a.event(i);
+            if (ei.getStateCode() != MatchEvent.PROCESSING) continue;
+
+            int scoreI = a.scores[i];
+            int rangeI = a.ranges[i];
+            // B 范围二分：[scoreI-rangeI, scoreI+rangeI]
+            int start = b.lowerBound(0, scoreI - rangeI);
+            int end = b.lowerBound(start, scoreI + rangeI + 1);
+
+            for (int j = start; j < end; j++) {
+                if (Math.abs(scoresB[j] - scoreI) > rangesB[j]) continue;
+                // 先占 A 侧锚点再占 B，失败回滚
+                if (MatchKernel.claimPair(a, i, b, j, pairs) != CANDIDATE_LOST) break;
+            }
+        }
+    }
+
+    @Override
+    public int firstCandidate(ByteBuffer scores, ByteBuffer ranges, ByteBuffer states,
+                              int from, int to, int score, int liveState) {
+        for (int j = from; j < to; j++) {
+            int off = j << 2;
+            if (states.getInt(off) == liveState && scores.getInt(off) - score <= ranges.getInt(off)) {
+                return j;
+            }
+        }
+        return -1;
+    }
+}
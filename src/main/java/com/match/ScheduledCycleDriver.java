@@ -0,0 +1,40 @@
+package com.match;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 ScheduledExecutorService 的实时调度，与原先引擎内置的调度行为一致
+ */
+public class ScheduledCycleDriver implements CycleDriver {
+    private final ScheduledExecutorService scheduler;
+
+    public ScheduledCycleDriver() {
+        this(Executors.newScheduledThreadPool(1));
+    }
+
+    public ScheduledCycleDriver(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void scheduleWithFixedDelay(Runnable task, long initialDelayMs, long delayMs) {
+        scheduler.scheduleWithFixedDelay(task, initialDelayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void scheduleAtFixedRate(Runnable task, long initialDelayMs, long periodMs) {
+        scheduler.scheduleAtFixedRate(task, initialDelayMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
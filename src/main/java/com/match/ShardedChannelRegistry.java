@@ -1,6 +1,8 @@
 package com.match;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
@@ -16,6 +18,11 @@ public class ShardedChannelRegistry {
     // 分片数，最好是 2 的幂：64、128、256，根据你机器内存/CPU 调节
     private static final int SHARD_COUNT = 128;
     private final ConcurrentHashMap<String, ChannelHandlerContext>[] shards;
+    // username -> channelId，组队提交时定位各成员的连接
+    private final ConcurrentHashMap<String, String> users = new ConcurrentHashMap<>();
+    private static final AttributeKey<String> USERNAME = AttributeKey.valueOf("match.username");
+    // 成员同意加入的队长用户名（hello 帧的 leader）
+    private static final AttributeKey<String> LEADER = AttributeKey.valueOf("match.leader");
 
     @SuppressWarnings("unchecked")
     public ShardedChannelRegistry() {
@@ -40,6 +47,47 @@ public class ShardedChannelRegistry {
     public void unregister(ChannelHandlerContext ch) {
         String id = ch.channel().id().asLongText();
         shards[shardIndex(id)].remove(id);
+        String username = ch.channel().attr(USERNAME).get();
+        if (username != null) users.remove(username, id);
+    }
+
+    /**
+     * 连接第一次上报用户名时绑定，此后不再改变；该用户名已绑定在另一条连接上时不绑定，
+     * 任何连接都不能顶替别人的用户名
+     * @return 连接已绑定的用户名，未绑定返回 null
+     */
+    public String bindUser(ChannelHandlerContext ch, String username) {
+        Attribute<String> attr = ch.channel().attr(USERNAME);
+        String bound = attr.get();
+        if (bound != null || username == null) return bound;
+        String id = ch.channel().id().asLongText();
+        if (users.putIfAbsent(username, id) != null) return null;
+        attr.set(username);
+        return username;
+    }
+
+    /**
+     * 成员同意加入 leader 带的队伍，leader 为空表示撤回
+     */
+    public void joinParty(ChannelHandlerContext ch, String leader) {
+        ch.channel().attr(LEADER).set(leader);
+    }
+
+    /**
+     * 已同意加入 leader 队伍的成员的 channelId；未绑定、已下线或未同意返回 null
+     */
+    public String memberChannel(String username, String leader) {
+        String id = channelOf(username);
+        if (id == null || leader == null) return null;
+        ChannelHandlerContext ctx = shards[shardIndex(id)].get(id);
+        return ctx != null && leader.equals(ctx.channel().attr(LEADER).get()) ? id : null;
+    }
+
+    /**
+     * 用户当前连接的 channelId，未上报过返回 null
+     */
+    public String channelOf(String username) {
+        return username == null ? null : users.get(username);
     }
 
     public Mono<ChannelHandlerContext> get(String channelId) {
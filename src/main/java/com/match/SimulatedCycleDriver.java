@@ -0,0 +1,97 @@
+package com.match;
+
+import java.util.PriorityQueue;
+
+/**
+ * 确定性仿真调度：同时充当 {@link MatchClock}。
+ * 时间只在 {@link #advanceTo(long)} 时前进，到期任务在调用线程上按 (到期时间, 注册顺序) 依次执行，
+ * 任务执行期间时钟停在其到期时刻。非线程安全，只允许单线程驱动。
+ */
+public class SimulatedCycleDriver implements CycleDriver, MatchClock {
+
+    private static final class Task implements Comparable<Task> {
+        final Runnable body;
+        final long period;     // 0 表示一次性
+        final long seq;
+        long due;
+
+        Task(Runnable body, long due, long period, long seq) {
+            this.body = body;
+            this.due = due;
+            this.period = period;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = Long.compare(due, o.due);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now;
+    private long seq;
+    private boolean shutdown;
+
+    public SimulatedCycleDriver(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    /**
+     * 推进到 targetMillis，途中执行全部到期任务
+     * @return 执行的任务数
+     */
+    public int advanceTo(long targetMillis) {
+        int ran = 0;
+        Task t;
+        while (!shutdown && (t = tasks.peek()) != null && t.due <= targetMillis) {
+            tasks.poll();
+            now = Math.max(now, t.due);
+            t.body.run();
+            ran++;
+            if (t.period > 0) {
+                t.due += t.period;
+                tasks.add(t);
+            }
+        }
+        now = Math.max(now, targetMillis);
+        return ran;
+    }
+
+    public int advanceBy(long deltaMillis) {
+        return advanceTo(now + deltaMillis);
+    }
+
+    @Override
+    public void scheduleWithFixedDelay(Runnable task, long initialDelayMs, long delayMs) {
+        // 任务在仿真时间内瞬时完成，固定延迟与固定速率等价
+        tasks.add(new Task(task, now + initialDelayMs, Math.max(1, delayMs), seq++));
+    }
+
+    @Override
+    public void scheduleAtFixedRate(Runnable task, long initialDelayMs, long periodMs) {
+        tasks.add(new Task(task, now + initialDelayMs, Math.max(1, periodMs), seq++));
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        tasks.add(new Task(task, now + delayMs, 0, seq++));
+    }
+
+    @Override
+    public boolean concurrent() {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        tasks.clear();
+    }
+}
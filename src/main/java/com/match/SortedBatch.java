@@ -0,0 +1,146 @@
+package com.match;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按分数排序后的批次视图：原始事件 + 排序后的下标 / 分数 / 范围列
+ */
+public final class SortedBatch {
+    final MatchEvent[] events;
+    final int n;
+    final int[] idx;
+    final int[] scores;
+    final int[] ranges;
+    // 批内最大组队人数（子批次沿用父批次的值，为上界），1 表示全是单人
+    final int maxPartySize;
+
+    private SortedBatch(MatchEvent[] events, int n, int[] idx, int[] scores, int[] ranges, int maxPartySize) {
+        this.events = events;
+        this.n = n;
+        this.idx = idx;
+        this.scores = scores;
+        this.ranges = ranges;
+        this.maxPartySize = maxPartySize;
+    }
+
+    public static SortedBatch of(MatchEvent[] batch, int count) {
+        // (score << 32 | 下标) 排序：原始类型、无装箱，同分按原有顺序
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) batch[i].getScore() << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] idx = new int[count], scores = new int[count], ranges = new int[count];
+        int maxPartySize = 1;
+        for (int i = 0; i < count; i++) {
+            int k = (int) keys[i];
+            idx[i]    = k;
+            scores[i] = (int) (keys[i] >> 32);
+            ranges[i] = batch[k].getMatchRange();
+            maxPartySize = Math.max(maxPartySize, batch[k].getPartySize());
+        }
+        return new SortedBatch(batch, count, idx, scores, ranges, maxPartySize);
+    }
+
+    /**
+     * 拼接已各自排好序、分数区间首尾相接的若干批（如相邻桶），无需重新排序
+     */
+    public static SortedBatch concat(List<SortedBatch> parts) {
+        int total = 0;
+        int maxPartySize = 1;
+        for (SortedBatch p : parts) {
+            total += p.n;
+            maxPartySize = Math.max(maxPartySize, p.maxPartySize);
+        }
+        MatchEvent[] events = new MatchEvent[total];
+        int[] idx = new int[total], scores = new int[total], ranges = new int[total];
+        int off = 0;
+        for (SortedBatch p : parts) {
+            for (int i = 0; i < p.n; i++) {
+                events[off + i] = p.event(i);
+                idx[off + i] = off + i;
+            }
+            System.arraycopy(p.scores, 0, scores, off, p.n);
+            System.arraycopy(p.ranges, 0, ranges, off, p.n);
+            off += p.n;
+        }
+        return new SortedBatch(events, total, idx, scores, ranges, maxPartySize);
+    }
+
+    /**
+     * 按 cellOf[位置] ∈ [0, cells) 拆成子批次，格内保持分数序；空格为 null
+     */
+    SortedBatch[] partition(int[] cellOf, int cells) {
+        int[] counts = new int[cells];
+        for (int i = 0; i < n; i++) counts[cellOf[i]]++;
+        int[] start = new int[cells];
+        for (int c = 1; c < cells; c++) start[c] = start[c - 1] + counts[c - 1];
+        int[] fill = start.clone();
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) positions[fill[cellOf[i]]++] = i;
+
+        SortedBatch[] out = new SortedBatch[cells];
+        for (int c = 0; c < cells; c++) {
+            if (counts[c] > 0) out[c] = select(positions, start[c], counts[c]);
+        }
+        return out;
+    }
+
+    /**
+     * 取出 positions[from, from + count) 指向的位置组成子批次（位置须升序，保持分数有序），共享原事件数组
+     */
+    SortedBatch select(int[] positions, int from, int count) {
+        int[] subIdx = new int[count], subScores = new int[count], subRanges = new int[count];
+        for (int i = 0; i < count; i++) {
+            int p = positions[from + i];
+            subIdx[i]    = idx[p];
+            subScores[i] = scores[p];
+            subRanges[i] = ranges[p];
+        }
+        return new SortedBatch(events, count, subIdx, subScores, subRanges, maxPartySize);
+    }
+
+    /**
+     * 批内位置按入队时间升序（等待最久者在前），同时入队按分数序
+     */
+    public int[] ageOrder() {
+        long base = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) base = Math.min(base, event(i).getEnqueuedAt());
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            long age = Math.min(Integer.MAX_VALUE, event(i).getEnqueuedAt() - base);
+            keys[i] = (age << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = (int) keys[i];
+        return order;
+    }
+
+    /**
+     * 第一个分数 ≥ value 的位置，范围 [from, n]
+     */
+    int lowerBound(int from, int value) {
+        int lo = from, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (scores[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    MatchEvent event(int sortedPos) {
+        return events[idx[sortedPos]];
+    }
+
+    /**
+     * 排序时取的分数 / 范围仍与事件一致，即期间没有被 {@link MatchEvent#update} 原地改写
+     */
+    boolean current(int sortedPos) {
+        MatchEvent e = event(sortedPos);
+        return e.getScore() == scores[sortedPos] && e.getMatchRange() == ranges[sortedPos];
+    }
+}
@@ -0,0 +1,122 @@
+package com.match;
+
+import org.agrona.collections.Object2ObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * username -> 当前排队事件 的分片索引：
+ * 每个分片是一张 Agrona 开放寻址表（无 Entry 对象），分片内以 synchronized 保护，
+ * 分片数取 2 的幂，按 username.hashCode() 定位，与 {@link ShardedChannelRegistry} 思路一致。
+ */
+public class UserIndex {
+
+    private final Object2ObjectHashMap<String, MatchEvent>[] shards;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    public UserIndex(int shardCount) {
+        int n = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        this.shards = new Object2ObjectHashMap[n];
+        for (int i = 0; i < n; i++) {
+            shards[i] = new Object2ObjectHashMap<>();
+        }
+        this.mask = n - 1;
+    }
+
+    private int shardIndex(String username) {
+        int h = username.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private Object2ObjectHashMap<String, MatchEvent> shard(String username) {
+        return shards[shardIndex(username)];
+    }
+
+    public MatchEvent get(String username) {
+        if (username == null) return null;
+        Object2ObjectHashMap<String, MatchEvent> s = shard(username);
+        synchronized (s) {
+            return s.get(username);
+        }
+    }
+
+    /**
+     * 若该用户没有仍在排队的事件，则登记 e；e 为组队时以全部成员名原子登记，任一成员冲突则都不登记
+     * @return null 表示已登记 e（username 为空时不登记）；否则返回仍在排队的旧事件
+     */
+    public MatchEvent claim(String username, MatchEvent e) {
+        if (username == null) return null;
+        Party party = e.getParty();
+        if (party != null) return claimAll(party, e);
+        Object2ObjectHashMap<String, MatchEvent> s = shard(username);
+        synchronized (s) {
+            MatchEvent live = s.get(username);
+            if (live != null && live != e && live.isWaiting()) {
+                return live;
+            }
+            s.put(username, e);
+            return null;
+        }
+    }
+
+    /**
+     * 按分片下标升序逐个加锁，与其他多分片登记不会死锁
+     */
+    private MatchEvent claimAll(Party party, MatchEvent e) {
+        int[] order = new int[party.size()];
+        for (int i = 0; i < order.length; i++) order[i] = shardIndex(party.members().get(i).username());
+        Arrays.sort(order);
+        return claimAll(party, e, order, 0);
+    }
+
+    private MatchEvent claimAll(Party party, MatchEvent e, int[] order, int k) {
+        if (k < order.length) {
+            if (k > 0 && order[k] == order[k - 1]) return claimAll(party, e, order, k + 1);
+            synchronized (shards[order[k]]) {
+                return claimAll(party, e, order, k + 1);
+            }
+        }
+        for (Party.Member m : party.members()) {
+            MatchEvent live = shard(m.username()).get(m.username());
+            if (live != null && live != e && live.isWaiting()) return live;
+        }
+        for (Party.Member m : party.members()) {
+            shard(m.username()).put(m.username(), e);
+        }
+        return null;
+    }
+
+    /**
+     * 仅当索引仍指向 e 时移除；e 为组队时一并移除仍指向 e 的成员
+     */
+    public boolean remove(String username, MatchEvent e) {
+        if (username == null) return false;
+        Party party = e.getParty();
+        if (party != null) {
+            boolean removed = false;
+            for (Party.Member m : party.members()) removed |= remove0(m.username(), e);
+            return removed;
+        }
+        return remove0(username, e);
+    }
+
+    private boolean remove0(String username, MatchEvent e) {
+        Object2ObjectHashMap<String, MatchEvent> s = shard(username);
+        synchronized (s) {
+            if (s.get(username) != e) return false;
+            s.remove(username);
+            return true;
+        }
+    }
+
+    public int size() {
+        int total = 0;
+        for (Object2ObjectHashMap<String, MatchEvent> s : shards) {
+            synchronized (s) {
+                total += s.size();
+            }
+        }
+        return total;
+    }
+}
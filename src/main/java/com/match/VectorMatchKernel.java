@@ -0,0 +1,195 @@
+package com.match;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Vector API 实现。只有本类引用 jdk.incubator.vector，
+ * 由 {@link VectorizedMatchPipeline} 反射加载，模块缺失时不影响其余类
+ */
+public class VectorMatchKernel implements MatchKernel {
+    private final VectorSpecies<Integer> species;
+
+    /**
+     * @param bits 向量位宽（128 / 256 / 512），0 表示平台首选
+     */
+    public VectorMatchKernel(int bits) {
+        this.species = bits <= 0
+                ? IntVector.SPECIES_PREFERRED
+                : VectorSpecies.of(int.class, VectorShape.forBitSize(bits));
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + species.vectorBitSize();
+    }
+
+    public int lanes() {
+        return species.length();
+    }
+
+    @Override
+    public void match(SortedBatch b, List<MatchPair> pairs) {
+        int n = b.n;
+        int[] sortedScores = b.scores;
+        int[] sortedRanges = b.ranges;
+        int lanes = species.length();
+        // 临时用于展开 VectorMask
+        boolean[] laneMask = new boolean[lanes];
+
+        // 对每个玩家 i，找到 score[i]+range[i] 的上界，扫描候选 j
+        for (int a = 0; a < n; a++) {
+            MatchEvent ei = b.event(a);
+            // 只有处于 PROCESSING 的才有机会
+            if (ei.getStateCode() != MatchEvent.PROCESSING) continue;
+
+            int scoreI = sortedScores[a];
+            int rangeI = sortedRanges[a];
+            int upTo = b.lowerBound(a + 1, scoreI + rangeI + 1);
+            if (upTo <= a + 1) continue;
+
+            // 扫描 [a+1, upTo) 区间，向量化比较 |scoreJ - scoreI| ≤ rangeI ∧ |scoreJ - scoreI| ≤ rangeJ
+            for (int j = a + 1; j < upTo; j += lanes) {
+                VectorMask<Integer> inRange  = species.indexInRange(j, upTo);
+                IntVector          vecScoreJ = IntVector.fromArray(species, sortedScores, j, inRange);
+                IntVector          vecRangeJ = IntVector.fromArray(species, sortedRanges, j, inRange);
+
+                // 计算 scoreJ - scoreI（非负，因为已排序）
+                IntVector diff = vecScoreJ.sub(scoreI);
+                // diff ≤ rangeI
+                VectorMask<Integer> m1 = diff.compare(VectorOperators.LE, rangeI);
+                // diff ≤ rangeJ
+                VectorMask<Integer> m2 = diff.compare(VectorOperators.LE, vecRangeJ);
+
+                VectorMask<Integer> matchMask = inRange.and(m1).and(m2);
+                if (!matchMask.anyTrue()) continue;
+
+                // 找到第一个匹配的 lane
+                matchMask.intoArray(laneMask, 0);
+                boolean done = false;
+                for (int lane = 0; lane < lanes && j + lane < upTo; lane++) {
+                    if (!laneMask[lane]) continue;
+                    // 先占锚点再占候选；候选已被占用（已匹配 / PARKED / 取消）则看下一个 lane
+                    if (MatchKernel.claimPair(b, a, b, j + lane, pairs) != CANDIDATE_LOST) {
+                        done = true;
+                        break; // i 只需与第一个符合的 j 配对，或锚点已不可配
+                    }
+                }
+                if (done) break; // 结束外层 j-loop
+            }
+        }
+    }
+
+    @Override
+    public void matchByAge(SortedBatch b, int[] order, List<MatchPair> pairs) {
+        int[] sortedScores = b.scores;
+        int[] sortedRanges = b.ranges;
+        int lanes = species.length();
+        boolean[] laneMask = new boolean[lanes];
+
+        for (int a : order) {
+            MatchEvent ei = b.event(a);
+            if (ei.getStateCode() != MatchEvent.PROCESSING) continue;
+
+            int scoreI = sortedScores[a];
+            int rangeI = sortedRanges[a];
+            // 锚点两侧：[scoreI - rangeI, scoreI + rangeI]
+            int from = b.lowerBound(0, scoreI - rangeI);
+            int upTo = b.lowerBound(from, scoreI + rangeI + 1);
+
+            boolean done = false;
+            for (int j = from; j < upTo && !done; j += lanes) {
+                VectorMask<Integer> inRange = species.indexInRange(j, upTo);
+                IntVector vecScoreJ = IntVector.fromArray(species, sortedScores, j, inRange);
+                IntVector vecRangeJ = IntVector.fromArray(species, sortedRanges, j, inRange);
+                IntVector diff = vecScoreJ.sub(scoreI);
+                // |diff| ≤ rangeI 已由二分保证，只需 |diff| ≤ rangeJ
+                VectorMask<Integer> matchMask = inRange
+                        .and(diff.compare(VectorOperators.LE, vecRangeJ))
+                        .and(diff.compare(VectorOperators.GE, vecRangeJ.neg()));
+                if (!matchMask.anyTrue()) continue;
+
+                matchMask.intoArray(laneMask, 0);
+                for (int lane = 0; lane < lanes && j + lane < upTo; lane++) {
+                    if (!laneMask[lane] || j + lane == a) continue;
+                    if (MatchKernel.claimPair(b, a, b, j + lane, pairs) != CANDIDATE_LOST) {
+                        done = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void matchCross(SortedBatch a, SortedBatch b, List<MatchPair> pairs) {
+        int[] sortedScoresB = b.scores;
+        int[] sortedRangesB = b.ranges;
+        int lanes = species.length();
+        boolean[] laneMask = new boolean[lanes];
+
+        for (int i = 0; i < a.n; i++) {
+            MatchEvent ei = a.event(i);
+            if (ei.getStateCode() != MatchEvent.PROCESSING) continue;
+
+            int scoreI = a.scores[i];
+            int rangeI = a.ranges[i];
+            // B 范围二分：[scoreI-rangeI, scoreI+rangeI]
+            int start = b.lowerBound(0, scoreI - rangeI);
+            int end = b.lowerBound(start, scoreI + rangeI + 1);
+            if (start >= end) continue;
+
+            boolean done = false;
+            for (int j = start; j < end && !done; j += lanes) {
+                VectorMask<Integer> inRange = species.indexInRange(j, end);
+                IntVector vecBScore = IntVector.fromArray(species, sortedScoresB, j, inRange);
+                IntVector vecBRange = IntVector.fromArray(species, sortedRangesB, j, inRange);
+                IntVector diff      = vecBScore.sub(scoreI);
+
+                // |diff| ≤ rangeI 已由二分保证，只需 |diff| ≤ rangeB
+                VectorMask<Integer> mB = diff.compare(VectorOperators.LE, vecBRange)
+                        .and(diff.compare(VectorOperators.GE, vecBRange.neg()));
+                VectorMask<Integer> matchMask = inRange.and(mB);
+                if (!matchMask.anyTrue()) continue;
+
+                matchMask.intoArray(laneMask, 0);
+                for (int lane = 0; lane < lanes && j + lane < end; lane++) {
+                    if (!laneMask[lane]) continue;
+                    // 先占 A 侧锚点再占 B；B 已被占用则看下一个候选，A 已不可配则换锚点
+                    if (MatchKernel.claimPair(a, i, b, j + lane, pairs) != CANDIDATE_LOST) {
+                        done = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int firstCandidate(ByteBuffer scores, ByteBuffer ranges, ByteBuffer states,
+                              int from, int to, int score, int liveState) {
+        ByteOrder order = ByteOrder.nativeOrder();
+        int lanes = species.length();
+        for (int j = from; j < to; j += lanes) {
+            VectorMask<Integer> inRange = species.indexInRange(j, to);
+            int off = j << 2;
+            // 直接从堆外列加载
+            IntVector vecScore = IntVector.fromByteBuffer(species, scores, off, order, inRange);
+            IntVector vecRange = IntVector.fromByteBuffer(species, ranges, off, order, inRange);
+            IntVector vecState = IntVector.fromByteBuffer(species, states, off, order, inRange);
+            VectorMask<Integer> m = inRange
+                    .and(vecState.compare(VectorOperators.EQ, liveState))
+                    .and(vecScore.sub(score).compare(VectorOperators.LE, vecRange));
+            int lane = m.firstTrue();
+            if (lane < lanes) return j + lane;
+        }
+        return -1;
+    }
+}
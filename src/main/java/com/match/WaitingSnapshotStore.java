@@ -0,0 +1,189 @@
+package com.match;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 等待玩家的内存映射快照：
+ * <pre>
+ * header : int magic | int version | long createdAt | int count
+ * record : int score | int matchRange | long enqueuedAt | u16 len + username(UTF-8) | u16 len + mode(UTF-8)
+ * </pre>
+ * 用户名或 mode 超过 65535 字节的记录无法表示长度，写入时跳过。
+ * 先写 .tmp 再原子替换，重启时整体映射读取并批量写回 {@link EnhancedMatchEngine} 各桶。
+ */
+public class WaitingSnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(WaitingSnapshotStore.class);
+
+    static final int MAGIC = 0x4D534E50; // "MSNP"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int RECORD_FIXED_BYTES = 4 + 4 + 8 + 2 + 2;
+    static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private final Path path;
+    private final Path tmpPath;
+    private final ScheduledExecutorService scheduler;
+
+    public WaitingSnapshotStore(Path path) {
+        this.path = path;
+        this.tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "waiting-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 周期性写快照
+     */
+    public void start(EnhancedMatchEngine engine, long intervalMs) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write(engine);
+            } catch (Exception e) {
+                log.error("snapshot write failed: {}", path, e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止周期快照，等待进行中的一次写完
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 写一次快照
+     * @return 写入的记录数
+     */
+    public int write(EnhancedMatchEngine engine) throws IOException {
+        List<MatchEvent> waiting = new ArrayList<>();
+        engine.visitWaiting(e -> {
+            // 组队不落盘，重启后重新组队
+            if (e.getParty() == null) waiting.add(e);
+        });
+        return write(waiting);
+    }
+
+    int write(List<MatchEvent> events) throws IOException {
+        int count = 0;
+        MatchEvent[] kept = new MatchEvent[events.size()];
+        byte[][] names = new byte[kept.length][];
+        byte[][] modes = new byte[kept.length][];
+        long size = HEADER_BYTES;
+        for (MatchEvent e : events) {
+            byte[] name = utf8(e.getUsername());
+            byte[] mode = utf8(e.getMode());
+            // 长度按无符号 short 写入，超长则跳过，避免截断后整份快照错位
+            if (name.length > MAX_STRING_BYTES || mode.length > MAX_STRING_BYTES) {
+                log.warn("skip snapshot record with oversized username/mode: {} / {} bytes", name.length, mode.length);
+                continue;
+            }
+            kept[count] = e;
+            names[count] = name;
+            modes[count] = mode;
+            size += RECORD_FIXED_BYTES + name.length + mode.length;
+            count++;
+        }
+
+        try (FileChannel ch = FileChannel.open(tmpPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putInt(count);
+            for (int i = 0; i < count; i++) {
+                MatchEvent e = kept[i];
+                buf.putInt(e.getScore()).putInt(e.getMatchRange()).putLong(e.getEnqueuedAt());
+                buf.putShort((short) names[i].length).put(names[i]);
+                buf.putShort((short) modes[i].length).put(modes[i]);
+            }
+            buf.force();
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * 读取快照；文件不存在或格式不符时返回空列表
+     */
+    public List<MatchEvent> read() throws IOException {
+        if (!Files.exists(path)) return List.of();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) return List.of();
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                log.warn("ignore snapshot with unknown layout: {}", path);
+                return List.of();
+            }
+            buf.getLong(); // createdAt
+            int count = buf.getInt();
+            List<MatchEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int score = buf.getInt();
+                int range = buf.getInt();
+                long enqueuedAt = buf.getLong();
+                String username = readString(buf);
+                String mode = readString(buf);
+                MatchEvent e = new MatchEvent();
+                e.init(username, score, range, mode, null);
+                e.setEnqueuedAt(enqueuedAt);
+                events.add(e);
+            }
+            return events;
+        }
+    }
+
+    /**
+     * 启动时恢复：读取快照并批量写回引擎
+     */
+    public int restoreInto(EnhancedMatchEngine engine, Duration resumeWindow) {
+        try {
+            long start = System.nanoTime();
+            List<MatchEvent> events = read();
+            if (events.isEmpty()) return 0;
+            int restored = engine.restore(events, resumeWindow);
+            log.info("restored {} waiting players from {} in {} ms",
+                    restored, path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return restored;
+        } catch (IOException e) {
+            log.error("snapshot restore failed: {}", path, e);
+            return 0;
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        if (len == 0) return null;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -9,6 +9,7 @@ import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
 
@@ -20,7 +21,10 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<TextWebSocketF
     private static final Logger log = LoggerFactory.getLogger(WebSocketHandler.class);
 
     private final ShardedChannelRegistry shardedChannelRegistry;
-    private final EnhancedMatchEngine enhancedMatchEngine;
+    private final MatchEngine matchEngine;
+    // match.ready-check-enabled=false 时不存在
+    private final ObjectProvider<ReadyCheckService> readyCheck;
+    private final MatchProperties props;
 
 
 
@@ -30,7 +34,34 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<TextWebSocketF
         String json = msg.text();
         Player player = JsonUtil.jsonToBo(Player.class, json);
         if (player != null) {
-            if (!enhancedMatchEngine.submitEvent(player.getUsername(), player.getScore(), player.getMatchRange(), ctx.channel().id().asLongText())) {
+            String channelId = ctx.channel().id().asLongText();
+            // 连接第一次上报的用户名固定为本连接的身份；组队与 hello 只认这个名字
+            String bound = shardedChannelRegistry.bindUser(ctx, player.getUsername());
+            boolean owner = bound != null && bound.equals(player.getUsername());
+            if (player.isHello()) {
+                if (owner) shardedChannelRegistry.joinParty(ctx, player.getLeader());
+                return;
+            }
+            if (player.wantsCancel()) {
+                matchEngine.cancelEvent(player.getUsername(), channelId);
+                return;
+            }
+            if (player.wantsAccept() || player.wantsDecline()) {
+                respondReadyCheck(player, channelId);
+                return;
+            }
+            int region = RegionGrid.resolve(props.getRegions(), player.getRegion(), player.getPings());
+            if (player.hasParty()) {
+                String leader = player.getUsername();
+                Party party = owner ? Party.of(leader, channelId, player.getScore(), player.getMatchRange(),
+                        player.getParty(), name -> shardedChannelRegistry.memberChannel(name, leader),
+                        props.getMaxPartySize()) : null;
+                if (party == null || !matchEngine.submitParty(party, player.getMode(), region)) {
+                    log.info("party of {} rejected", player.getUsername());
+                }
+                return;
+            }
+            if (!matchEngine.submitEvent(player.getUsername(), player.getScore(), player.getMatchRange(), player.getMode(), region, channelId)) {
                 System.out.println(" 检测 Heap 使用率 达到后压阈值，上游退避");
             }
 
@@ -38,6 +69,22 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<TextWebSocketF
 
     }
 
+    private void respondReadyCheck(Player player, String channelId) {
+        ReadyCheckService rc = readyCheck.getIfAvailable();
+        if (rc == null || player.getMatchId() == null) return;
+        long matchId;
+        try {
+            matchId = Long.parseUnsignedLong(player.getMatchId(), 16);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (player.wantsAccept()) {
+            rc.accept(matchId, player.getUsername(), channelId);
+        } else {
+            rc.decline(matchId, player.getUsername(), channelId);
+        }
+    }
+
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) {
         shardedChannelRegistry.register(ctx);
@@ -2,6 +2,7 @@ package com.match;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
@@ -14,11 +15,16 @@ import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -29,19 +35,35 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class WebSocketServer {
     private final WebSocketHandler webSocketHandler;
+    private final MatchProperties props;
+    private final MatchMetrics matchMetrics;
+
+    private volatile EventLoopGroup bossGroup;
+    private volatile EventLoopGroup workerGroup;
+    // 监听端口的 channel，停止接入时关闭；已建立的连接不受影响
+    private volatile Channel serverChannel;
+    // 端口绑定完成（预热之后）
+    private final CompletableFuture<Void> bound = new CompletableFuture<>();
 
     @PostConstruct
         // 使用CompletableFuture异步执行
     public void start() {
         CompletableFuture.runAsync(() -> {
+            // 先预热匹配管线再接入流量，首批匹配不跑在解释执行上
+            if (props.isWarmupEnabled()) {
+                MatchWarmup.Report report = MatchWarmup.from(props).run();
+                log.info("match pipeline warm-up: {}", report);
+            }
             // 只用一个 boss 线程，worker 线程数 = CPU 核心数
-            EventLoopGroup bossGroup   = new NioEventLoopGroup(3);
-            EventLoopGroup workerGroup = new NioEventLoopGroup(
+            bossGroup   = new NioEventLoopGroup(3);
+            workerGroup = new NioEventLoopGroup(
                     Runtime.getRuntime().availableProcessors()
             );
 
             // 使用无池化的 ByteBufAllocator
             UnpooledByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+            // 入站限流，所有连接共用（状态在 channel attribute / event loop 上）
+            FrameRateLimiter frameRateLimiter = new FrameRateLimiter(props, matchMetrics);
 
                 // 创建ServerBootstrap实例
             try {
@@ -65,22 +87,67 @@ public class WebSocketServer {
                                 p.addLast(new HttpObjectAggregator(65536));
                                 // 添加DefaultEventExecutorGroup
                                 p.addLast(new WebSocketServerProtocolHandler("/ws"));
+                                // 超限帧在解码 JSON 之前丢弃
+                                p.addLast(frameRateLimiter);
                                 // 添加WebSocketHandler
                                 p.addLast(new DefaultEventExecutorGroup(10));
                                 p.addLast(webSocketHandler);
                             }
                 // 绑定端口并启动服务
                         });
-                b.bind(8889).sync().channel().closeFuture().sync();
+                serverChannel = b.bind(8889).sync().channel();
+                matchMetrics.recordReady();
+                bound.complete(null);
+                serverChannel.closeFuture().sync();
                 // 捕获InterruptedException并中断当前线程
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                // 关闭bossGroup和workerGroup
-            } finally {
-                bossGroup.shutdownGracefully();
-                workerGroup.shutdownGracefully();
+            } catch (Exception e) {
+                log.error("WebSocket server failed to start", e);
+                bound.completeExceptionally(e);
+                shutdown();
             }
+            // 监听关闭后 event loop 继续服务已有连接，直到 shutdown()
         });
     }
 
+    /**
+     * 端口绑定完成时完成
+     */
+    public CompletableFuture<Void> bound() {
+        return bound;
+    }
+
+    /**
+     * CDS 训练运行（match.exit-after-startup）：上下文就绪且端口绑定后退出，JVM 退出时写出归档
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        if (!props.isExitAfterStartup()) return;
+        bound.orTimeout(2, TimeUnit.MINUTES).whenComplete((v, err) -> new Thread(() -> {
+            log.info("exit-after-startup: shutting down after training run");
+            System.exit(SpringApplication.exit(event.getApplicationContext(), () -> err == null ? 0 : 1));
+        }, "match-training-exit").start());
+    }
+
+    /**
+     * 停机收尾第一步：不再接受新连接，已有连接仍可收发（推送收尾通知）
+     */
+    public void stopAccepting() {
+        Channel ch = serverChannel;
+        if (ch != null) {
+            ch.close().syncUninterruptibly();
+        }
+    }
+
+    /**
+     * 关闭全部连接与 event loop
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopAccepting();
+        if (bossGroup != null) bossGroup.shutdownGracefully();
+        if (workerGroup != null) workerGroup.shutdownGracefully();
+    }
+
 }
@@ -0,0 +1,112 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketWorkersTest {
+
+    private BucketWorkers workers;
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (workers != null) workers.close();
+        if (engine != null) engine.stop();
+    }
+
+    private static void await(BooleanSupplier cond) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!cond.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    @Test
+    void everyBucketProcessedOncePerCycle() {
+        int numBuckets = 37;
+        AtomicIntegerArray hits = new AtomicIntegerArray(numBuckets);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger overlap = new AtomicInteger();
+        workers = new BucketWorkers(numBuckets, 3, new int[0], b -> {
+            if (concurrent.incrementAndGet() > 3) overlap.incrementAndGet();
+            // 让前几个桶更慢，迫使空闲 worker 去偷
+            if (b < 5) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+            hits.incrementAndGet(b);
+            concurrent.decrementAndGet();
+            return 1;
+        }, b -> true, new MatchMetrics());
+
+        for (int cycle = 1; cycle <= 20; cycle++) {
+            assertTrue(workers.startCycle());
+            // 后台独占操作须等本轮结束
+            int seen = workers.exclusive(() -> {
+                int sum = 0;
+                for (int i = 0; i < numBuckets; i++) sum += hits.get(i);
+                return sum;
+            });
+            assertEquals(cycle * numBuckets, seen);
+        }
+        int[] expected = new int[numBuckets];
+        Arrays.fill(expected, 20);
+        int[] actual = new int[numBuckets];
+        for (int i = 0; i < numBuckets; i++) actual[i] = hits.get(i);
+        assertArrayEquals(expected, actual);
+        assertEquals(0, overlap.get());
+    }
+
+    @Test
+    void overlappingCycleIsSkipped() {
+        AtomicInteger release = new AtomicInteger();
+        workers = new BucketWorkers(4, 2, new int[0], b -> {
+            while (release.get() == 0) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            return 0;
+        }, b -> true, new MatchMetrics());
+        assertTrue(workers.startCycle());
+        assertFalse(workers.startCycle());
+        release.set(1);
+        await(workers::idle);
+        assertTrue(workers.startCycle());
+    }
+
+    @Test
+    void engineMatchesOnDedicatedWorkers() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(1024);
+        props.setBucketWorkers(4);
+        List<MatchPair> pairs = new CopyOnWriteArrayList<>();
+        DisruptorNotificationService service = new DisruptorNotificationService(new MatchMetrics()) {
+            @Override
+            public void submit(MatchPair pair) {
+                pairs.add(pair);
+            }
+        };
+        engine = new EnhancedMatchEngine(props, service, null);
+        for (int i = 0; i < 100; i++) {
+            int score = 10 * i + 5;
+            engine.submitEvent("a" + i, score, 3, "match", "ca" + i);
+            engine.submitEvent("b" + i, score + 2, 3, "match", "cb" + i);
+        }
+        await(() -> pairs.size() == 100);
+        for (MatchPair p : pairs) {
+            assertEquals(p.getUserA().substring(1), p.getUserB().substring(1));
+        }
+        await(() -> engine.indexedUsers() == 0);
+    }
+}
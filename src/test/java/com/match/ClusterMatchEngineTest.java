@@ -0,0 +1,171 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterMatchEngineTest {
+
+    static class CapturingNotifier extends ClusterNotificationService {
+        final List<MatchPair> delivered = new CopyOnWriteArrayList<>();
+
+        CapturingNotifier(int nodeId, ClusterTransport transport) {
+            super(16, 1, nodeId, transport);
+        }
+
+        @Override
+        public void publishLocal(MatchPair pair) {
+            delivered.add(pair);
+        }
+    }
+
+    private final LoopbackClusterTransport transport = new LoopbackClusterTransport();
+    private final PartitionMap partitions = new PartitionMap(2, 999);
+    private final CapturingNotifier notifier0 = new CapturingNotifier(0, transport);
+    private final CapturingNotifier notifier1 = new CapturingNotifier(1, transport);
+    private ClusterMatchEngine node0;
+    private ClusterMatchEngine node1;
+
+    private void startNodes() {
+        startNodes("update");
+    }
+
+    private void startNodes(String duplicatePolicy) {
+        MatchProperties props = new MatchProperties();
+        props.setDuplicatePolicy(duplicatePolicy);
+        props.setMaxScore(999);
+        props.setBucketSize(10);
+        props.setExpectedLoadPerBucket(1024);
+        props.setClusterBoundaryWindow(50);
+        node0 = new ClusterMatchEngine(0, partitions, transport, notifier0, props);
+        node1 = new ClusterMatchEngine(1, partitions, transport, notifier1, props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (node0 != null) node0.stop();
+        if (node1 != null) node1.stop();
+        notifier0.shutdown();
+        notifier1.shutdown();
+    }
+
+    private static void await(List<?> list, int size) throws InterruptedException {
+        for (int i = 0; i < 400 && list.size() < size; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void partitionsSplitScoreRange() {
+        assertEquals(0, partitions.ownerOf(0));
+        assertEquals(0, partitions.ownerOf(499));
+        assertEquals(1, partitions.ownerOf(500));
+        assertEquals(1, partitions.ownerOf(999));
+        assertEquals(499, partitions.upperBound(0));
+        assertEquals(500, partitions.lowerBound(1));
+    }
+
+    @Test
+    void forwardedSubmissionIsMatchedByOwnerAndRoutedBack() throws Exception {
+        startNodes();
+        // node0 上的玩家分数属于 node1 分区
+        node0.submitEvent("remote", 700, 10, "c0");
+        node1.submitEvent("local", 705, 10, "c1");
+
+        await(notifier1.delivered, 1);
+        await(notifier0.delivered, 1);
+        assertEquals(1, notifier1.delivered.size());
+        assertEquals(1, notifier0.delivered.size());
+        MatchPair routed = notifier0.delivered.get(0);
+        assertEquals("remote", routed.getNodeA() == 0 ? routed.getUserA() : routed.getUserB());
+    }
+
+    /**
+     * 转发的提交被所有者拒绝或无法送达时，调用方与本地提交一样收到 false
+     */
+    @Test
+    void forwardedSubmissionReportsOwnersVerdict() {
+        startNodes("reject");
+        assertTrue(node0.submitEvent("remote", 700, 10, "c0"));
+        assertFalse(node0.submitEvent("remote", 710, 10, "c0"));
+        assertFalse(node1.submitEvent("remote", 720, 10, "c1"));
+
+        PartitionMap three = new PartitionMap(3, 999);
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(999);
+        props.setBucketSize(10);
+        props.setExpectedLoadPerBucket(64);
+        ClusterMatchEngine lonely = new ClusterMatchEngine(0, three, new LoopbackClusterTransport(), notifier0, props);
+        try {
+            assertFalse(lonely.submitEvent("orphan", 900, 10, "c0"));
+        } finally {
+            lonely.stop();
+        }
+    }
+
+    @Test
+    void neighboursMatchAcrossPartitionBoundary() throws Exception {
+        startNodes();
+        node0.submitEvent("left", 495, 20, "c0");
+        node1.submitEvent("right", 505, 20, "c1");
+
+        await(notifier0.delivered, 1);
+        await(notifier1.delivered, 1);
+        assertEquals(1, notifier0.delivered.size());
+        assertEquals(1, notifier1.delivered.size());
+    }
+
+    /**
+     * 经过边界交换放回本地的等待者仍在用户索引里：重复提交被拦下、可以取消
+     */
+    @Test
+    void boundaryRoundTripKeepsUserIndex() {
+        startNodes("reject");
+        // 右邻下边界窗口无人，越界等待者原样交还；窗口内未越界的就地放回
+        assertTrue(node0.submitEvent("left", 495, 20, "c0"));
+        assertTrue(node0.submitEvent("inner", 460, 5, "c1"));
+        node0.exchangeBoundary();
+
+        assertFalse(node0.submitEvent("left", 495, 20, "c0"));
+        assertFalse(node0.submitEvent("inner", 460, 5, "c1"));
+        assertTrue(node0.cancelEvent("left", "c0"));
+        assertTrue(node0.cancelEvent("inner", "c1"));
+        assertFalse(node0.cancelEvent("inner", "c1"));
+    }
+
+    private static Party party(String prefix, int rating, int size) {
+        List<Party.Member> members = new ArrayList<>();
+        for (int i = 0; i < size; i++) members.add(new Party.Member(prefix + i, "c" + prefix + i));
+        return new Party(rating, 20, members);
+    }
+
+    /**
+     * 边界匹配与分桶引擎一致：五人队不会配到单人，跨节点往返后保留入队时间与队伍
+     */
+    @Test
+    void boundaryMatchesOnlyEqualSizedParties() throws Exception {
+        startNodes();
+        assertTrue(node0.submitParty(party("l", 495, 5), "match", 0));
+        assertTrue(node1.submitEvent("solo", 505, 20, "csolo"));
+        node0.exchangeBoundary();
+        assertTrue(notifier0.delivered.isEmpty() && notifier1.delivered.isEmpty());
+
+        assertTrue(node1.submitParty(party("r", 503, 5), "match", 0));
+        node0.exchangeBoundary();
+        await(notifier0.delivered, 1);
+        await(notifier1.delivered, 1);
+        assertEquals(1, notifier0.delivered.size());
+        MatchPair p = notifier0.delivered.get(0);
+        assertEquals(5, p.getPartyA().size());
+        assertEquals(5, p.getPartyB().size());
+        assertTrue(p.getEnqueuedAtA() > 0 && p.getEnqueuedAtB() > 0, p.toString());
+        assertEquals(notifier1.delivered.get(0).getMatchId(), p.getMatchId());
+    }
+}
@@ -0,0 +1,117 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CycleControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    /**
+     * 目标 1s，间隔 [20, 1000] ms，拉取上限 [64, 4096]，匹配轮最多占一半时间
+     */
+    private static CycleController controller() {
+        return new CycleController(1000, 20, 1000, 64, 4096, 0.5, 200);
+    }
+
+    @Test
+    void idleQueueShortensCycle() {
+        CycleController c = controller();
+        for (int i = 0; i < 5; i++) c.onCycle(MS / 10, 0);
+        assertEquals(20, c.intervalMs());
+        assertEquals(4096, c.batchLimit());
+    }
+
+    @Test
+    void intervalFollowsLatencyTarget() {
+        CycleController c = controller();
+        // 配成者等了 3s，超出目标：间隔减半
+        c.onBucket(10, 4096, 3000);
+        c.onCycle(MS, 100);
+        assertEquals(100, c.intervalMs());
+        // 一轮耗时 80ms：间隔不低于 80 / 0.5
+        c.onBucket(10, 4096, 3000);
+        c.onCycle(80 * MS, 100);
+        assertEquals(160, c.intervalMs());
+
+        // 时延回落到目标一半以下后逐步加长，直到上限
+        CycleController fast = controller();
+        for (int i = 0; i < 30; i++) {
+            fast.onBucket(10, 4096, 50);
+            fast.onCycle(MS, 100);
+        }
+        assertTrue(fast.latencyEwmaMs() < 100);
+        assertEquals(1000, fast.intervalMs());
+    }
+
+    @Test
+    void batchGrowsWithBacklogAndShrinksWhenCycleOverruns() {
+        CycleController c = controller();
+        // 单轮超出 间隔 × 0.5：减半，直到下界
+        for (int i = 0; i < 10; i++) c.onCycle(900 * MS, 10_000);
+        assertEquals(64, c.batchLimit());
+        // 有桶没拉完：翻倍，直到 expectedLoadPerBucket
+        for (int i = 0; i < 3; i++) {
+            c.onBucket(c.batchLimit(), c.batchLimit(), -1);
+            c.onCycle(MS, 10_000);
+        }
+        assertEquals(512, c.batchLimit());
+        for (int i = 0; i < 10; i++) {
+            c.onBucket(c.batchLimit(), c.batchLimit(), -1);
+            c.onCycle(MS, 10_000);
+        }
+        assertEquals(4096, c.batchLimit());
+    }
+
+    @Test
+    void globalPassOnlyWhenCheapOrSomeoneIsStuck() {
+        CycleController c = controller();
+        assertFalse(c.shouldRunGlobal(0, 0));
+        assertTrue(c.shouldRunGlobal(10, 0));
+        assertFalse(c.shouldRunGlobal(100_000, 100));
+        assertTrue(c.shouldRunGlobal(100_000, 600));
+    }
+
+    @Test
+    void adaptiveEngineMatchesSoonAfterIdle() {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        props.setAdaptiveCycle(true);
+        props.setMinCycleInterval(Duration.ofMillis(20));
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        assertEquals(200, engine.cycleIntervalMs());
+        assertEquals(4096, engine.drainBatchLimit());
+
+        // 空闲几轮后间隔降到下限
+        driver.advanceTo(2000);
+        assertEquals(20, engine.cycleIntervalMs());
+        engine.submitEvent("a", 110, 5, "match", "ca");
+        engine.submitEvent("b", 111, 5, "match", "cb");
+        driver.advanceBy(20);
+        assertEquals(1, service.pairs.size());
+
+        // 跨桶边界的两人：排队少，定时全局匹配照常执行
+        engine.submitEvent("c", 50, 5, "match", "cc");
+        engine.submitEvent("d", 52, 5, "match", "cd");
+        driver.advanceTo(3000);
+        assertEquals(2, service.pairs.size());
+    }
+}
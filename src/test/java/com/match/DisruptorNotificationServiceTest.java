@@ -1,13 +1,19 @@
 package com.match;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Mono;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DisruptorNotificationServiceTest {
 
@@ -43,4 +49,56 @@ class DisruptorNotificationServiceTest {
         assertEquals(2, registry.calls.get());
         service.shutdown();
     }
+
+    @Test
+    void writesMatchFoundFrameToLocalSide() throws Exception {
+        DisruptorNotificationService service = new DisruptorNotificationService(16, 1);
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        ShardedChannelRegistry registry = new ShardedChannelRegistry() {
+            @Override
+            public Mono<ChannelHandlerContext> get(String channelId) {
+                // 只有 A 连在本节点
+                return "channelA".equals(channelId) ? Mono.just(ctx) : Mono.empty();
+            }
+        };
+        Field field = DisruptorNotificationService.class.getDeclaredField("registry");
+        field.setAccessible(true);
+        field.set(service, registry);
+
+        MatchPair pair = new MatchPair();
+        pair.init("A", "channelA", 10, 5, "B", "channelB", 12, 5);
+        service.submit(pair);
+
+        TextWebSocketFrame frame = null;
+        for (int i = 0; i < 200 && frame == null; i++) {
+            Thread.sleep(10);
+            frame = channel.readOutbound();
+        }
+        String text = frame.content().toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("\"username\":\"A\"") && text.contains("\"opponent\":\"B\""), text);
+        frame.release();
+        assertNull(channel.readOutbound());
+        service.shutdown();
+    }
+
+    @Test
+    void drainFlushesRingBeforeShutdown() throws Exception {
+        DisruptorNotificationService service = new DisruptorNotificationService(1024, 1);
+        TestRegistry registry = new TestRegistry();
+        Field field = DisruptorNotificationService.class.getDeclaredField("registry");
+        field.setAccessible(true);
+        field.set(service, registry);
+
+        for (int i = 0; i < 500; i++) {
+            MatchPair pair = new MatchPair();
+            pair.init("A" + i, "ca" + i, 1, 1, "B" + i, "cb" + i, 1, 1);
+            service.submit(pair);
+        }
+        assertTrue(service.drain(5000));
+        assertEquals(1000, registry.calls.get());
+        assertEquals(0, service.inFlight());
+        // 重复关闭不抛异常
+        service.shutdown();
+    }
 }
@@ -0,0 +1,128 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairnessTest {
+
+    private final SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+    private final MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+        VectorizedMatchPipeline.useMatchOrder("score");
+    }
+
+    private EnhancedMatchEngine newEngine(String order) {
+        VectorizedMatchPipeline.useMatchOrder(order);
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        return engine;
+    }
+
+    private static List<String> signature(List<MatchPair> pairs) {
+        List<String> out = new ArrayList<>(pairs.size());
+        for (MatchPair p : pairs) out.add(p.getUserA() + "|" + p.getUserB());
+        return out;
+    }
+
+    @Test
+    void kernelsAgreeOnAgeOrder() {
+        List<MatchKernel> kernels = List.of(new ScalarMatchKernel(), new VectorMatchKernel(128),
+                new VectorMatchKernel(256), new VectorMatchKernel(512));
+        for (long seed = 1; seed <= 10; seed++) {
+            List<String> expected = null;
+            for (MatchKernel k : kernels) {
+                Random rnd = new Random(seed);
+                int n = 200 + rnd.nextInt(1000);
+                MatchEvent[] events = new MatchEvent[n];
+                for (int i = 0; i < n; i++) {
+                    events[i] = new MatchEvent();
+                    events[i].init("u" + i, rnd.nextInt(500), rnd.nextInt(20), "c" + i);
+                    events[i].setEnqueuedAt(1 + rnd.nextInt(10_000));
+                    events[i].tryAcquire();
+                }
+                SortedBatch b = SortedBatch.of(events, n);
+                List<MatchPair> pairs = new ArrayList<>();
+                k.matchByAge(b, b.ageOrder(), pairs);
+                for (MatchPair p : pairs) {
+                    int diff = Math.abs(p.getScoreA() - p.getScoreB());
+                    assertTrue(diff <= p.getRangeA() && diff <= p.getRangeB(), p.toString());
+                }
+                List<String> sig = signature(pairs);
+                if (expected == null) expected = sig;
+                else assertEquals(expected, sig, k.name() + " seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * 每轮两名新人 125 / 128（range 5）互相兼容；老玩家 130（range 10）在分数序下永远被抢先
+     */
+    private void feedStarvationPattern(EnhancedMatchEngine e) {
+        e.submitEvent("old", 130, 10, "match", "c-old");
+        for (int cycle = 0; cycle < 10; cycle++) {
+            e.submitEvent("x" + cycle, 125, 5, "match", "cx" + cycle);
+            e.submitEvent("y" + cycle, 128, 5, "match", "cy" + cycle);
+            driver.advanceBy(200);
+        }
+    }
+
+    @Test
+    void scoreOrderStarvesOldPlayer() {
+        EnhancedMatchEngine e = newEngine("score");
+        feedStarvationPattern(e);
+        assertTrue(service.pairs.stream().noneMatch(p -> p.getUserA().equals("old") || p.getUserB().equals("old")));
+        assertTrue(e.oldestWaitMs() >= 1_500, "oldest " + e.oldestWaitMs());
+    }
+
+    @Test
+    void ageOrderServesOldPlayerFirst() {
+        EnhancedMatchEngine e = newEngine("age");
+        feedStarvationPattern(e);
+        assertTrue(service.pairs.stream().anyMatch(p -> p.getUserA().equals("old") || p.getUserB().equals("old")));
+        // 每轮至多留下一名新人，等一轮即被下一批接走
+        assertTrue(e.oldestWaitMs() <= 600, "oldest " + e.oldestWaitMs());
+    }
+
+    @Test
+    void ageOrderLowersTailWait() {
+        long[] tail = new long[2];
+        String[] orders = {"score", "age"};
+        for (int k = 0; k < 2; k++) {
+            SimulatedCycleDriver d = new SimulatedCycleDriver(0);
+            MatchReplay.CollectingNotificationService s = new MatchReplay.CollectingNotificationService();
+            VectorizedMatchPipeline.useMatchOrder(orders[k]);
+            MatchProperties props = new MatchProperties();
+            props.setMaxScore(1000);
+            props.setBucketSize(50);
+            props.setExpectedLoadPerBucket(4096);
+            EnhancedMatchEngine e = new EnhancedMatchEngine(props, s, null, d, d);
+            Random rnd = new Random(5);
+            int id = 0;
+            for (int cycle = 0; cycle < 100; cycle++) {
+                for (int i = 0; i < 10; i++, id++) {
+                    e.submitEvent("u" + id, 101 + rnd.nextInt(50), rnd.nextInt(4), "match", "c" + id);
+                }
+                d.advanceBy(200);
+            }
+            s.getMetrics().rollInterval();
+            // 已匹配者的 p99.9 与仍在排队者的最长等待取大者
+            tail[k] = Math.max((long) s.getMetrics().getSubmitToMatchP999Ms(), e.oldestWaitMs());
+            e.stop();
+        }
+        assertTrue(tail[1] < tail[0], "score " + tail[0] + "ms, age " + tail[1] + "ms");
+    }
+}
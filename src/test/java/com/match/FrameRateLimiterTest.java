@@ -0,0 +1,86 @@
+package com.match;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+    private final MatchMetrics metrics = new MatchMetrics();
+
+    private static int send(EmbeddedChannel ch, int frames) {
+        int passed = 0;
+        for (int i = 0; i < frames; i++) {
+            TextWebSocketFrame f = new TextWebSocketFrame("{}");
+            ch.writeInbound(f);
+            TextWebSocketFrame out = ch.readInbound();
+            if (out != null) {
+                passed++;
+                out.release();
+            } else {
+                assertEquals(0, f.refCnt());
+            }
+        }
+        return passed;
+    }
+
+    @Test
+    void tokenBucketAllowsBurstThenRate() {
+        FrameRateLimiter.TokenBucket b = new FrameRateLimiter.TokenBucket(10, 5);
+        long t = 0;
+        int ok = 0;
+        for (int i = 0; i < 20; i++) if (b.tryAcquire(t)) ok++;
+        assertEquals(5, ok);
+        // 100ms 补回一个令牌
+        assertFalse(b.tryAcquire(t + TimeUnit.MILLISECONDS.toNanos(50)));
+        assertTrue(b.tryAcquire(t + TimeUnit.MILLISECONDS.toNanos(100)));
+        // 长时间空闲后最多攒满 burst
+        ok = 0;
+        for (int i = 0; i < 20; i++) if (b.tryAcquire(t + TimeUnit.SECONDS.toNanos(10))) ok++;
+        assertEquals(5, ok);
+    }
+
+    @Test
+    void dropsFramesPerChannel() {
+        FrameRateLimiter limiter = new FrameRateLimiter(10, 20, 0, 0, metrics, now::get);
+        EmbeddedChannel a = new EmbeddedChannel(limiter);
+        EmbeddedChannel b = new EmbeddedChannel(limiter);
+
+        assertEquals(20, send(a, 50));
+        // 另一个连接不受影响
+        assertEquals(20, send(b, 20));
+        assertEquals(30, metrics.getDroppedFrames());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(10, send(a, 50));
+    }
+
+    @Test
+    void loopLimitIsSharedAcrossChannels() {
+        FrameRateLimiter limiter = new FrameRateLimiter(0, 0, 100, 30, metrics, now::get);
+        // EmbeddedChannel 在调用线程上执行，同一线程即同一 loop
+        EmbeddedChannel a = new EmbeddedChannel(limiter);
+        EmbeddedChannel b = new EmbeddedChannel(limiter);
+        assertEquals(30, send(a, 20) + send(b, 20));
+        assertEquals(10, metrics.getDroppedFrames());
+    }
+
+    @Test
+    void nonFrameMessagesPassThrough() {
+        FrameRateLimiter limiter = new FrameRateLimiter(1, 1, 1, 1, metrics, now::get);
+        EmbeddedChannel ch = new EmbeddedChannel(limiter);
+        for (int i = 0; i < 5; i++) {
+            ch.writeInbound("event-" + i);
+            assertEquals("event-" + i, ch.readInbound());
+        }
+        assertEquals(0, metrics.getDroppedFrames());
+    }
+}
@@ -0,0 +1,123 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobalMatchTest {
+
+    private final SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+    private final MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    private EnhancedMatchEngine newEngine() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(2000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(1024);
+        props.setGlobalSegmentBuckets(4);
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        return engine;
+    }
+
+    private static String partnerOf(List<MatchPair> pairs, String user) {
+        for (MatchPair p : pairs) {
+            if (p.getUserA().equals(user)) return p.getUserB();
+            if (p.getUserB().equals(user)) return p.getUserA();
+        }
+        return null;
+    }
+
+    @Test
+    void pairsAcrossBucketAndSegmentBoundaries() {
+        EnhancedMatchEngine e = newEngine();
+        // 桶 2 | 3，同一段内
+        e.submitEvent("a1", 148, 10, "match", "c1");
+        e.submitEvent("a2", 152, 10, "match", "c2");
+        // 桶 7 | 8
+        e.submitEvent("b1", 399, 10, "match", "c3");
+        e.submitEvent("b2", 402, 10, "match", "c4");
+        // 范围不够，留在池中
+        e.submitEvent("c1", 1000, 1, "match", "c5");
+        e.submitEvent("c2", 1010, 1, "match", "c6");
+
+        driver.advanceTo(900);
+        assertEquals(0, service.pairs.size());
+
+        driver.advanceTo(1000);
+        assertEquals(2, service.pairs.size());
+        assertEquals("a2", partnerOf(service.pairs, "a1"));
+        assertEquals("b2", partnerOf(service.pairs, "b1"));
+        assertEquals(2, e.indexedUsers());
+        assertEquals(2, sum(e.bucketDepths()));
+    }
+
+    /**
+     * 窗口为相邻两段：跨段边界的配对在窗口内补齐，且不抢在更近的配对之前；相距超过两段的不在全局匹配的可达范围内
+     */
+    @Test
+    void pairsAcrossNeighbouringSegmentsWithinBoundedWindows() {
+        EnhancedMatchEngine e = newEngine();
+        // 桶 2 与桶 5：不同段，同在窗口 [0, 8)
+        e.submitEvent("mid1", 110, 200, "match", "c1");
+        e.submitEvent("mid2", 260, 200, "match", "c2");
+        // 桶 11 | 12，段边界，由窗口 [8, 16) 覆盖
+        e.submitEvent("near1", 596, 10, "match", "c3");
+        e.submitEvent("near2", 602, 10, "match", "c4");
+        // 桶 26 与桶 39：相距远超一个窗口
+        e.submitEvent("far1", 1310, 660, "match", "c5");
+        e.submitEvent("far2", 1960, 660, "match", "c6");
+
+        driver.advanceTo(1000);
+        assertEquals(2, service.pairs.size(), service.pairs.toString());
+        assertEquals("mid2", partnerOf(service.pairs, "mid1"));
+        assertEquals("near2", partnerOf(service.pairs, "near1"));
+        assertEquals(2, e.indexedUsers());
+        assertEquals(2, sum(e.bucketDepths()));
+    }
+
+    @Test
+    void concatOfSortedBucketsMatchesFullSort() {
+        Random rnd = new Random(11);
+        List<MatchEvent> all = new ArrayList<>();
+        List<SortedBatch> parts = new ArrayList<>();
+        for (int bucket = 0; bucket < 8; bucket++) {
+            MatchEvent[] events = new MatchEvent[rnd.nextInt(40)];
+            for (int i = 0; i < events.length; i++) {
+                events[i] = new MatchEvent();
+                events[i].init("u" + bucket + "-" + i, bucket * 50 + 1 + rnd.nextInt(50), rnd.nextInt(30), "c");
+                events[i].tryAcquire();
+                all.add(events[i]);
+            }
+            if (events.length > 0) parts.add(SortedBatch.of(events, events.length));
+        }
+        SortedBatch concat = SortedBatch.concat(parts);
+        SortedBatch full = SortedBatch.of(all.toArray(new MatchEvent[0]), all.size());
+        assertEquals(full.n, concat.n);
+        for (int i = 0; i < full.n; i++) {
+            assertEquals(full.scores[i], concat.scores[i]);
+            assertEquals(full.event(i), concat.event(i));
+        }
+
+        List<MatchPair> pairs = new ArrayList<>();
+        new ScalarMatchKernel().match(concat, pairs);
+        assertTrue(pairs.size() > 0);
+    }
+
+    private static int sum(int[] a) {
+        int s = 0;
+        for (int v : a) s += v;
+        return s;
+    }
+}
@@ -0,0 +1,122 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IntervalMatchEngineTest {
+
+    static class CapturingService extends DisruptorNotificationService {
+        final List<MatchPair> pairs = new CopyOnWriteArrayList<>();
+
+        CapturingService() {
+            super(16, 1);
+        }
+
+        @Override
+        public void submit(MatchPair pair) {
+            pairs.add(pair);
+        }
+    }
+
+    private final CapturingService service = new CapturingService();
+    private IntervalMatchEngine engine;
+
+    private IntervalMatchEngine newEngine() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setExpectedLoadPerBucket(1024);
+        engine = new IntervalMatchEngine(props, service);
+        engine.stop(); // 测试中直接驱动 match()，不依赖 matcher 线程
+        return engine;
+    }
+
+    private static MatchEvent event(String name, int score, int range) {
+        MatchEvent e = new MatchEvent();
+        e.init(name, score, range, "ch-" + name);
+        e.tryAcquire();
+        return e;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void matchesNearestWaiterWithinBothRanges() {
+        IntervalMatchEngine e = newEngine();
+        assertNull(e.match(event("far", 100, 20)));
+        assertNull(e.match(event("near", 140, 50)));
+
+        MatchPair pair = e.match(event("new", 150, 60));
+        assertNotNull(pair);
+        assertEquals("near", pair.getUserA());
+        assertEquals("new", pair.getUserB());
+        assertEquals(1, e.waitingCount());
+    }
+
+    @Test
+    void waiterRangeMustAlsoCoverArrival() {
+        IntervalMatchEngine e = newEngine();
+        assertNull(e.match(event("narrow", 100, 5)));
+        // 到达者 range 足够，但等待者 range 不覆盖 20 分差
+        assertNull(e.match(event("wide", 120, 100)));
+        assertEquals(2, e.waitingCount());
+
+        MatchPair pair = e.match(event("close", 103, 5));
+        assertNotNull(pair);
+        assertEquals("narrow", pair.getUserA());
+    }
+
+    @Test
+    void prefersCloserSide() {
+        IntervalMatchEngine e = newEngine();
+        e.match(event("low", 480, 30));
+        e.match(event("high", 530, 30));
+        assertEquals(2, e.waitingCount());
+
+        MatchPair pair = e.match(event("mid", 510, 30));
+        assertNotNull(pair);
+        assertEquals("high", pair.getUserA());
+        assertEquals(1, e.waitingCount());
+    }
+
+    @Test
+    void submitMatchesOnMatcherThread() throws Exception {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setExpectedLoadPerBucket(1024);
+        engine = new IntervalMatchEngine(props, service);
+        try {
+            engine.submitEvent("a", 10, 5, "ca");
+            engine.submitEvent("b", 12, 5, "cb");
+            for (int i = 0; i < 100 && service.pairs.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, service.pairs.size());
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void skipsCancelledWaiter() {
+        IntervalMatchEngine e = newEngine();
+        assertNull(e.match(event("far", 100, 30)));
+        MatchEvent near = event("near", 140, 50);
+        assertNull(e.match(near));
+        near.cancel();
+
+        MatchPair pair = e.match(event("new", 125, 60));
+        assertNotNull(pair);
+        assertEquals("far", pair.getUserA());
+        assertEquals(0, e.waitingCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MatchAdminHandlerTest {
+
+    private final SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+    private final MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    private static final String TOKEN = "s3cret";
+
+    private WebTestClient client(boolean bucketEngine) {
+        return client(bucketEngine, TOKEN).mutate().defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN).build();
+    }
+
+    private WebTestClient client(boolean bucketEngine, String adminToken) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (bucketEngine) {
+            MatchProperties props = new MatchProperties();
+            props.setMaxScore(1000);
+            props.setBucketSize(50);
+            props.setExpectedLoadPerBucket(4096);
+            engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+            beans.addBean("engine", engine);
+        }
+        MatchProperties adminProps = new MatchProperties();
+        adminProps.setAdminToken(adminToken);
+        MatchAdminHandler handler = new MatchAdminHandler(service.getMetrics(), service,
+                beans.getBeanProvider(EnhancedMatchEngine.class), adminProps);
+        return WebTestClient.bindToRouterFunction(handler.routes()).build();
+    }
+
+    @Test
+    void reportsStatsAndUserStatus() {
+        WebTestClient client = client(true);
+        driver.advanceTo(1000);
+        engine.submitEvent("a", 60, 5, "match", "ca");
+        engine.submitEvent("b", 120, 5, "match", "cb");
+        driver.advanceTo(1300);
+
+        client.get().uri("/admin/stats").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.pendingEvents").isEqualTo(2)
+                .jsonPath("$.waiting").isEqualTo(2)
+                .jsonPath("$.bucketDepths.length()").isEqualTo(20)
+                .jsonPath("$.bucketDepths[1]").isEqualTo(1)
+                .jsonPath("$.bucketDepths[2]").isEqualTo(1)
+                .jsonPath("$.ringBufferRemaining").isEqualTo(-1)
+                .jsonPath("$.submitted").isEqualTo(2);
+
+        client.get().uri("/admin/users/a").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("waiting")
+                .jsonPath("$.bucket").isEqualTo(1)
+                .jsonPath("$.enqueuedAt").isEqualTo(1000)
+                .jsonPath("$.waitedMs").isEqualTo(300);
+        client.get().uri("/admin/users/nobody").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void drainsBucketAndForcesGlobalPass() {
+        WebTestClient client = client(true);
+        // 两人分处相邻桶边界两侧，普通轮次配不上
+        engine.submitEvent("a", 50, 5, "match", "ca");
+        engine.submitEvent("b", 52, 5, "match", "cb");
+        engine.submitEvent("c", 300, 5, "match", "cc");
+        driver.advanceTo(700);
+        assertEquals(0, service.pairs.size());
+
+        client.post().uri("/admin/global-pass").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.ran").isEqualTo(true);
+        assertEquals(1, service.pairs.size());
+
+        client.post().uri("/admin/buckets/5/drain").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.bucket").isEqualTo(5)
+                .jsonPath("$.cancelled").isEqualTo(1);
+        assertNull(engine.lookup("c"));
+        assertEquals(0, engine.pendingEvents());
+
+        client.post().uri("/admin/buckets/99/drain").exchange().expectStatus().isBadRequest();
+        client.post().uri("/admin/buckets/x/drain").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void readsAndPatchesEngineConfig() {
+        WebTestClient client = client(true);
+        engine.submitEvent("a", 60, 5, "match", "ca");
+        client.get().uri("/admin/config").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.bucketSize").isEqualTo(50)
+                .jsonPath("$.cycleIntervalMs").isEqualTo(200);
+
+        client.put().uri("/admin/config").bodyValue(Map.of("bucketSize", 100, "maxPendingEvents", 1000))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.migrated").isEqualTo(1)
+                .jsonPath("$.tuning.bucketSize").isEqualTo(100)
+                .jsonPath("$.tuning.maxScore").isEqualTo(1000)
+                .jsonPath("$.tuning.maxPendingEvents").isEqualTo(1000);
+        assertEquals(10, engine.numBuckets());
+        assertEquals(0, engine.bucketOf(60));
+
+        client.put().uri("/admin/config").bodyValue(Map.of("bucketSize", -1))
+                .exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void engineOperationsNeedBucketEngine() {
+        WebTestClient client = client(false);
+        client.get().uri("/admin/stats").exchange().expectStatus().isOk();
+        client.get().uri("/admin/users/a").exchange().expectStatus().isEqualTo(501);
+        client.post().uri("/admin/global-pass").exchange().expectStatus().isEqualTo(501);
+        client.get().uri("/admin/config").exchange().expectStatus().isEqualTo(501);
+    }
+
+    @Test
+    void operationsRequireTokenOrLoopback() {
+        WebTestClient client = client(true, TOKEN);
+        client.get().uri("/admin/stats").exchange().expectStatus().isOk();
+        client.get().uri("/admin/config").exchange().expectStatus().isOk();
+        client.post().uri("/admin/global-pass").exchange().expectStatus().isUnauthorized();
+        client.post().uri("/admin/buckets/1/drain")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer wrong").exchange().expectStatus().isUnauthorized();
+        client.put().uri("/admin/config").bodyValue(Map.of("bucketSize", 100))
+                .exchange().expectStatus().isUnauthorized();
+        assertEquals(20, engine.numBuckets());
+        engine.stop();
+
+        // 未配置令牌：非回环来源一律拒绝
+        WebTestClient open = client(true, "");
+        open.post().uri("/admin/global-pass").exchange().expectStatus().isForbidden();
+        open.put().uri("/admin/config").bodyValue(Map.of("bucketSize", 100))
+                .exchange().expectStatus().isForbidden();
+    }
+}
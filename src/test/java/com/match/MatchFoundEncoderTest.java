@@ -0,0 +1,87 @@
+package com.match;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MatchFoundEncoderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static MatchPair pair(String a, int scoreA, String b, int scoreB) {
+        MatchPair p = new MatchPair();
+        p.init(a, "ca", scoreA, 10, b, "cb", scoreB, 10);
+        return p;
+    }
+
+    private static JsonNode json(TextWebSocketFrame f) throws Exception {
+        return MAPPER.readTree(f.content().toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encodesBothPerspectives() throws Exception {
+        MatchFoundEncoder encoder = new MatchFoundEncoder();
+        MatchFoundEncoder.Frames frames = encoder.encode(pair("alice", 1200, "bob", -7));
+
+        JsonNode a = json(frames.forA());
+        JsonNode b = json(frames.forB());
+        assertEquals("match_found", a.get("type").asText());
+        assertEquals("alice", a.get("username").asText());
+        assertEquals("bob", a.get("opponent").asText());
+        assertEquals("bob", b.get("username").asText());
+        assertEquals("alice", b.get("opponent").asText());
+        assertEquals(a.get("matchId").asText(), b.get("matchId").asText());
+        assertEquals(1200, a.get("players").get(0).get("score").asInt());
+        assertEquals(-7, b.get("players").get(1).get("score").asInt());
+        assertEquals(Long.parseLong(a.get("matchId").asText(), 16), frames.matchId());
+
+        assertNotEquals(frames.matchId(), encoder.encode(pair("x", 0, "y", 0)).matchId());
+        frames.release();
+    }
+
+    @Test
+    void sharesCommonPartAndReleasesCleanly() {
+        MatchFoundEncoder.Frames frames = new MatchFoundEncoder().encode(pair("alice", 1, "bob", 2));
+        CompositeByteBuf a = (CompositeByteBuf) frames.forA().content();
+        CompositeByteBuf b = (CompositeByteBuf) frames.forB().content();
+        ByteBuf commonA = a.internalComponent(1);
+        ByteBuf commonB = b.internalComponent(1);
+        // 同一块内存
+        assertSame(commonA.unwrap() == null ? commonA : commonA.unwrap(),
+                commonB.unwrap() == null ? commonB : commonB.unwrap());
+        assertEquals(2, commonB.refCnt());
+
+        frames.forA().release();
+        assertEquals(1, commonB.refCnt());
+        frames.forB().release();
+        assertEquals(0, commonB.refCnt());
+    }
+
+    @Test
+    void escapesUsernames() throws Exception {
+        MatchFoundEncoder.Frames frames = new MatchFoundEncoder().encode(pair("a\"b\\c\n\u0001", 1, "玩家", 2));
+        JsonNode a = json(frames.forA());
+        assertEquals("a\"b\\c\n\u0001", a.get("username").asText());
+        assertEquals("玩家", a.get("opponent").asText());
+        frames.release();
+    }
+
+    @Test
+    void writesIntegers() {
+        for (int v : new int[]{0, 7, 10, 99, 100, -1, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            ByteBuf buf = Unpooled.buffer();
+            MatchFoundEncoder.writeInt(buf, v);
+            assertEquals(Integer.toString(v), buf.toString(StandardCharsets.US_ASCII));
+        }
+    }
+}
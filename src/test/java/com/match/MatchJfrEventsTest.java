@@ -0,0 +1,61 @@
+package com.match;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchJfrEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void batchMatchEventCarriesSizesAndTimings() throws Exception {
+        MatchEvent[] batch = new MatchEvent[64];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new MatchEvent();
+            batch[i].init("u" + i, i, 1, "c" + i);
+            batch[i].tryAcquire();
+        }
+        Path file = dir.resolve("match.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.match.BatchMatch").withThreshold(Duration.ZERO);
+            recording.start();
+            VectorizedMatchPipeline.processBatch(batch, batch.length, new ArrayList<>());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent e = events.stream()
+                .filter(ev -> ev.getEventType().getName().equals("com.match.BatchMatch"))
+                .findFirst().orElse(null);
+        assertNotNull(e);
+        assertEquals(64, e.getInt("n"));
+        assertEquals(32, e.getInt("pairs"));
+        assertTrue(e.getLong("scanNanos") > 0);
+    }
+
+    @Test
+    void bundledOnCallProfileParses() throws Exception {
+        try (var in = getClass().getResourceAsStream("/jfr/match-oncall.jfc")) {
+            assertNotNull(in);
+            Configuration c = Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8));
+            assertEquals("5 ms", c.getSettings().get("com.match.BatchMatch#threshold"));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.match;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预写日志开 / 关时 submitEvent 吞吐对比：
+ * mvn test-compile 后以 test classpath 运行 main
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "--add-modules=jdk.incubator.vector")
+@Threads(4)
+public class MatchJournalBenchmark {
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    private DisruptorNotificationService notifier;
+    private EnhancedMatchEngine engine;
+    private MatchJournal matchJournal;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(10000);
+        props.setExpectedLoadPerBucket(50000);
+        notifier = new DisruptorNotificationService(1 << 16, 1) {
+            @Override
+            public void submit(MatchPair pair) {
+                // 只测引擎侧开销
+            }
+        };
+        engine = new EnhancedMatchEngine(props, notifier, null);
+        if (journal) {
+            dir = Files.createTempDirectory("journal-bench");
+            matchJournal = new MatchJournal(dir, 256 * 1024 * 1024, 1 << 22, 50, List.of());
+            engine.setJournal(matchJournal);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.stop();
+        notifier.shutdown();
+        if (matchJournal != null) {
+            System.out.printf("journal written=%d dropped=%d%n", matchJournal.getWritten(), matchJournal.getDropped());
+            matchJournal.close();
+        }
+    }
+
+    @Benchmark
+    public boolean submit() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return engine.submitEvent("user_" + r.nextInt(1_000_000), r.nextInt(1, 10000), 50, "channel");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MatchJournalBenchmark.class.getSimpleName()).build()).run();
+    }
+}
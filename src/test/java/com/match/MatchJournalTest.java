@@ -0,0 +1,161 @@
+package com.match;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static MatchEvent event(String name, int score) {
+        MatchEvent e = new MatchEvent();
+        e.init(name, score, 10, "match", "ch-" + name);
+        e.setEnqueuedAt(1000L + score);
+        return e;
+    }
+
+    @Test
+    void recoverWaitingDropsPairedAndCancelled() throws Exception {
+        MatchJournal journal = new MatchJournal(dir, 1 << 20, 1 << 16, 10, List.of());
+        MatchEvent a = event("a", 1);
+        MatchEvent b = event("b", 2);
+        journal.appendSubmit(a);
+        journal.appendSubmit(b);
+        journal.appendSubmit(event("c", 3));
+        journal.appendSubmit(event("d", 4));
+        MatchPair pair = new MatchPair();
+        pair.init(a, b);
+        journal.appendPair(pair);
+        journal.appendCancel("c");
+        journal.close();
+
+        assertEquals(6, journal.getWritten());
+        List<MatchEvent> waiting = new MatchJournalReader(dir).recoverWaiting();
+        assertEquals(1, waiting.size());
+        MatchEvent d = waiting.get(0);
+        assertEquals("d", d.getUsername());
+        assertEquals(4, d.getScore());
+        assertEquals("match", d.getMode());
+        assertEquals(1004L, d.getEnqueuedAt());
+    }
+
+    @Test
+    void rollsOverSegmentsAndCarriesRecoveredPlayers() throws Exception {
+        // 小分段强制滚动
+        MatchJournal journal = new MatchJournal(dir, 256, 1 << 16, 10, List.of());
+        for (int i = 0; i < 50; i++) {
+            journal.appendSubmit(event("u" + i, i));
+        }
+        journal.close();
+        assertTrue(MatchJournalReader.segments(dir).size() > 1);
+
+        List<MatchEvent> recovered = new MatchJournalReader(dir).recoverWaiting();
+        assertEquals(50, recovered.size());
+
+        // 新日志清理旧分段并以恢复结果开头
+        MatchJournal next = new MatchJournal(dir, 1 << 20, 1 << 16, 10, recovered);
+        next.close();
+        assertEquals(1, MatchJournalReader.segments(dir).size());
+        assertEquals(50, new MatchJournalReader(dir).recoverWaiting().size());
+    }
+
+    /**
+     * 入桶后立即被另一线程配对：日志里 SUBMIT 必须在 PAIR 之前，恢复时不会带回已配对的玩家。
+     * 用在 appendSubmit 里先跑一轮匹配来模拟 worker 抢先
+     */
+    @Test
+    void recoveryNeverRevivesPlayerPairedBeforeSubmitWasLogged() throws Exception {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(1024);
+        EnhancedMatchEngine engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        long[] nextCycle = {500};
+        MatchJournal journal = new MatchJournal(dir, 1 << 20, 1 << 16, 10, List.of()) {
+            @Override
+            public boolean appendSubmit(MatchEvent e) {
+                driver.advanceTo(nextCycle[0]);
+                nextCycle[0] += 200;
+                return super.appendSubmit(e);
+            }
+        };
+        engine.setJournal(journal);
+        try {
+            engine.submitEvent("a", 110, 5, "match", "ca");
+            engine.submitEvent("b", 111, 5, "match", "cb");
+            // 原地更新同样要在配对之前落日志
+            engine.submitEvent("c", 300, 5, "match", "cc");
+            engine.submitEvent("d", 320, 5, "match", "cd");
+            engine.submitEvent("c", 318, 5, "match", "cc");
+            driver.advanceTo(nextCycle[0]);
+            assertEquals(2, service.pairs.size());
+        } finally {
+            engine.stop();
+            journal.close();
+        }
+        assertTrue(new MatchJournalReader(dir).recoverWaiting().isEmpty());
+    }
+
+    /**
+     * SUBMIT 写不进日志的玩家不能进桶：拒绝提交，既不可配对也不占索引
+     */
+    @Test
+    void submitIsRejectedWhenJournalCannotTakeIt() throws Exception {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(1024);
+        EnhancedMatchEngine engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        boolean[] full = {true};
+        MatchJournal journal = new MatchJournal(dir, 1 << 20, 1 << 16, 10, List.of()) {
+            @Override
+            public boolean appendSubmit(MatchEvent e) {
+                return !full[0] && super.appendSubmit(e);
+            }
+        };
+        engine.setJournal(journal);
+        try {
+            assertFalse(engine.submitEvent("a", 110, 5, "match", "ca"));
+            assertNull(engine.lookup("a"));
+            assertEquals(0, engine.pendingEvents());
+
+            full[0] = false;
+            assertTrue(engine.submitEvent("a", 110, 5, "match", "ca"));
+            assertTrue(engine.submitEvent("b", 111, 5, "match", "cb"));
+            driver.advanceTo(500);
+            assertEquals(1, service.pairs.size());
+        } finally {
+            engine.stop();
+            journal.close();
+        }
+    }
+
+    /**
+     * 环形缓冲远小于突发写入量时，生产者等写者腾出空间，而不是丢记录
+     */
+    @Test
+    void fullRingBufferAppliesBackpressureInsteadOfDropping() throws Exception {
+        MatchJournal journal = new MatchJournal(dir, 1 << 22, 1 << 10, 10, List.of());
+        int n = 5_000;
+        for (int i = 0; i < n; i++) {
+            assertTrue(journal.appendSubmit(event("u" + i, 1 + i % 1000)), "record " + i);
+        }
+        journal.close();
+        assertEquals(0, journal.getDropped());
+        assertEquals(n, journal.getWritten());
+        assertEquals(n, new MatchJournalReader(dir).recoverWaiting().size());
+    }
+}
@@ -0,0 +1,175 @@
+package com.match;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchKernelTest {
+
+    private static final List<MatchKernel> KERNELS = List.of(
+            new ScalarMatchKernel(),
+            new VectorMatchKernel(0),
+            new VectorMatchKernel(128),
+            new VectorMatchKernel(256),
+            new VectorMatchKernel(512));
+
+    /**
+     * 每次生成全新事件；约 1/10 预先置为已匹配或 PARKED，覆盖 CAS 失败分支
+     */
+    private static MatchEvent[] batch(long seed, int n, int maxScore, int maxRange) {
+        Random rnd = new Random(seed);
+        MatchEvent[] out = new MatchEvent[n];
+        for (int i = 0; i < n; i++) {
+            MatchEvent e = new MatchEvent();
+            e.init("u" + i, rnd.nextInt(maxScore), rnd.nextInt(maxRange), "c" + i);
+            int kind = rnd.nextInt(20);
+            if (kind == 0) {
+                e.park();
+            } else {
+                e.tryAcquire();
+                if (kind == 1) e.markMatched();
+            }
+            out[i] = e;
+        }
+        return out;
+    }
+
+    private static List<String> signature(List<MatchPair> pairs) {
+        List<String> out = new ArrayList<>(pairs.size());
+        for (MatchPair p : pairs) out.add(p.getUserA() + "|" + p.getUserB());
+        return out;
+    }
+
+    @Test
+    void allKernelsProduceIdenticalPairs() {
+        for (long seed = 1; seed <= 20; seed++) {
+            int n = 1 + (int) (seed * 97 % 3000);
+            List<String> expected = null;
+            for (MatchKernel k : KERNELS) {
+                MatchEvent[] events = batch(seed, n, 1000, (int) (seed * 7 % 60) + 1);
+                List<MatchPair> pairs = new ArrayList<>();
+                k.match(SortedBatch.of(events, events.length), pairs);
+                List<String> sig = signature(pairs);
+                if (expected == null) expected = sig;
+                else assertEquals(expected, sig, k.name() + " seed " + seed);
+            }
+            assertFalse(expected.isEmpty() && n > 100);
+        }
+    }
+
+    @Test
+    void allKernelsProduceIdenticalCrossPairs() {
+        for (long seed = 1; seed <= 20; seed++) {
+            List<String> expected = null;
+            for (MatchKernel k : KERNELS) {
+                MatchEvent[] a = batch(seed, 500, 1000, 40);
+                MatchEvent[] b = batch(seed + 1000, 700, 1000, 40);
+                List<MatchPair> pairs = new ArrayList<>();
+                k.matchCross(SortedBatch.of(a, a.length), SortedBatch.of(b, b.length), pairs);
+                List<String> sig = signature(pairs);
+                if (expected == null) expected = sig;
+                else assertEquals(expected, sig, k.name() + " seed " + seed);
+            }
+            assertFalse(expected.isEmpty());
+        }
+    }
+
+    @Test
+    void pairsRespectBothRanges() {
+        MatchEvent[] events = batch(42, 2000, 1000, 30);
+        List<MatchPair> pairs = new ArrayList<>();
+        new ScalarMatchKernel().match(SortedBatch.of(events, events.length), pairs);
+        for (MatchPair p : pairs) {
+            int diff = Math.abs(p.getScoreA() - p.getScoreB());
+            assertTrue(diff <= p.getRangeA() && diff <= p.getRangeB(), p.toString());
+            assertFalse(p.getUserA().equals(p.getUserB()));
+        }
+    }
+
+    @Test
+    void selectHonoursModeAndWidth() {
+        assertInstanceOf(ScalarMatchKernel.class, VectorizedMatchPipeline.select("scalar", 0));
+        // 测试运行时已 --add-modules=jdk.incubator.vector
+        assertInstanceOf(VectorMatchKernel.class, VectorizedMatchPipeline.select("auto", 0));
+        assertEquals("vector-128", VectorizedMatchPipeline.select("vector", 128).name());
+        assertEquals(4, ((VectorMatchKernel) VectorizedMatchPipeline.select("vector", 128)).lanes());
+    }
+
+    /**
+     * WebSocket 线程并发取消 / 原地改分时：已取消者不出现在配对里，改过分的不按旧分配对，
+     * 标记为已匹配的都在配对里（没有只标记一方而丢失的对手）
+     */
+    @Test
+    void concurrentCancelAndUpdateNeverLeakIntoPairs() throws Exception {
+        for (MatchKernel k : KERNELS) {
+            for (int round = 0; round < 30; round++) {
+                int n = 600;
+                MatchEvent[] events = new MatchEvent[n];
+                Random rnd = new Random(round);
+                for (int i = 0; i < n; i++) {
+                    MatchEvent e = new MatchEvent();
+                    e.init("u" + i, 100 + rnd.nextInt(50), 5 + rnd.nextInt(20), "c" + i);
+                    e.tryAcquire();
+                    events[i] = e;
+                }
+                SortedBatch all = SortedBatch.of(events, n);
+                MatchEvent[] left = Arrays.copyOfRange(events, 0, n / 2);
+                MatchEvent[] right = Arrays.copyOfRange(events, n / 2, n);
+
+                Set<MatchEvent> cancelled = ConcurrentHashMap.newKeySet();
+                CountDownLatch start = new CountDownLatch(1);
+                Thread ws = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int i = 0; i < n; i += 3) {
+                        // 一半取消，一半改到远处的分数
+                        if ((i & 1) == 0) {
+                            if (events[i].cancel()) cancelled.add(events[i]);
+                        } else {
+                            events[i].update(10_000 + i, 0, null, events[i].getChannelId());
+                        }
+                    }
+                });
+                ws.start();
+                List<MatchPair> pairs = new ArrayList<>();
+                start.countDown();
+                switch (round % 3) {
+                    case 0 -> k.match(all, pairs);
+                    case 1 -> {
+                        int[] order = new int[n];
+                        for (int i = 0; i < n; i++) order[i] = n - 1 - i;
+                        k.matchByAge(all, order, pairs);
+                    }
+                    default -> k.matchCross(SortedBatch.of(left, left.length), SortedBatch.of(right, right.length), pairs);
+                }
+                ws.join();
+
+                Set<String> paired = new HashSet<>();
+                for (MatchPair p : pairs) {
+                    assertTrue(paired.add(p.getUserA()) && paired.add(p.getUserB()), k.name());
+                    int diff = Math.abs(p.getScoreA() - p.getScoreB());
+                    assertTrue(diff <= p.getRangeA() && diff <= p.getRangeB(), k.name() + " " + p);
+                }
+                for (MatchEvent e : events) {
+                    assertEquals(e.isMatched(), paired.contains(e.getUsername()), k.name() + " " + e.getUsername());
+                    if (cancelled.contains(e)) assertFalse(paired.contains(e.getUsername()), k.name());
+                }
+            }
+        }
+    }
+}
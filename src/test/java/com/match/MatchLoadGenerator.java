@@ -0,0 +1,268 @@
+package com.match;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakerFactory;
+import io.netty.handler.codec.http.websocketx.WebSocketClientProtocolHandler;
+import io.netty.handler.codec.http.websocketx.WebSocketVersion;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端压测客户端：N 条 WebSocket 连接到 /ws，按目标速率提交 Player，
+ * 依据匹配帧统计 提交 -> 通知 延迟与吞吐。
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:target/classes:&lt;test classpath&gt; com.match.MatchLoadGenerator \
+ *   -Durl=ws://127.0.0.1:8889/ws -Dconnections=1000 -Drate=20000 -Dduration=60 \
+ *   -Dscore=uniform:1:1000 -Drange=uniform:50:200 -Dmode=match
+ * </pre>
+ * 分布写法：fixed:v | uniform:min:max | normal:mean:stddev
+ * 匹配帧若带 username 字段则精确归属，否则按连接内 FIFO 归属。
+ */
+public class MatchLoadGenerator {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final URI uri;
+    private final int connections;
+    private final int rate;
+    private final int durationSec;
+    private final Distribution score;
+    private final Distribution range;
+    private final String mode;
+
+    private final Recorder latencyUs = new Recorder(TimeUnit.MINUTES.toMicros(5), 3);
+    private final Histogram total = new Histogram(TimeUnit.MINUTES.toMicros(5), 3);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong unmatchedFrames = new AtomicLong();
+
+    public MatchLoadGenerator(URI uri, int connections, int rate, int durationSec,
+                              Distribution score, Distribution range, String mode) {
+        this.uri = uri;
+        this.connections = connections;
+        this.rate = rate;
+        this.durationSec = durationSec;
+        this.score = score;
+        this.range = range;
+        this.mode = mode;
+    }
+
+    public static void main(String[] args) throws Exception {
+        MatchLoadGenerator gen = new MatchLoadGenerator(
+                URI.create(System.getProperty("url", "ws://127.0.0.1:8889/ws")),
+                Integer.getInteger("connections", 100),
+                Integer.getInteger("rate", 1000),
+                Integer.getInteger("duration", 30),
+                Distribution.parse(System.getProperty("score", "uniform:1:1000")),
+                Distribution.parse(System.getProperty("range", "fixed:100")),
+                System.getProperty("mode", "match"));
+        gen.run();
+    }
+
+    public void run() throws Exception {
+        EventLoopGroup group = new NioEventLoopGroup();
+        try {
+            List<Channel> channels = connect(group);
+            System.out.printf("connected %d/%d%n", channels.size(), connections);
+
+            long tickNs = TimeUnit.MILLISECONDS.toNanos(1);
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(durationSec);
+            long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+            long scheduled = 0;
+            int rr = 0;
+            long lastSent = 0, lastReceived = 0;
+
+            while (System.nanoTime() < end) {
+                // 按已流逝时间补发，tick 被拉长时不会少发
+                long now = System.nanoTime();
+                long due = (now - start) * rate / 1_000_000_000L;
+                while (scheduled < due && !channels.isEmpty()) {
+                    Channel ch = channels.get(rr++ % channels.size());
+                    ch.eventLoop().execute(() -> send(ch));
+                    scheduled++;
+                }
+                if (now >= nextReport) {
+                    Histogram interval = latencyUs.getIntervalHistogram();
+                    total.add(interval);
+                    long s = sent.get(), r = received.get();
+                    System.out.printf("sent %d/s | notified %d/s | p50 %.1f ms | p99 %.1f ms%n",
+                            s - lastSent, r - lastReceived,
+                            interval.getValueAtPercentile(50) / 1000.0,
+                            interval.getValueAtPercentile(99) / 1000.0);
+                    lastSent = s;
+                    lastReceived = r;
+                    nextReport += TimeUnit.SECONDS.toNanos(1);
+                }
+                long sleep = tickNs - (System.nanoTime() - now);
+                if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+            // 给在途匹配留出时间
+            TimeUnit.SECONDS.sleep(2);
+            total.add(latencyUs.getIntervalHistogram());
+            report(TimeUnit.SECONDS.toNanos(durationSec));
+            for (Channel ch : channels) ch.close();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private List<Channel> connect(EventLoopGroup group) throws InterruptedException {
+        List<Channel> channels = new ArrayList<>(connections);
+        CountDownLatch handshakes = new CountDownLatch(connections);
+        Bootstrap b = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpClientCodec());
+                        ch.pipeline().addLast(new HttpObjectAggregator(65536));
+                        ch.pipeline().addLast(new WebSocketClientProtocolHandler(
+                                WebSocketClientHandshakerFactory.newHandshaker(
+                                        uri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders())));
+                        ch.pipeline().addLast(new ClientHandler(handshakes));
+                    }
+                });
+        int port = uri.getPort() > 0 ? uri.getPort() : 80;
+        for (int i = 0; i < connections; i++) {
+            try {
+                channels.add(b.connect(uri.getHost(), port).sync().channel());
+            } catch (Exception e) {
+                handshakes.countDown();
+                System.err.println("connect failed: " + e.getMessage());
+            }
+        }
+        handshakes.await(30, TimeUnit.SECONDS);
+        return channels;
+    }
+
+    /**
+     * 仅在连接所属 event loop 上调用
+     */
+    private void send(Channel ch) {
+        ClientHandler h = ch.pipeline().get(ClientHandler.class);
+        if (h == null || !h.ready || !ch.isWritable()) return;
+        String username = "lg_" + ch.id().asShortText() + "_" + (h.seq++);
+        int s = Math.max(1, score.next());
+        int r = Math.max(0, range.next());
+        String json = "{\"username\":\"" + username + "\",\"score\":" + s
+                + ",\"matchRange\":" + r + ",\"mode\":\"" + mode + "\"}";
+        long now = System.nanoTime();
+        h.outstanding.put(username, now);
+        h.fifo.addLast(username);
+        ch.writeAndFlush(new TextWebSocketFrame(json));
+        sent.incrementAndGet();
+    }
+
+    private void report(long elapsedNs) {
+        double secs = elapsedNs / 1e9;
+        System.out.println("==== match load report ====");
+        System.out.printf("connections      %d%n", connections);
+        System.out.printf("submitted        %d (%.0f/s)%n", sent.get(), sent.get() / secs);
+        System.out.printf("notified         %d (%.0f/s)%n", received.get(), received.get() / secs);
+        System.out.printf("unattributed     %d%n", unmatchedFrames.get());
+        for (String p : new String[]{"50", "90", "99", "99.9"}) {
+            System.out.printf("p%-15s %.2f ms%n", p, total.getValueAtPercentile(Double.parseDouble(p)) / 1000.0);
+        }
+        System.out.printf("max              %.2f ms%n", total.getMaxValue() / 1000.0);
+    }
+
+    private class ClientHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> {
+        private final CountDownLatch handshakes;
+        // 以下字段只在连接的 event loop 上访问
+        private final Map<String, Long> outstanding = new HashMap<>();
+        private final ArrayDeque<String> fifo = new ArrayDeque<>();
+        private boolean ready;
+        private long seq;
+
+        ClientHandler(CountDownLatch handshakes) {
+            this.handshakes = handshakes;
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt == WebSocketClientProtocolHandler.ClientHandshakeStateEvent.HANDSHAKE_COMPLETE) {
+                ready = true;
+                handshakes.countDown();
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
+            long now = System.nanoTime();
+            String username = null;
+            try {
+                JsonNode node = MAPPER.readTree(frame.text());
+                if (node != null && node.hasNonNull("username")) username = node.get("username").asText();
+            } catch (Exception ignore) {
+                // 非 JSON 帧按 FIFO 归属
+            }
+            Long sentAt = username != null ? outstanding.remove(username) : null;
+            if (sentAt == null) {
+                String oldest;
+                while ((oldest = fifo.pollFirst()) != null && (sentAt = outstanding.remove(oldest)) == null) {
+                    // 跳过已精确归属的
+                }
+            }
+            if (sentAt == null) {
+                unmatchedFrames.incrementAndGet();
+                return;
+            }
+            received.incrementAndGet();
+            latencyUs.recordValue(Math.min(TimeUnit.MINUTES.toMicros(5), TimeUnit.NANOSECONDS.toMicros(now - sentAt)));
+        }
+    }
+
+    /**
+     * 分数 / 范围分布
+     */
+    public record Distribution(String kind, int a, int b) {
+
+        static Distribution parse(String spec) {
+            String[] p = spec.split(":");
+            return switch (p[0]) {
+                case "fixed" -> new Distribution("fixed", Integer.parseInt(p[1]), 0);
+                case "uniform", "normal" -> new Distribution(p[0], Integer.parseInt(p[1]), Integer.parseInt(p[2]));
+                default -> throw new IllegalArgumentException("unknown distribution: " + spec);
+            };
+        }
+
+        int next() {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            return switch (kind) {
+                case "uniform" -> r.nextInt(a, b + 1);
+                case "normal" -> (int) Math.round(a + r.nextGaussian() * b);
+                default -> a;
+            };
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.match;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 热路径指标开销：原先共享 AtomicInteger 计数 vs LongAdder / Recorder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@Threads(8)
+public class MatchMetricsBenchmark {
+
+    private final AtomicInteger contended = new AtomicInteger();
+    private final MatchMetrics metrics = new MatchMetrics();
+    private final MatchPair pair = new MatchPair();
+
+    {
+        MatchEvent a = new MatchEvent();
+        a.init("a", 1, 1, "ca");
+        MatchEvent b = new MatchEvent();
+        b.init("b", 1, 1, "cb");
+        pair.init(a, b);
+    }
+
+    @Benchmark
+    public int atomicCounter() {
+        return contended.incrementAndGet();
+    }
+
+    @Benchmark
+    public void adderCounter() {
+        metrics.recordSubmit();
+    }
+
+    @Benchmark
+    public void recorderLatency() {
+        metrics.recordNotified(pair);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MatchMetricsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
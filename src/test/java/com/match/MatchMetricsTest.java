@@ -0,0 +1,39 @@
+package com.match;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchMetricsTest {
+
+    @Test
+    void countersAndIntervalHistogramsAreExposed() {
+        MatchMetrics metrics = new MatchMetrics();
+        metrics.setQueueDepthSource(() -> new int[]{3, 7});
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+
+        metrics.recordSubmit();
+        metrics.recordSubmit();
+        metrics.recordRejected();
+        MatchEvent e = new MatchEvent();
+        e.init("a", 1, 1, "c");
+        e.setEnqueuedAt(1_000);
+        metrics.recordMatched(e, 1_250);
+        metrics.recordCycle(TimeUnit.MILLISECONDS.toNanos(4), 6);
+        metrics.rollInterval();
+
+        assertEquals(2, registry.get("match.submitted").functionCounter().count());
+        assertEquals(1, registry.get("match.rejected").functionCounter().count());
+        assertEquals(6, registry.get("match.pairs").functionCounter().count());
+        assertEquals(10, registry.get("match.queue.waiting").gauge().value());
+        assertEquals(7, registry.get("match.queue.depth.max").gauge().value());
+        double p99 = registry.get("match.submit_to_match").tag("quantile", "0.99").gauge().value();
+        assertTrue(p99 >= 249 && p99 <= 251, "p99=" + p99);
+        assertEquals(6.0, metrics.getPairsPerCycleMean());
+    }
+}
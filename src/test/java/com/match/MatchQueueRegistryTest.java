@@ -0,0 +1,225 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchQueueRegistryTest {
+
+    private final Queue<MatchPair> pairs = new ConcurrentLinkedQueue<>();
+    private final DisruptorNotificationService notifier = new DisruptorNotificationService(new MatchMetrics()) {
+        @Override
+        public void submit(MatchPair pair) {
+            pairs.add(pair);
+        }
+    };
+    private MatchQueueRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        if (registry != null) registry.stop();
+    }
+
+    private static MatchProperties props() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(256);
+        props.setQueueWorkers(2);
+        return props;
+    }
+
+    private static MatchProperties.QueueSpec spec(int weight, Integer bucketSize) {
+        MatchProperties.QueueSpec spec = new MatchProperties.QueueSpec();
+        spec.setWeight(weight);
+        spec.setBucketSize(bucketSize);
+        spec.setCycleInterval(Duration.ofMillis(50));
+        return spec;
+    }
+
+    private void awaitPairs(int n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pairs.size() < n && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void hundredsOfQueuesShareWorkerThreadsAndRouteByMode() throws Exception {
+        int threadsBefore = Thread.activeCount();
+        registry = new MatchQueueRegistry(props(), notifier);
+        registry.register(MatchQueueRegistry.DEFAULT_QUEUE, spec(1, null));
+        EnhancedMatchEngine ranked = registry.register("ranked", spec(3, 25));
+        for (int i = 0; i < 200; i++) {
+            registry.register("title-" + i, spec(1, null));
+        }
+        assertEquals(202, registry.queueIds().size());
+        assertEquals(25, ranked.tuning().bucketSize());
+        // 1 个定时线程 + 2 个 worker，与队列数无关
+        assertTrue(Thread.activeCount() - threadsBefore <= 3, "threads grew by " + (Thread.activeCount() - threadsBefore));
+
+        assertTrue(registry.submitEvent("r1", 110, 5, "ranked", "c1"));
+        assertTrue(registry.submitEvent("r2", 112, 5, "ranked", "c2"));
+        // 未知 mode 进入 default 队列
+        assertTrue(registry.submitEvent("d1", 410, 5, "casual", "c3"));
+        assertTrue(registry.submitEvent("d2", 411, 5, null, "c4"));
+        assertTrue(registry.submitEvent("x", 700, 0, "title-7", "c5"));
+        assertNotNull(ranked.lookup("r1"));
+        assertNotNull(registry.engine(MatchQueueRegistry.DEFAULT_QUEUE).lookup("d1"));
+
+        awaitPairs(2);
+        assertEquals(2, pairs.size());
+        assertEquals(1, registry.engine("title-7").pendingEvents());
+        // 取消不带 mode，逐队列查找
+        assertTrue(registry.cancelEvent("x", "c5"));
+        assertFalse(registry.cancelEvent("x", "c5"));
+
+        assertTrue(registry.remove(MatchQueueRegistry.DEFAULT_QUEUE));
+        assertFalse(registry.submitEvent("d3", 410, 5, "casual", "c6"));
+    }
+
+    @Test
+    void busyQueuesShareWorkerTimeByWeight() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        // 每个任务固定计 1ms，顺序只取决于权重
+        AtomicLong ticker = new AtomicLong();
+        registry = new MatchQueueRegistry(props(), notifier, timer, worker, ticker::get);
+        registry.register("heavy", spec(3, null));
+        registry.register("light", spec(1, null));
+
+        // 先占住唯一的 worker，让两队列的任务全部就绪后再开始争用
+        CountDownLatch gate = new CountDownLatch(1);
+        worker.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        int perQueue = 100;
+        List<String> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2 * perQueue);
+        for (String id : List.of("heavy", "light")) {
+            CycleDriver driver = registry.driver(id);
+            for (int i = 0; i < perQueue; i++) {
+                driver.schedule(() -> {
+                    ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+                    synchronized (order) {
+                        order.add(id);
+                    }
+                    done.countDown();
+                }, 0);
+            }
+        }
+        CountDownLatch queued = new CountDownLatch(1);
+        timer.schedule(queued::countDown, 0, TimeUnit.MILLISECONDS);
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        gate.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // 两者都积压时 heavy 占 3/4
+        assertEquals(60, order.subList(0, 80).stream().filter("heavy"::equals).count());
+        assertEquals(List.of("heavy", "light", "heavy", "heavy", "heavy", "light"), order.subList(0, 6));
+    }
+
+    @Test
+    void failingCycleKeepsRescheduling() throws Exception {
+        registry = new MatchQueueRegistry(props(), notifier);
+        registry.register("q", spec(1, null));
+        CountDownLatch runs = new CountDownLatch(3);
+        registry.driver("q").scheduleWithFixedDelay(() -> {
+            runs.countDown();
+            throw new IllegalStateException("boom");
+        }, 0, 10);
+        CountDownLatch ticks = new CountDownLatch(3);
+        registry.driver("q").scheduleAtFixedRate(() -> {
+            ticks.countDown();
+            throw new IllegalStateException("boom");
+        }, 0, 10);
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void userWaitsInOneQueueAtATime() {
+        registry = new MatchQueueRegistry(props(), notifier);
+        EnhancedMatchEngine ranked = registry.register("ranked", spec(1, null));
+        EnhancedMatchEngine casual = registry.register("casual", spec(1, null));
+
+        assertTrue(registry.submitEvent("u", 100, 0, "ranked", "c1"));
+        // 换 mode：旧队列中的排队作废
+        assertTrue(registry.submitEvent("u", 100, 0, "casual", "c1"));
+        assertTrue(ranked.lookup("u") == null || !ranked.lookup("u").isWaiting());
+        assertTrue(casual.lookup("u").isWaiting());
+        // 确认阶段的重排不会把已换队的用户拉回原队列
+        assertTrue(registry.requeue("u", 100, 0, "ranked", "c1", 0));
+        assertTrue(ranked.lookup("u") == null || !ranked.lookup("u").isWaiting());
+
+        assertTrue(registry.cancelEvent("u", "c1"));
+        assertFalse(registry.cancelEvent("u", "c1"));
+
+        // 队伍成员不能被另一个队列里的单人提交拆走
+        Party party = new Party(100, 0, List.of(new Party.Member("lead", "c2"), new Party.Member("m", "c3")));
+        assertTrue(registry.submitParty(party, "ranked", 0));
+        assertFalse(registry.submitEvent("m", 100, 0, "casual", "c3"));
+        assertTrue(ranked.lookup("m").isWaiting());
+        registry.stop();
+
+        MatchProperties props = props();
+        props.setDuplicatePolicy("reject");
+        registry = new MatchQueueRegistry(props, notifier);
+        registry.register("ranked", spec(1, null));
+        registry.register("casual", spec(1, null));
+        assertTrue(registry.submitEvent("u", 100, 0, "ranked", "c1"));
+        assertFalse(registry.submitEvent("u", 100, 0, "casual", "c1"));
+    }
+
+    /**
+     * 每个队列按自己的预计排队人数分配桶容量，不按全局 expectedLoadPerBucket
+     */
+    @Test
+    void queueBucketsAreSizedFromTheirSpec() {
+        MatchProperties props = props();
+        props.setExpectedLoadPerBucket(50_000);
+        props.setQueueExpectedWaiting(10_000);
+        registry = new MatchQueueRegistry(props, notifier);
+
+        MatchProperties.QueueSpec ranked = spec(1, 25);
+        ranked.setMaxScore(5000);
+        ranked.setExpectedWaiting(100_000);
+        // 200 桶，2 倍余量平摊
+        assertEquals(1000, registry.register("ranked", ranked).tuning().expectedLoadPerBucket());
+        // 未指定时按 queueExpectedWaiting，20 桶
+        assertEquals(1000, registry.register("casual", spec(1, null)).tuning().expectedLoadPerBucket());
+        // 人数很少时不低于 minDrainBatch
+        MatchProperties.QueueSpec tiny = spec(1, null);
+        tiny.setExpectedWaiting(10);
+        assertEquals(props.getMinDrainBatch(), registry.register("tiny", tiny).tuning().expectedLoadPerBucket());
+        // 显式配置优先
+        MatchProperties.QueueSpec fixed = spec(1, null);
+        fixed.setExpectedLoadPerBucket(4096);
+        fixed.setExpectedWaiting(10);
+        assertEquals(4096, registry.register("fixed", fixed).tuning().expectedLoadPerBucket());
+        // 不超过全局上限
+        MatchProperties.QueueSpec huge = spec(1, null);
+        huge.setExpectedWaiting(100_000_000);
+        assertEquals(50_000, registry.register("huge", huge).tuning().expectedLoadPerBucket());
+    }
+}
@@ -0,0 +1,134 @@
+package com.match;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchReplayTest {
+
+    @TempDir
+    Path dir;
+
+    private static MatchProperties props() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        return props;
+    }
+
+    private static List<MatchReplay.Submission> randomTrace(long seed, int n, long spanMs) {
+        Random rnd = new Random(seed);
+        List<MatchReplay.Submission> trace = new ArrayList<>(n);
+        long t = 1_000_000L;
+        for (int i = 0; i < n; i++) {
+            t += rnd.nextInt((int) (2 * spanMs / n) + 1);
+            trace.add(new MatchReplay.Submission(t, "u" + i, 1 + rnd.nextInt(1000), rnd.nextInt(60), "match"));
+        }
+        return trace;
+    }
+
+    private static List<String> signature(MatchReplay.Result r) {
+        List<String> out = new ArrayList<>(r.pairs().size());
+        for (MatchPair p : r.pairs()) {
+            out.add(p.getUserA() + "|" + p.getUserB() + "@" + p.getCreatedAt());
+        }
+        return out;
+    }
+
+    @Test
+    void simulatedDriverRunsDueTasksInOrder() {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        List<String> log = new ArrayList<>();
+        driver.scheduleWithFixedDelay(() -> log.add("cycle@" + driver.millis()), 500, 200);
+        driver.schedule(() -> log.add("once@" + driver.millis()), 700);
+
+        assertEquals(0, driver.advanceTo(499));
+        driver.advanceTo(900);
+
+        assertEquals(List.of("cycle@500", "cycle@700", "once@700", "cycle@900"), log);
+        assertEquals(900, driver.millis());
+    }
+
+    @Test
+    void pairsAreStampedWithSimulatedClock() {
+        List<MatchReplay.Submission> trace = List.of(
+                new MatchReplay.Submission(10_000, "alice", 110, 10, "match"),
+                new MatchReplay.Submission(10_050, "bob", 115, 10, "match"));
+
+        MatchReplay.Result r = MatchReplay.run(props(), trace, 1_000);
+
+        assertEquals(1, r.pairs().size());
+        // 首轮匹配在引擎创建后 500ms
+        assertEquals(10_500, r.pairs().get(0).getCreatedAt());
+        assertEquals((500 + 450) / 2.0, r.meanWaitMs());
+        assertEquals(1_050, r.simulatedMs());
+    }
+
+    @Test
+    void identicalTraceProducesIdenticalPairs() {
+        List<MatchReplay.Submission> trace = randomTrace(42, 20_000, 60_000);
+
+        MatchReplay.Result first = MatchReplay.run(props(), trace, 5_000);
+        MatchReplay.Result second = MatchReplay.run(props(), trace, 5_000);
+
+        assertEquals(20_000, first.accepted());
+        assertEquals(signature(first), signature(second));
+        // 防回退：绝大多数玩家应在回放结束前配对
+        assertTrue(first.pairs().size() * 2 > trace.size() * 0.9, "pairs=" + first.pairs().size());
+    }
+
+    @Test
+    void loadsTraceFromJournal() throws Exception {
+        MatchJournal journal = new MatchJournal(dir, 1 << 16, 1 << 16, 10, List.of());
+        for (MatchReplay.Submission s : randomTrace(7, 100, 1_000)) {
+            MatchEvent e = new MatchEvent();
+            e.init(s.username(), s.score(), s.matchRange(), s.mode(), "c");
+            e.setEnqueuedAt(s.at());
+            journal.appendSubmit(e);
+        }
+        journal.close();
+
+        List<MatchReplay.Submission> trace = MatchReplay.loadTrace(dir);
+
+        assertEquals(randomTrace(7, 100, 1_000), trace);
+    }
+
+    @Test
+    void journalOutOfOrderIsSortedByTime() throws Exception {
+        MatchJournal journal = new MatchJournal(dir, 1 << 16, 1 << 16, 10, List.of());
+        List<MatchReplay.Submission> trace = randomTrace(11, 50, 1_000);
+        // 并发写入者的记录交错落盘：整体倒序写入
+        for (int i = trace.size() - 1; i >= 0; i--) {
+            MatchReplay.Submission s = trace.get(i);
+            MatchEvent e = new MatchEvent();
+            e.init(s.username(), s.score(), s.matchRange(), s.mode(), "c");
+            e.setEnqueuedAt(s.at());
+            journal.appendSubmit(e);
+        }
+        journal.close();
+
+        List<MatchReplay.Submission> loaded = MatchReplay.loadTrace(dir);
+        // 同一毫秒内保持文件顺序（稳定排序），只比较时间序列与内容
+        assertEquals(trace.stream().map(MatchReplay.Submission::at).toList(),
+                loaded.stream().map(MatchReplay.Submission::at).toList());
+        assertEquals(new HashSet<>(trace), new HashSet<>(loaded));
+    }
+
+    @Test
+    void rejectsTraceThatGoesBackInTime() {
+        List<MatchReplay.Submission> trace = List.of(
+                new MatchReplay.Submission(2_000, "alice", 110, 10, "match"),
+                new MatchReplay.Submission(1_000, "bob", 112, 10, "match"));
+        assertThrows(IllegalArgumentException.class, () -> MatchReplay.run(props(), trace, 1_000));
+    }
+}
@@ -0,0 +1,189 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 滚动重启：实例 A 停机、实例 B 从快照接手，统计 A 上排队者最终配成的对数
+ */
+class MatchShutdownTest {
+
+    private static final int PAIRS = 90;
+    private static final int LONERS = 20;
+
+    @TempDir
+    Path dir;
+
+    private final List<EnhancedMatchEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(EnhancedMatchEngine::stop);
+    }
+
+    static final class Notifier extends DisruptorNotificationService {
+        final List<MatchPair> pairs = new ArrayList<>();
+        final List<String> draining = new ArrayList<>();
+
+        Notifier() {
+            super(new MatchMetrics());
+        }
+
+        @Override
+        public void submit(MatchPair pair) {
+            pairs.add(pair);
+        }
+
+        @Override
+        public void notifyDraining(String channelId, long resumeWithinMs) {
+            draining.add(channelId + ":" + resumeWithinMs);
+        }
+    }
+
+    private static MatchProperties props() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        props.setSnapshotResumeWindow(Duration.ofSeconds(60));
+        return props;
+    }
+
+    private EnhancedMatchEngine engine(Notifier notifier, SimulatedCycleDriver driver) {
+        EnhancedMatchEngine e = new EnhancedMatchEngine(props(), notifier, null, driver, driver);
+        engines.add(e);
+        return e;
+    }
+
+    /**
+     * 上一轮刚结束时到达：PAIRS 对彼此兼容的玩家，以及 LONERS 个对手要到重启后才来的玩家
+     */
+    private static void submitBeforeShutdown(EnhancedMatchEngine e) {
+        for (int i = 0; i < PAIRS; i++) {
+            e.submitEvent("p" + i + "a", 5 + 10 * i, 3, "match", "ca" + i);
+            e.submitEvent("p" + i + "b", 6 + 10 * i, 3, "match", "cb" + i);
+        }
+        for (int i = 0; i < LONERS; i++) {
+            e.submitEvent("l" + i, 9 + 10 * i, 0, "match", "cl" + i);
+        }
+    }
+
+    private static void submitLonerPartners(EnhancedMatchEngine e) {
+        for (int i = 0; i < LONERS; i++) {
+            e.submitEvent("l" + i, 9 + 10 * i, 0, "match", "cl-new" + i);
+            e.submitEvent("m" + i, 9 + 10 * i, 0, "match", "cm" + i);
+        }
+    }
+
+    @Test
+    void rollingRestartPreservesQueuedMatches() throws Exception {
+        // 实例 A：周期在 500 / 700 ms 运行，600 ms 提交的人来不及被普通轮次处理
+        SimulatedCycleDriver driverA = new SimulatedCycleDriver(0);
+        Notifier notifierA = new Notifier();
+        EnhancedMatchEngine a = engine(notifierA, driverA);
+        WaitingSnapshotStore store = new WaitingSnapshotStore(dir.resolve("waiting.snap"));
+        driverA.advanceTo(600);
+        submitBeforeShutdown(a);
+
+        MatchShutdown.Report report = new MatchShutdown(props(), a, notifierA, null, null, store).drain();
+        assertEquals(PAIRS, report.finalPairs());
+        assertEquals(LONERS, report.waiting());
+        assertEquals(LONERS, report.persisted());
+        assertTrue(report.flushed());
+        assertEquals(PAIRS, notifierA.pairs.size());
+        assertEquals(LONERS, notifierA.draining.size());
+        assertEquals("cl0:60000", notifierA.draining.get(0));
+        // 收尾期间拒绝新提交
+        assertFalse(a.submitEvent("late", 500, 10, "match", "c-late"));
+
+        // 实例 B：5 秒后启动，从快照接手，旧玩家重连沿用原入队时间
+        SimulatedCycleDriver driverB = new SimulatedCycleDriver(driverA.millis() + 5000);
+        Notifier notifierB = new Notifier();
+        EnhancedMatchEngine b = engine(notifierB, driverB);
+        assertEquals(LONERS, store.restoreInto(b, props().getSnapshotResumeWindow()));
+        submitLonerPartners(b);
+        driverB.advanceBy(1000);
+        assertEquals(LONERS, notifierB.pairs.size());
+        for (MatchPair p : notifierB.pairs) {
+            long loner = p.getUserA().startsWith("l") ? p.getEnqueuedAtA() : p.getEnqueuedAtB();
+            assertEquals(600, loner);
+        }
+
+        int preserved = notifierA.pairs.size() + notifierB.pairs.size();
+        assertEquals(PAIRS + LONERS, preserved);
+    }
+
+    @Test
+    void plainStopLosesQueuedMatches() {
+        // 对照：直接 stop() 时，上一轮之后到达的人既没配对也没留下记录
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        Notifier notifier = new Notifier();
+        EnhancedMatchEngine a = engine(notifier, driver);
+        driver.advanceTo(600);
+        submitBeforeShutdown(a);
+        a.stop();
+        driver.advanceTo(5000);
+        assertEquals(0, notifier.pairs.size());
+    }
+
+    @Test
+    void readyCheckPairsAreRequeuedInsteadOfMatchedAgain() {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        Notifier notifier = new Notifier();
+        EnhancedMatchEngine a = engine(notifier, driver);
+        ReadyCheckService rc = new ReadyCheckService(10_000, 100, 64, a, notifier, driver, driver);
+        a.setReadyCheck(rc);
+        a.submitEvent("x", 110, 5, "match", "cx");
+        a.submitEvent("y", 111, 5, "match", "cy");
+        driver.advanceTo(600);
+        assertEquals(1, rc.outstanding());
+
+        MatchShutdown.Report report = new MatchShutdown(props(), a, notifier, null, rc, null).drain();
+        assertEquals(0, report.finalPairs());
+        assertEquals(1, report.requeued());
+        assertEquals(2, report.waiting());
+        assertEquals(-1, report.persisted());
+        // 未启用快照 / 日志：没有可认领的位置
+        assertEquals(List.of("cx:0", "cy:0"), notifier.draining.stream().sorted().toList());
+    }
+
+    /**
+     * multi 模式：注册表托管的每个队列都拒绝新提交并做收尾匹配
+     */
+    @Test
+    void multiQueueShutdownDrainsEveryQueue() {
+        Notifier notifier = new Notifier();
+        MatchProperties props = props();
+        props.setQueueWorkers(1);
+        MatchQueueRegistry registry = new MatchQueueRegistry(props, notifier);
+        for (String id : List.of("ranked", "casual")) {
+            MatchProperties.QueueSpec spec = new MatchProperties.QueueSpec();
+            // 周期远在停机之后，配对只能来自收尾轮次
+            spec.setCycleInterval(Duration.ofHours(1));
+            registry.register(id, spec);
+        }
+        assertTrue(registry.submitEvent("r1", 110, 5, "ranked", "cr1"));
+        assertTrue(registry.submitEvent("r2", 112, 5, "ranked", "cr2"));
+        assertTrue(registry.submitEvent("c1", 410, 5, "casual", "cc1"));
+        assertTrue(registry.submitEvent("c2", 411, 5, "casual", "cc2"));
+        assertTrue(registry.submitEvent("lone", 900, 0, "casual", "cl"));
+
+        MatchShutdown.Report report = new MatchShutdown(props, registry, notifier, null, null, null).drain();
+        assertEquals(2, report.finalPairs());
+        assertEquals(1, report.waiting());
+        assertEquals(-1, report.persisted());
+        assertEquals(2, notifier.pairs.size());
+        assertEquals(List.of("cl:0"), notifier.draining);
+        assertTrue(registry.engines().stream().allMatch(EnhancedMatchEngine::isDraining));
+    }
+}
@@ -0,0 +1,53 @@
+package com.match;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchWarmupTest {
+
+    @Test
+    void runsConfiguredRoundsOverEveryPath() {
+        MatchWarmup.Report report = new MatchWarmup(20, 60_000, 256, new RegionGrid(List.of("na", "eu"), 5000)).run();
+        assertEquals(20, report.rounds());
+        assertTrue(report.pairs() > 20 * 64, report.toString());
+
+        MatchWarmup.Report plain = new MatchWarmup(5, 60_000, 64, null).run();
+        assertEquals(5, plain.rounds());
+        assertTrue(plain.pairs() > 0);
+    }
+
+    @Test
+    void stopsWhenBudgetIsSpent() {
+        MatchWarmup.Report report = new MatchWarmup(Integer.MAX_VALUE, 0, 256, null).run();
+        assertEquals(0, report.rounds());
+    }
+
+    @Test
+    void recordsStartupMilestonesOnce() {
+        MatchMetrics metrics = new MatchMetrics();
+        metrics.setFirstMatchTarget(Duration.ofSeconds(5));
+        assertEquals(-1, metrics.getReadyUptimeMs());
+        assertEquals(-1, metrics.getFirstMatchUptimeMs());
+
+        metrics.recordReady();
+        assertTrue(metrics.getReadyUptimeMs() >= 0);
+
+        MatchEvent a = new MatchEvent();
+        a.init("a", 1, 1, "ca");
+        MatchEvent b = new MatchEvent();
+        b.init("b", 1, 1, "cb");
+        MatchPair pair = new MatchPair();
+        pair.init(a, b);
+        metrics.recordNotified(pair);
+        long first = metrics.getFirstMatchUptimeMs();
+        assertTrue(first >= metrics.getReadyUptimeMs());
+        metrics.recordNotified(pair);
+        assertEquals(first, metrics.getFirstMatchUptimeMs());
+        assertEquals(4, metrics.getNotified());
+    }
+}
@@ -0,0 +1,217 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapWaitingPoolTest {
+
+    private final List<OffHeapWaitingPool> pools = new ArrayList<>();
+
+    private OffHeapWaitingPool newPool(int capacity, int staging) {
+        OffHeapWaitingPool pool = new OffHeapWaitingPool(capacity, staging);
+        pools.add(pool);
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(OffHeapWaitingPool::free);
+    }
+
+    private static List<String> signature(List<MatchPair> pairs) {
+        List<String> out = new ArrayList<>(pairs.size());
+        for (MatchPair p : pairs) out.add(p.getUserA() + "|" + p.getUserB());
+        return out;
+    }
+
+    @Test
+    void poolPairsMatchHeapKernel() {
+        for (long seed = 1; seed <= 10; seed++) {
+            int n = 500 + (int) (seed * 131 % 2000);
+            int maxRange = (int) (seed * 7 % 40) + 1;
+
+            Random rnd = new Random(seed);
+            MatchEvent[] events = new MatchEvent[n];
+            OffHeapWaitingPool pool = newPool(4096, 4096);
+            for (int i = 0; i < n; i++) {
+                int score = rnd.nextInt(1000);
+                int range = rnd.nextInt(maxRange);
+                events[i] = new MatchEvent();
+                events[i].init("u" + i, score, range, "c" + i);
+                events[i].tryAcquire();
+                assertTrue(pool.add("u" + i, score, range, null, "c" + i, 0));
+            }
+
+            List<MatchPair> expected = new ArrayList<>();
+            new ScalarMatchKernel().match(SortedBatch.of(events, n), expected);
+
+            pool.merge();
+            List<MatchPair> scalar = new ArrayList<>();
+            pool.match(new ScalarMatchKernel(), scalar, null, 0);
+            assertEquals(signature(expected), signature(scalar), "scalar seed " + seed);
+
+            // 向量扫描走同一批列，应得到相同配对
+            OffHeapWaitingPool again = newPool(4096, 4096);
+            rnd = new Random(seed);
+            for (int i = 0; i < n; i++) {
+                again.add("u" + i, rnd.nextInt(1000), rnd.nextInt(maxRange), null, "c" + i, 0);
+            }
+            again.merge();
+            List<MatchPair> vector = new ArrayList<>();
+            again.match(new VectorMatchKernel(0), vector, null, 0);
+            assertEquals(signature(expected), signature(vector), "vector seed " + seed);
+            assertEquals(n - 2 * expected.size(), again.waiting());
+        }
+    }
+
+    @Test
+    void mergeKeepsScoreOrderAcrossCycles() {
+        OffHeapWaitingPool pool = newPool(1024, 64);
+        Random rnd = new Random(7);
+        List<MatchPair> out = new ArrayList<>();
+        int next = 0;
+        for (int cycle = 0; cycle < 10; cycle++) {
+            for (int i = 0; i < 50; i++, next++) {
+                pool.add("u" + next, rnd.nextInt(1000), 0, null, "c", 0);
+            }
+            pool.merge();
+            out.clear();
+            pool.match(new ScalarMatchKernel(), out, null, 0);
+            // range 0 只会与同分配对
+            for (MatchPair p : out) assertEquals(p.getScoreA(), p.getScoreB());
+        }
+        pool.merge();
+        assertEquals(pool.waiting(), pool.size());
+    }
+
+    @Test
+    void resubmissionReplacesOldRow() {
+        OffHeapWaitingPool pool = newPool(64, 16);
+        pool.add("alice", 100, 1, null, "c1", 0);
+        pool.merge();
+        pool.add("alice", 500, 10, null, "c2", 0);
+        pool.add("bob", 105, 10, null, "c3", 0);
+        assertEquals(2, pool.waiting());
+
+        pool.merge();
+        List<MatchPair> out = new ArrayList<>();
+        pool.match(new ScalarMatchKernel(), out, null, 0);
+        assertEquals(0, out.size());
+
+        pool.add("carol", 505, 10, null, "c4", 0);
+        pool.merge();
+        pool.match(new ScalarMatchKernel(), out, null, 0);
+        assertEquals(1, out.size());
+        assertEquals("c2", "alice".equals(out.get(0).getUserA()) ? out.get(0).getChannelA() : out.get(0).getChannelB());
+        assertEquals(1, pool.waiting());
+    }
+
+    @Test
+    void cancelChecksChannel() {
+        OffHeapWaitingPool pool = newPool(64, 16);
+        pool.add("alice", 100, 10, null, "c1", 0);
+        assertFalse(pool.cancel("alice", "other"));
+        assertTrue(pool.cancel("alice", "c1"));
+        assertFalse(pool.contains("alice"));
+
+        pool.add("bob", 101, 10, null, "c2", 0);
+        pool.merge();
+        List<MatchPair> out = new ArrayList<>();
+        pool.match(new ScalarMatchKernel(), out, null, 0);
+        assertEquals(0, out.size());
+        assertEquals(1, pool.size());
+        // 没有连接的行不接受任何带连接的取消，只接受内部取消
+        pool.add("carol", 300, 10, null, null, 0);
+        assertFalse(pool.cancel("carol", "c3"));
+        assertTrue(pool.contains("carol"));
+        assertTrue(pool.cancel("carol", null));
+    }
+
+    @Test
+    void rejectsWhenStagingFull() {
+        OffHeapWaitingPool pool = newPool(64, 2);
+        assertTrue(pool.add("a", 1, 0, null, null, 0));
+        assertTrue(pool.add("b", 2, 0, null, null, 0));
+        assertTrue(pool.stagingFull());
+        assertFalse(pool.add("c", 3, 0, null, null, 0));
+        pool.merge();
+        assertTrue(pool.add("c", 3, 0, null, null, 0));
+    }
+
+    @Test
+    void firstCandidateAgreesAcrossKernels() {
+        int n = 1000;
+        ByteBuffer scores = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+        ByteBuffer ranges = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+        ByteBuffer states = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+        Random rnd = new Random(3);
+        int s = 0;
+        for (int i = 0; i < n; i++) {
+            s += rnd.nextInt(3);
+            scores.putInt(i << 2, s);
+            ranges.putInt(i << 2, rnd.nextInt(5));
+            states.putInt(i << 2, rnd.nextInt(4) == 0 ? OffHeapWaitingPool.MATCHED : OffHeapWaitingPool.WAITING);
+        }
+        MatchKernel scalar = new ScalarMatchKernel();
+        List<MatchKernel> vectors = List.of(new VectorMatchKernel(128), new VectorMatchKernel(256), new VectorMatchKernel(512));
+        for (int from = 0; from < n; from += 7) {
+            int to = Math.min(n, from + rnd.nextInt(40));
+            int score = scores.getInt(from << 2);
+            int expected = scalar.firstCandidate(scores, ranges, states, from, to, score, OffHeapWaitingPool.WAITING);
+            for (MatchKernel k : vectors) {
+                assertEquals(expected, k.firstCandidate(scores, ranges, states, from, to, score, OffHeapWaitingPool.WAITING),
+                        k.name() + " from " + from);
+            }
+        }
+    }
+
+    @Test
+    void engineCyclesAtConfiguredInterval() throws Exception {
+        List<MatchPair> pairs = new CopyOnWriteArrayList<>();
+        DisruptorNotificationService sink = new DisruptorNotificationService(new MatchMetrics()) {
+            @Override
+            public void submit(MatchPair pair) {
+                pairs.add(pair);
+            }
+        };
+        MatchProperties props = new MatchProperties();
+        props.setOffHeapCapacity(1024);
+        props.setOffHeapStagingCapacity(64);
+        props.setOffHeapInboxCapacity(1 << 16);
+
+        // 间隔远大于原先写死的 200ms：半秒内不会开轮
+        props.setCycleInterval(Duration.ofSeconds(10));
+        OffHeapMatchEngine slow = new OffHeapMatchEngine(props, sink);
+        try {
+            assertTrue(slow.submitEvent("a", 100, 5, "c1"));
+            assertTrue(slow.submitEvent("b", 102, 5, "c2"));
+            Thread.sleep(500);
+            assertTrue(pairs.isEmpty());
+        } finally {
+            slow.stop();
+        }
+
+        props.setCycleInterval(Duration.ofMillis(10));
+        OffHeapMatchEngine fast = new OffHeapMatchEngine(props, sink);
+        try {
+            assertTrue(fast.submitEvent("c", 100, 5, "c3"));
+            assertTrue(fast.submitEvent("d", 102, 5, "c4"));
+            for (int i = 0; i < 500 && pairs.isEmpty(); i++) Thread.sleep(10);
+            assertEquals(1, pairs.size());
+        } finally {
+            fast.stop();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.match;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartyTest {
+
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    private static Party party(int rating, String... names) {
+        List<Party.Member> members = new ArrayList<>();
+        for (String n : names) members.add(new Party.Member(n, "c" + n));
+        return new Party(rating, 5, members);
+    }
+
+    @Test
+    void partyResolvesMemberChannelsFromRegistry() {
+        ShardedChannelRegistry registry = new ShardedChannelRegistry();
+        EmbeddedChannel bob = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = bob.pipeline().firstContext();
+        registry.register(ctx);
+        assertEquals("bob", registry.bindUser(ctx, "bob"));
+        String bobChannel = bob.id().asLongText();
+        Function<String, String> aliceMembers = name -> registry.memberChannel(name, "alice");
+
+        // 未同意加入
+        assertNull(Party.of("alice", "ca", 1500, 20, List.of("bob"), aliceMembers, 5));
+        registry.joinParty(ctx, "alice");
+        Party p = Party.of("alice", "ca", 1500, 20, List.of("bob"), aliceMembers, 5);
+        assertEquals(List.of(new Party.Member("alice", "ca"), new Party.Member("bob", bobChannel)), p.members());
+        // 超员、重复、成员未上线
+        assertNull(Party.of("alice", "ca", 1500, 20, List.of("bob"), aliceMembers, 1));
+        assertNull(Party.of("alice", "ca", 1500, 20, List.of("bob", "alice"), aliceMembers, 5));
+        assertNull(Party.of("alice", "ca", 1500, 20, List.of("carol"), aliceMembers, 5));
+        // 同意的是 alice，别的队长拉不进去
+        assertNull(Party.of("mallory", "cm", 1500, 20, List.of("bob"), name -> registry.memberChannel(name, "mallory"), 5));
+
+        // 绑定后不可改名，别的连接也顶替不了 bob
+        assertEquals("bob", registry.bindUser(ctx, "mallory"));
+        EmbeddedChannel other = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext otherCtx = other.pipeline().firstContext();
+        registry.register(otherCtx);
+        assertNull(registry.bindUser(otherCtx, "bob"));
+        assertEquals(bobChannel, registry.channelOf("bob"));
+
+        registry.unregister(ctx);
+        assertNull(registry.channelOf("bob"));
+        assertEquals("bob", registry.bindUser(otherCtx, "bob"));
+    }
+
+    /**
+     * 组队以全部成员名登记：成员不会同时在单人队列和队伍里，也进不了第二支队伍
+     */
+    @Test
+    void partyClaimsEveryMember() {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+
+        driver.advanceTo(600);
+        assertTrue(engine.submitEvent("bob", 300, 5, "match", "cbob"));
+        // bob 的单人排队被自己加入的队伍顶替
+        assertTrue(engine.submitParty(party(110, "alice", "bob"), "match", 0));
+        assertFalse(engine.submitParty(party(112, "carol", "bob"), "match", 0));
+        assertFalse(engine.submitEvent("bob", 111, 5, "match", "cbob"));
+        // 只有队长能取消
+        assertFalse(engine.cancelEvent("bob", "cbob"));
+        assertTrue(engine.submitEvent("s1", 111, 5, "match", "cs1"));
+        driver.advanceTo(700);
+        // 单人 bob 已作废，队伍没有同人数对手
+        assertTrue(service.pairs.isEmpty());
+        assertEquals(3, engine.indexedUsers());
+
+        assertTrue(engine.cancelEvent("alice", "calice"));
+        assertEquals(1, engine.indexedUsers());
+        assertTrue(engine.submitEvent("bob", 112, 5, "match", "cbob"));
+        driver.advanceTo(900);
+        assertEquals(1, service.pairs.size());
+        assertEquals(Set.of("s1", "bob"), Set.of(service.pairs.get(0).getUserA(), service.pairs.get(0).getUserB()));
+    }
+
+    @Test
+    void partiesOnlyMatchEqualSizedUnits() {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+
+        driver.advanceTo(600);
+        engine.submitEvent("s1", 110, 5, "match", "cs1");
+        assertTrue(engine.submitParty(party(111, "alice", "bob"), "match", 0));
+        engine.submitEvent("s2", 112, 5, "match", "cs2");
+        assertTrue(engine.submitParty(party(113, "trio1", "trio2", "trio3"), "match", 0));
+        assertTrue(engine.submitParty(party(110, "carol", "dave"), "match", 0));
+        // 每队只占一个槽位
+        assertEquals(5, engine.pendingEvents());
+        driver.advanceTo(700);
+
+        assertEquals(2, service.pairs.size());
+        Map<String, MatchPair> byUser = new ConcurrentHashMap<>();
+        for (MatchPair p : service.pairs) {
+            byUser.put(p.getUserA(), p);
+            byUser.put(p.getUserB(), p);
+        }
+        MatchPair solos = byUser.get("s1");
+        assertEquals(Set.of("s1", "s2"), Set.of(solos.getUserA(), solos.getUserB()));
+        assertNull(solos.getPartyA());
+        MatchPair parties = byUser.get("alice");
+        assertEquals(Set.of("alice", "carol"), Set.of(parties.getUserA(), parties.getUserB()));
+        assertEquals(2, parties.getPartyA().size());
+        assertEquals(2, parties.getPartyB().size());
+        // 三人队没有同人数的对手，继续排队
+        assertEquals(1, engine.pendingEvents());
+        assertTrue(engine.cancelEvent("trio1", "ctrio1"));
+    }
+
+    @Test
+    void oneEventNotifiesEveryMember() throws Exception {
+        DisruptorNotificationService service = new DisruptorNotificationService(16, 1);
+        Set<String> notified = ConcurrentHashMap.newKeySet();
+        ShardedChannelRegistry registry = new ShardedChannelRegistry() {
+            @Override
+            public Mono<ChannelHandlerContext> get(String channelId) {
+                notified.add(channelId);
+                return Mono.empty();
+            }
+        };
+        Field field = DisruptorNotificationService.class.getDeclaredField("registry");
+        field.setAccessible(true);
+        field.set(service, registry);
+
+        MatchEvent a = new MatchEvent();
+        a.init("alice", 111, 5, "calice");
+        a.setParty(party(111, "alice", "bob"));
+        MatchEvent b = new MatchEvent();
+        b.init("carol", 110, 5, "ccarol");
+        b.setParty(party(110, "carol", "dave"));
+        MatchPair pair = new MatchPair();
+        pair.init(a, b);
+
+        MatchFoundEncoder.Frames frames = new MatchFoundEncoder().encode(pair);
+        String text = frames.forA().content().toString(StandardCharsets.UTF_8);
+        frames.release();
+        assertTrue(text.contains("{\"username\":\"alice\",\"score\":111,\"members\":[\"alice\",\"bob\"]}"), text);
+        assertTrue(text.contains("{\"username\":\"carol\",\"score\":110,\"members\":[\"carol\",\"dave\"]}"), text);
+
+        service.submit(pair);
+        for (int i = 0; i < 200 && notified.size() < 4; i++) Thread.sleep(10);
+        assertEquals(Set.of("calice", "cbob", "ccarol", "cdave"), notified);
+        assertTrue(service.drain(5000));
+    }
+}
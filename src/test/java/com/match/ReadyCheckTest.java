@@ -0,0 +1,239 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadyCheckTest {
+
+    private static final long WINDOW = 1000;
+
+    private final SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+    private final MatchMetrics metrics = new MatchMetrics();
+    private final Queue<String> statuses = new ConcurrentLinkedQueue<>();
+    private final List<MatchPair> pairs = new ArrayList<>();
+    private final DisruptorNotificationService notifier = new DisruptorNotificationService(metrics) {
+        @Override
+        public void submit(MatchPair pair) {
+            pairs.add(pair);
+        }
+
+        @Override
+        public void notifyStatus(String channelId, String type, long matchId, boolean requeued) {
+            statuses.add(channelId + ":" + type + ":" + requeued);
+        }
+    };
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    /**
+     * 只记录重新排队请求的引擎
+     */
+    static final class RequeueRecorder implements MatchEngine {
+        final Queue<String> requeued = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public boolean submitEvent(String username, int score, int matchRange, String channelId) {
+            return true;
+        }
+
+        @Override
+        public boolean requeue(String username, int score, int matchRange, String mode, String channelId, long enqueuedAt) {
+            if (count.incrementAndGet() <= 16) requeued.add(username + "@" + enqueuedAt);
+            return true;
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    private static MatchPair pair(String a, String b) {
+        MatchPair p = new MatchPair();
+        p.init(a, "c-" + a, 100, 10, b, "c-" + b, 105, 10);
+        return p;
+    }
+
+    @Test
+    void bothAcceptConfirms() {
+        RequeueRecorder recorder = new RequeueRecorder();
+        // 小轮子，窗口跨越多圈
+        ReadyCheckService rc = new ReadyCheckService(WINDOW, 50, 8, recorder, notifier, driver, driver);
+        long id = rc.register(pair("a", "b"));
+
+        assertFalse(rc.accept(id, "c", null));
+        assertFalse(rc.accept(id, "a", "c-other"));
+        assertTrue(rc.accept(id, "a", "c-a"));
+        driver.advanceBy(500);
+        assertEquals(1, rc.outstanding());
+        assertTrue(rc.accept(id, "b", "c-b"));
+
+        assertEquals(0, rc.outstanding());
+        assertEquals(List.of("c-a:match_confirmed:false", "c-b:match_confirmed:false"), new ArrayList<>(statuses));
+        assertFalse(rc.decline(id, "b", "c-b"));
+        driver.advanceBy(2 * WINDOW);
+        assertEquals(0, recorder.count.get());
+        assertEquals(1, metrics.getReadyChecks(MatchMetrics.READY_CONFIRMED));
+        assertEquals(0, metrics.getReadyChecks(MatchMetrics.READY_TIMEOUT));
+    }
+
+    @Test
+    void declineRequeuesTheOtherPlayer() {
+        RequeueRecorder recorder = new RequeueRecorder();
+        ReadyCheckService rc = new ReadyCheckService(WINDOW, 50, 8, recorder, notifier, driver, driver);
+        MatchPair p = pair("a", "b");
+        long id = rc.register(p);
+
+        // a 未应答，b 拒绝：a 无过错，照样回队
+        assertTrue(rc.decline(id, "b", "c-b"));
+        assertEquals(0, rc.outstanding());
+        assertEquals(List.of("a@0"), new ArrayList<>(recorder.requeued));
+        assertEquals(List.of("c-a:match_cancelled:true", "c-b:match_cancelled:false"), new ArrayList<>(statuses));
+        assertFalse(rc.accept(id, "a", "c-a"));
+        assertEquals(1, metrics.getReadyChecks(MatchMetrics.READY_DECLINED));
+    }
+
+    @Test
+    void timeoutRequeuesOnlyAccepterWithOriginalWait() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        engine = new EnhancedMatchEngine(props, notifier, null, driver, driver);
+        ReadyCheckService rc = new ReadyCheckService(WINDOW, 50, 8, engine, notifier, driver, driver);
+        engine.setReadyCheck(rc);
+
+        driver.advanceTo(1000);
+        engine.submitEvent("a", 110, 10, "match", "c-a");
+        driver.advanceTo(1500);
+        engine.submitEvent("b", 115, 10, "match", "c-b");
+        driver.advanceTo(2500);
+        assertEquals(1, pairs.size());
+        long id = pairs.get(0).getMatchId();
+        assertEquals(1, rc.outstanding());
+
+        assertTrue(rc.accept(id, "b", "c-b"));
+        long matchedAt = pairs.get(0).getCreatedAt();
+        driver.advanceTo(matchedAt + WINDOW - 100);
+        assertEquals(1, rc.outstanding());
+        driver.advanceTo(matchedAt + WINDOW + 100);
+        assertEquals(0, rc.outstanding());
+        assertEquals(Set.of("c-a:match_cancelled:false", "c-b:match_cancelled:true"), new HashSet<>(statuses));
+
+        // 只有 b 回到队列，且仍是原入队时间
+        Map<String, Long> waiting = new HashMap<>();
+        engine.visitWaiting(e -> waiting.put(e.getUsername(), e.getEnqueuedAt()));
+        assertEquals(Map.of("b", 1500L), waiting);
+        assertEquals(1, metrics.getReadyChecks(MatchMetrics.READY_TIMEOUT));
+    }
+
+    /**
+     * 10 万个待确认配对，多线程应答的同时推进时间轮：四分之一双方接受、四分之一只有 A 接受、
+     * 四分之一 B 拒绝、其余无人应答
+     */
+    @Test
+    void handlesHundredThousandOutstanding() throws Exception {
+        int n = 100_000;
+        int threads = 4;
+        RequeueRecorder recorder = new RequeueRecorder();
+        ReadyCheckService rc = new ReadyCheckService(WINDOW, 10, 64, recorder, notifier, driver, driver);
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = rc.register(pair("a" + i, "b" + i));
+        }
+        assertEquals(n, rc.outstanding());
+
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            new Thread(() -> {
+                for (int i = offset; i < n; i += threads) {
+                    switch (i & 3) {
+                        case 0 -> {
+                            rc.accept(ids[i], "b" + i, null);
+                            rc.accept(ids[i], "a" + i, null);
+                        }
+                        case 1 -> rc.accept(ids[i], "a" + i, null);
+                        case 2 -> rc.decline(ids[i], "b" + i, null);
+                        default -> {
+                        }
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        // 应答与时间轮推进（登记转入、空槽扫描）并发进行，均在窗口内
+        long t = 0;
+        while (done.getCount() > 0 && t < WINDOW - 100) {
+            driver.advanceTo(t += 10);
+        }
+        done.await();
+        assertEquals(n / 2, rc.outstanding());
+
+        driver.advanceTo(WINDOW + 100);
+        assertEquals(0, rc.outstanding());
+        assertEquals(n / 4, metrics.getReadyChecks(MatchMetrics.READY_CONFIRMED));
+        assertEquals(n / 4, metrics.getReadyChecks(MatchMetrics.READY_DECLINED));
+        assertEquals(n / 2, metrics.getReadyChecks(MatchMetrics.READY_TIMEOUT));
+        // 拒绝时的 A 与超时时已接受的 A
+        assertEquals(n / 2, recorder.count.get());
+        assertEquals(2 * n, statuses.size());
+    }
+
+    /**
+     * 接受与超时竞争：接受成功的一方必须按已接受处理重新排队，不能按超时前读到的旧状态当作未应答
+     */
+    @Test
+    void acceptRacingExpiryAlwaysRequeuesTheAccepter() throws Exception {
+        int n = 200_000;
+        RequeueRecorder recorder = new RequeueRecorder();
+        ReadyCheckService rc = new ReadyCheckService(WINDOW, 10, 64, recorder, notifier, driver, driver);
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = rc.register(pair("a" + i, "b" + i));
+        }
+        driver.advanceTo(WINDOW - 100);
+        assertEquals(n, rc.outstanding());
+
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread accepter = new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // 与时间轮同序（槽内后登记的在前）扫过，尽量与超时处理交错
+            for (int i = n - 1; i >= 0; i--) {
+                if (rc.accept(ids[i], "a" + i, null)) accepted.incrementAndGet();
+            }
+        });
+        accepter.start();
+        start.countDown();
+        driver.advanceTo(WINDOW + 100);
+        accepter.join();
+
+        assertEquals(0, rc.outstanding());
+        assertEquals(n, metrics.getReadyChecks(MatchMetrics.READY_TIMEOUT));
+        assertEquals(accepted.get(), recorder.count.get());
+    }
+}
@@ -0,0 +1,166 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReconfigureTest {
+
+    private final SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+    private final MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    private EnhancedMatchEngine engine(int expectedLoadPerBucket) {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(expectedLoadPerBucket);
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        return engine;
+    }
+
+    private static EngineTuning.Patch patch(Integer bucketSize, Integer maxScore, Long maxPending,
+                                            Long cycleMs, Integer idleThreshold) {
+        return new EngineTuning.Patch(bucketSize, maxScore, null, maxPending, null, cycleMs, null, idleThreshold);
+    }
+
+    private void reconfigure(EngineTuning.Patch patch) {
+        engine.reconfigure(patch.applyTo(engine.tuning()));
+    }
+
+    @Test
+    void rebucketKeepsWaitingPlayersAndTheirPosition() {
+        EnhancedMatchEngine e = engine(4096);
+        driver.advanceTo(600);
+        e.submitEvent("a", 110, 5, "match", "ca");
+        e.submitEvent("c", 510, 5, "match", "cc");
+
+        int migrated = e.reconfigure(patch(100, 2000, null, null, null).applyTo(e.tuning()));
+        assertEquals(2, migrated);
+        assertEquals(20, e.numBuckets());
+        int[] depths = e.bucketDepths();
+        assertEquals(1, depths[1]);
+        assertEquals(1, depths[5]);
+        assertEquals(2, e.pendingEvents());
+        Map<String, Long> waiting = new HashMap<>();
+        e.visitWaiting(ev -> waiting.put(ev.getUsername(), ev.getEnqueuedAt()));
+        assertEquals(Map.of("a", 600L, "c", 600L), waiting);
+
+        // 新布局上照常匹配，且沿用原入队时间
+        driver.advanceTo(650);
+        e.submitEvent("b", 112, 5, "match", "cb");
+        driver.advanceTo(700);
+        assertEquals(1, service.pairs.size());
+        MatchPair p = service.pairs.get(0);
+        long enqueuedA = p.getUserA().equals("a") ? p.getEnqueuedAtA() : p.getEnqueuedAtB();
+        assertEquals(600, enqueuedA);
+        assertEquals(1, e.pendingEvents());
+    }
+
+    @Test
+    void submitsDuringRebucketAreNotLost() throws Exception {
+        EnhancedMatchEngine e = engine(8192);
+        int threads = 4;
+        int perThread = 10_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger accepted = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // matchRange 0 且不推进时钟，全部留在队列中
+                    if (e.submitEvent("u" + offset + "-" + i, 1 + (i * 7 + offset) % 1000, 0, "match", null)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        int swaps = 0;
+        while (done.getCount() > 0) {
+            reconfigure(patch(swaps++ % 2 == 0 ? 25 : 50, null, null, null, null));
+        }
+        done.await();
+        reconfigure(patch(40, null, null, null, null));
+
+        int total = threads * perThread;
+        assertEquals(total, accepted.get());
+        assertEquals(total, e.pendingEvents());
+        assertEquals(total, e.indexedUsers());
+        int depth = 0;
+        for (int d : e.bucketDepths()) depth += d;
+        assertEquals(total, depth);
+        assertEquals(total, e.visitWaiting(ev -> { }));
+    }
+
+    /**
+     * 每桶容量调小：装不下的等待者进入溢出列表，不作废，之后照常配对
+     */
+    @Test
+    void shrinkingBucketCapacityKeepsEveryWaiter() {
+        EnhancedMatchEngine e = engine(64);
+        for (int i = 0; i < 40; i++) {
+            e.submitEvent("u" + i, 110 + i % 2, 5, "match", "c" + i);
+        }
+        int migrated = e.reconfigure(new EngineTuning.Patch(null, null, 8, null, null, null, null, null)
+                .applyTo(e.tuning()));
+        assertEquals(40, migrated);
+        assertEquals(40, e.pendingEvents());
+        assertEquals(40, e.indexedUsers());
+        assertEquals(40, e.bucketDepths()[2]);
+        for (int i = 0; i < 40; i++) assertTrue(e.lookup("u" + i).isWaiting());
+
+        driver.advanceTo(3000);
+        assertEquals(20, service.pairs.size());
+        assertEquals(0, e.pendingEvents());
+    }
+
+    @Test
+    void intervalChangeTakesEffectOnNextSchedule() {
+        EnhancedMatchEngine e = engine(4096);
+        driver.advanceTo(550);
+        // 关闭定时全局匹配，只看普通轮次
+        reconfigure(patch(null, null, null, 1000L, 0));
+        assertEquals(1000, e.tuning().cycleIntervalMs());
+
+        // 已排好的 700 照常执行，之后按新间隔到 1700
+        driver.advanceTo(750);
+        e.submitEvent("x", 110, 5, "match", "cx");
+        e.submitEvent("y", 111, 5, "match", "cy");
+        driver.advanceTo(1600);
+        assertEquals(0, service.pairs.size());
+        driver.advanceTo(1700);
+        assertEquals(1, service.pairs.size());
+    }
+
+    @Test
+    void pendingLimitRejectsUntilRaised() {
+        EnhancedMatchEngine e = engine(4096);
+        reconfigure(patch(null, null, 2L, null, null));
+        assertTrue(e.submitEvent("a", 100, 0, "match", "ca"));
+        assertTrue(e.submitEvent("b", 300, 0, "match", "cb"));
+        assertFalse(e.submitEvent("c", 500, 0, "match", "cc"));
+        assertEquals(1, service.getMetrics().getRejected());
+
+        reconfigure(patch(null, null, 0L, null, null));
+        assertTrue(e.submitEvent("c", 500, 0, "match", "cc"));
+
+        assertThrows(IllegalArgumentException.class, () -> reconfigure(patch(0, null, null, null, null)));
+        e.stop();
+        assertThrows(IllegalStateException.class, () -> reconfigure(patch(null, null, 10L, null, null)));
+    }
+}
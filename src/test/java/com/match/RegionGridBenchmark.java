@@ -0,0 +1,98 @@
+package com.match;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单桶批次匹配吞吐：一维管线（只比分数）vs 分数 × 区域网格（regions 个区域，约 1/10 已放宽）。
+ * mvn test-compile 后以 test classpath 运行 main
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "--add-modules=jdk.incubator.vector")
+public class RegionGridBenchmark {
+
+    private static final long NOW = 60_000;
+
+    @Param({"4096"})
+    int batchSize;
+
+    @Param({"1", "4", "8"})
+    int regions;
+
+    private RegionGrid grid;
+    private MatchEvent[] batch;
+    private int[] scores, ranges, codes;
+    private long[] enqueuedAt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < regions; i++) names.add("r" + i);
+        grid = new RegionGrid(names, 10_000);
+        Random rnd = new Random(7);
+        scores = new int[batchSize];
+        ranges = new int[batchSize];
+        codes = new int[batchSize];
+        enqueuedAt = new long[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            scores[i] = rnd.nextInt(1000);
+            ranges[i] = 1 + rnd.nextInt(10);
+            codes[i] = 1 + rnd.nextInt(regions);
+            enqueuedAt[i] = rnd.nextInt(10) == 0 ? 0 : NOW - 1000;
+        }
+        batch = new MatchEvent[batchSize];
+    }
+
+    /**
+     * 匹配会改写事件状态，每次调用前重建
+     */
+    @Setup(Level.Invocation)
+    public void refill() {
+        for (int i = 0; i < batchSize; i++) {
+            MatchEvent e = new MatchEvent();
+            e.init("u" + i, scores[i], ranges[i], null, codes[i], null);
+            e.setEnqueuedAt(enqueuedAt[i]);
+            e.tryAcquire();
+            batch[i] = e;
+        }
+    }
+
+    @Benchmark
+    public int scoreOnly() {
+        List<MatchPair> pairs = new ArrayList<>();
+        VectorizedMatchPipeline.processBatch(batch, batchSize, pairs);
+        return pairs.size();
+    }
+
+    @Benchmark
+    public int scoreAndRegion() {
+        List<MatchPair> pairs = new ArrayList<>();
+        VectorizedMatchPipeline.processBatch(batch, batchSize, grid, NOW, pairs);
+        return pairs.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RegionGridBenchmark.class.getSimpleName()).build()).run();
+    }
+}
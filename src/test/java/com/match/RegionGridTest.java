@@ -0,0 +1,109 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionGridTest {
+
+    private static final List<String> REGIONS = List.of("na", "eu", "asia");
+
+    private EnhancedMatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    @Test
+    void resolvesDeclaredRegionThenLowestPing() {
+        assertEquals(2, RegionGrid.resolve(REGIONS, "EU", Map.of("na", 10)));
+        assertEquals(3, RegionGrid.resolve(REGIONS, null, Map.of("na", 80, "asia", 25, "moon", 1)));
+        assertEquals(RegionGrid.ANY, RegionGrid.resolve(REGIONS, "moon", null));
+        assertEquals(RegionGrid.ANY, RegionGrid.resolve(REGIONS, null, Map.of()));
+    }
+
+    /**
+     * 随机批次：每对分差在双方范围内、区域相同或至少一方不限 / 已放宽，且无人重复配对
+     */
+    @Test
+    void pairsRespectScoreAndRegion() {
+        RegionGrid grid = new RegionGrid(REGIONS, 5000);
+        long now = 10_000;
+        Random rnd = new Random(48);
+        int n = 4000;
+        MatchEvent[] batch = new MatchEvent[n];
+        for (int i = 0; i < n; i++) {
+            MatchEvent e = new MatchEvent();
+            e.init("u" + i, rnd.nextInt(500), rnd.nextInt(8), "match", rnd.nextInt(REGIONS.size() + 1), "c" + i);
+            // 约 1/5 已等够放宽时长
+            e.setEnqueuedAt(rnd.nextInt(5) == 0 ? 1000 : 9000);
+            e.tryAcquire();
+            batch[i] = e;
+        }
+        Map<String, MatchEvent> byName = new HashMap<>();
+        for (MatchEvent e : batch) byName.put(e.getUsername(), e);
+
+        List<MatchPair> pairs = new ArrayList<>();
+        grid.match(SortedBatch.of(batch, n), now, pairs);
+
+        assertTrue(pairs.size() > n / 4, "pairs: " + pairs.size());
+        Set<String> seen = new HashSet<>();
+        int crossRegion = 0;
+        for (MatchPair p : pairs) {
+            assertTrue(seen.add(p.getUserA()) && seen.add(p.getUserB()));
+            int diff = Math.abs(p.getScoreA() - p.getScoreB());
+            assertTrue(diff <= p.getRangeA() && diff <= p.getRangeB());
+            int ca = grid.cellOf(byName.get(p.getUserA()), now);
+            int cb = grid.cellOf(byName.get(p.getUserB()), now);
+            assertTrue(ca == cb || ca == RegionGrid.ANY || cb == RegionGrid.ANY, p.toString());
+            if (p.getRegionA() != p.getRegionB()) crossRegion++;
+        }
+        assertTrue(crossRegion > 0);
+    }
+
+    @Test
+    void regionRelaxesAfterWaitThreshold() {
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(4096);
+        props.setRegions(REGIONS);
+        props.setRegionRelaxAfter(Duration.ofSeconds(5));
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+
+        driver.advanceTo(600);
+        engine.submitEvent("a", 110, 5, "match", 1, "ca");
+        engine.submitEvent("b", 111, 5, "match", 2, "cb");
+        engine.submitEvent("c", 112, 5, "match", 1, "cc");
+        driver.advanceTo(700);
+        assertEquals(1, service.pairs.size());
+        assertEquals(Set.of("a", "c"), Set.of(service.pairs.get(0).getUserA(), service.pairs.get(0).getUserB()));
+
+        // 不同区域、分数兼容：放宽前不配对
+        driver.advanceTo(1000);
+        engine.submitEvent("d", 113, 5, "match", 1, "cd");
+        driver.advanceTo(5500);
+        assertEquals(1, service.pairs.size());
+
+        // b 自 600 起等满 5 秒后放宽
+        driver.advanceTo(5700);
+        assertEquals(2, service.pairs.size());
+        MatchPair relaxed = service.pairs.get(1);
+        assertEquals(Set.of("b", "d"), Set.of(relaxed.getUserA(), relaxed.getUserB()));
+        assertEquals(0, engine.pendingEvents());
+    }
+}
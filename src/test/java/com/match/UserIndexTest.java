@@ -0,0 +1,110 @@
+package com.match;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserIndexTest {
+
+    private final SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+    private final MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+    private EnhancedMatchEngine engine;
+
+    private EnhancedMatchEngine newEngine(String duplicatePolicy) {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(50);
+        props.setExpectedLoadPerBucket(1024);
+        props.setDuplicatePolicy(duplicatePolicy);
+        engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        return engine;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    @Test
+    void claimKeepsOneLiveEventPerUser() {
+        UserIndex index = new UserIndex(4);
+        MatchEvent first = new MatchEvent();
+        first.tryAcquire();
+        MatchEvent second = new MatchEvent();
+
+        assertNull(index.claim("alice", first));
+        assertEquals(first, index.claim("alice", second));
+
+        first.markMatched();
+        assertNull(index.claim("alice", second));
+        assertFalse(index.remove("alice", first));
+        assertTrue(index.remove("alice", second));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void resubmissionUpdatesInPlace() {
+        EnhancedMatchEngine e = newEngine("update");
+        assertTrue(e.submitEvent("alice", 110, 1, "match", "c1"));
+        assertTrue(e.submitEvent("alice", 112, 10, "match", "c2"));
+        assertTrue(e.submitEvent("bob", 118, 10, "match", "c3"));
+        assertEquals(2, e.indexedUsers());
+
+        driver.advanceTo(500);
+
+        assertEquals(1, service.pairs.size());
+        MatchPair p = service.pairs.get(0);
+        assertTrue(p.getUserA().equals("alice") ^ p.getUserB().equals("alice"));
+        assertEquals("c2", "alice".equals(p.getUserA()) ? p.getChannelA() : p.getChannelB());
+        assertEquals(0, e.indexedUsers());
+    }
+
+    @Test
+    void resubmissionAcrossBucketsReplacesOldEvent() {
+        EnhancedMatchEngine e = newEngine("update");
+        e.submitEvent("alice", 110, 10, "match", "c1");
+        e.submitEvent("alice", 920, 10, "match", "c1");
+        e.submitEvent("bob", 115, 10, "match", "c2");
+
+        driver.advanceTo(500);
+        assertEquals(0, service.pairs.size());
+
+        e.submitEvent("carol", 925, 10, "match", "c3");
+        driver.advanceTo(700);
+        assertEquals(1, service.pairs.size());
+        assertEquals("carol", service.pairs.get(0).getUserA().equals("alice")
+                ? service.pairs.get(0).getUserB() : service.pairs.get(0).getUserA());
+    }
+
+    @Test
+    void rejectPolicyRefusesDuplicates() {
+        EnhancedMatchEngine e = newEngine("reject");
+        assertTrue(e.submitEvent("alice", 110, 10, "match", "c1"));
+        assertFalse(e.submitEvent("alice", 110, 10, "match", "c1"));
+        assertEquals(1, service.getMetrics().getRejected());
+    }
+
+    @Test
+    void cancelledPlayerIsSkipped() {
+        EnhancedMatchEngine e = newEngine("update");
+        e.submitEvent("alice", 110, 10, "match", "c1");
+
+        assertFalse(e.cancelEvent("alice", "someone-else"));
+        assertTrue(e.cancelEvent("alice", "c1"));
+        assertFalse(e.cancelEvent("alice", "c1"));
+
+        e.submitEvent("bob", 115, 10, "match", "c2");
+        driver.advanceTo(2_000);
+
+        assertEquals(0, service.pairs.size());
+        assertEquals(1, e.indexedUsers());
+        // 取消后可重新排队
+        assertTrue(e.submitEvent("alice", 112, 10, "match", "c1"));
+        driver.advanceTo(2_100);
+        assertEquals(1, service.pairs.size());
+    }
+}
@@ -0,0 +1,169 @@
+package com.match;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitingSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    static class CapturingService extends DisruptorNotificationService {
+        final List<MatchPair> pairs = new CopyOnWriteArrayList<>();
+
+        CapturingService() {
+            super(16, 1);
+        }
+
+        @Override
+        public void submit(MatchPair pair) {
+            pairs.add(pair);
+        }
+    }
+
+    private static MatchProperties props() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setExpectedLoadPerBucket(1024);
+        return props;
+    }
+
+    @Test
+    void writeAndReadRoundTrip() throws Exception {
+        WaitingSnapshotStore store = new WaitingSnapshotStore(dir.resolve("waiting.snap"));
+        MatchEvent a = new MatchEvent();
+        a.init("玩家A", 120, 30, "match", "c1");
+        a.setEnqueuedAt(42L);
+        MatchEvent b = new MatchEvent();
+        b.init("b", 900, 5, null, "c2");
+
+        assertEquals(2, store.write(List.of(a, b)));
+        List<MatchEvent> read = store.read();
+
+        assertEquals(2, read.size());
+        assertEquals("玩家A", read.get(0).getUsername());
+        assertEquals(120, read.get(0).getScore());
+        assertEquals(30, read.get(0).getMatchRange());
+        assertEquals("match", read.get(0).getMode());
+        assertEquals(42L, read.get(0).getEnqueuedAt());
+        assertNull(read.get(0).getChannelId());
+        assertNull(read.get(1).getMode());
+    }
+
+    @Test
+    void restartRestoresQueueAndReconnectResumes() throws Exception {
+        Path file = dir.resolve("waiting.snap");
+        CapturingService service = new CapturingService();
+
+        EnhancedMatchEngine before = new EnhancedMatchEngine(props(), service, null);
+        before.submitEvent("alice", 100, 1, "old-channel");
+        before.submitEvent("bob", 500, 1, "old-channel-2");
+        WaitingSnapshotStore store = new WaitingSnapshotStore(file);
+        assertEquals(2, store.write(before));
+        before.stop();
+
+        EnhancedMatchEngine after = new EnhancedMatchEngine(props(), service, null);
+        assertEquals(2, store.restoreInto(after, Duration.ofMinutes(1)));
+
+        // alice 重连认领原位置，charlie 新加入；bob 未重连，不参与匹配
+        after.submitEvent("alice", 100, 1, "new-channel");
+        after.submitEvent("charlie", 99, 1, "c3");
+        after.submitEvent("dave", 500, 1, "c4");
+        for (int i = 0; i < 300 && service.pairs.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(400); // 再等一轮，确认 bob 不会被匹配
+        after.stop();
+        service.shutdown();
+
+        assertEquals(1, service.pairs.size());
+        MatchPair pair = service.pairs.get(0);
+        String aliceChannel = "alice".equals(pair.getUserA()) ? pair.getChannelA() : pair.getChannelB();
+        assertEquals("new-channel", aliceChannel);
+    }
+
+    /**
+     * 恢复出的等待者没有连接：其他连接不能替他取消，重连认领后本人可以
+     */
+    @Test
+    void restoredWaiterCanOnlyBeCancelledByItsReconnectedOwner() {
+        MatchProperties props = props();
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        EnhancedMatchEngine engine = new EnhancedMatchEngine(props, new CapturingService(), null, driver, driver);
+        MatchEvent e = new MatchEvent();
+        e.init("alice", 100, 1, "match", null);
+        e.setEnqueuedAt(0);
+        assertEquals(1, engine.restore(List.of(e), Duration.ofMinutes(1)));
+
+        assertFalse(engine.cancelEvent("alice", "intruder"));
+        assertTrue(engine.lookup("alice").isWaiting());
+
+        assertTrue(engine.submitEvent("alice", 100, 1, "match", "alice-channel"));
+        assertFalse(engine.cancelEvent("alice", "intruder"));
+        assertTrue(engine.cancelEvent("alice", "alice-channel"));
+        engine.stop();
+    }
+
+    @Test
+    void lengthsAboveShortRangeRoundTripAndOversizedRecordsAreSkipped() throws Exception {
+        WaitingSnapshotStore store = new WaitingSnapshotStore(dir.resolve("waiting.snap"));
+        MatchEvent wide = new MatchEvent();
+        wide.init("w".repeat(40_000), 100, 1, "m".repeat(WaitingSnapshotStore.MAX_STRING_BYTES), "c1");
+        MatchEvent oversized = new MatchEvent();
+        oversized.init("x".repeat(WaitingSnapshotStore.MAX_STRING_BYTES + 1), 200, 1, null, "c2");
+        MatchEvent tail = new MatchEvent();
+        tail.init("tail", 300, 1, "match", "c3");
+
+        assertEquals(2, store.write(List.of(wide, oversized, tail)));
+        List<MatchEvent> read = store.read();
+        assertEquals(2, read.size());
+        assertEquals(40_000, read.get(0).getUsername().length());
+        assertEquals(WaitingSnapshotStore.MAX_STRING_BYTES, read.get(0).getMode().length());
+        assertEquals("tail", read.get(1).getUsername());
+        assertEquals(300, read.get(1).getScore());
+    }
+
+    /**
+     * 遍历期间新提交占满了刚空出的槽位：返还失败的等待者进入溢出列表，不丢失，之后照常配对
+     */
+    @Test
+    void waitersDisplacedDuringVisitAreKept() {
+        MatchProperties props = new MatchProperties();
+        props.setMaxScore(1000);
+        props.setBucketSize(100);
+        props.setExpectedLoadPerBucket(4);
+        SimulatedCycleDriver driver = new SimulatedCycleDriver(0);
+        MatchReplay.CollectingNotificationService service = new MatchReplay.CollectingNotificationService();
+        EnhancedMatchEngine engine = new EnhancedMatchEngine(props, service, null, driver, driver);
+        for (int i = 0; i < 4; i++) engine.submitEvent("w" + i, 10 + 10 * i, 0, "c");
+
+        List<String> visited = new ArrayList<>();
+        engine.visitWaiting(e -> {
+            if (visited.isEmpty()) {
+                for (int i = 0; i < 4; i++) engine.submitEvent("n" + i, 10 + 10 * i, 0, "c");
+            }
+            visited.add(e.getUsername());
+        });
+        assertEquals(List.of("w0", "w1", "w2", "w3"), visited);
+        assertEquals(8, engine.pendingEvents());
+        assertEquals(8, engine.visitWaiting(e -> { }));
+        for (int i = 0; i < 4; i++) assertTrue(engine.lookup("w" + i).isWaiting());
+
+        driver.advanceTo(1100);
+        assertEquals(4, service.pairs.size());
+        assertEquals(0, engine.pendingEvents());
+        assertEquals(0, engine.indexedUsers());
+        engine.stop();
+    }
+}